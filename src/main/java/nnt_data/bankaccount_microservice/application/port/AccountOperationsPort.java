@@ -9,6 +9,7 @@ public interface AccountOperationsPort {
     Mono<AccountBase> updateAccount(String accountId,AccountBase updatedAccount);
     Mono<AccountBase> findAccount(String accountId);
     Flux<AccountBase> findAllAccounts();
+    Flux<AccountBase> findAccountsPage(String afterAccountId, int limit);
     Mono<Void> deleteAccount(String accountId);
     Mono<Boolean> existsById(String accountId);
 }
@@ -20,7 +21,7 @@ public interface AccountOperationsPort {
  * - Crear una nueva cuenta bancaria.
  * - Actualizar una cuenta existente por su ID.
  * - Buscar una cuenta específica por su ID.
- * - Obtener todas las cuentas disponibles.
+ * - Obtener todas las cuentas disponibles, completas o por páginas a partir de un cursor.
  * - Eliminar una cuenta por su ID.
  *
  * Se emplean tipos reactivos (Mono y Flux) para manejar datos de manera asíncrona y escalable.
@@ -1,12 +1,18 @@
 package nnt_data.bankaccount_microservice.application.port;
 
+import nnt_data.bankaccount_microservice.model.PayrollTransferRequest;
+import nnt_data.bankaccount_microservice.model.PayrollTransferResult;
 import nnt_data.bankaccount_microservice.model.Transaction;
+import nnt_data.bankaccount_microservice.model.TransactionBatchResult;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface TransactionOperationsPort {
     Mono<Transaction> createTransaction(Transaction transaction);
+    Flux<TransactionBatchResult> createTransactionBatch(Flux<Transaction> transactions);
+    Mono<PayrollTransferResult> createPayrollTransfer(PayrollTransferRequest request);
     Flux<Transaction> getTransactions();
+    Flux<Transaction> getTransactionsPage(String afterTransactionId, int limit);
     Flux<Transaction> getTransactionsAccountId(String accountId);
 }
 
@@ -14,8 +20,9 @@ public interface TransactionOperationsPort {
  * Interfaz TransactionOperationsPort
  * Define las operaciones relacionadas con transacciones bancarias utilizando un enfoque reactivo.
  * Las operaciones disponibles incluyen:
- * - Crear una nueva transacción.
- * - Obtener todas las transacciones registradas.
+ * - Crear una nueva transacción, o un lote de transacciones con un resultado por cada una.
+ * - Transferir desde una cuenta a varias cuentas destino en una sola operación.
+ * - Obtener todas las transacciones registradas, completas o por páginas a partir de un cursor.
  * - Obtener transacciones asociadas a un ID de cuenta específica.
  *
  * Se emplean tipos reactivos (Mono y Flux) para garantizar un manejo asíncrono y eficiente de datos.
@@ -0,0 +1,12 @@
+package nnt_data.bankaccount_microservice.domain.exception;
+
+/**
+ * Otra operación modificó los datos de la cuenta después de que se leyeran para editarlos. El
+ * cliente debe volver a leer la cuenta y repetir la edición.
+ */
+public class AccountConflictException extends DomainException {
+
+    public AccountConflictException(String message) {
+        super(ErrorCode.CONFLICT, message);
+    }
+}
@@ -0,0 +1,14 @@
+package nnt_data.bankaccount_microservice.domain.exception;
+
+/**
+ * La cuenta indicada en la operación no existe.
+ */
+public class AccountNotFoundException extends DomainException {
+
+    public static final AccountNotFoundException DESTINY_ACCOUNTS =
+            new AccountNotFoundException("Alguna de las cuentas destino no existe");
+
+    public AccountNotFoundException(String message) {
+        super(ErrorCode.ACCOUNT_NOT_FOUND, message);
+    }
+}
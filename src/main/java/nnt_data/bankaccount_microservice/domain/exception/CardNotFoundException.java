@@ -0,0 +1,11 @@
+package nnt_data.bankaccount_microservice.domain.exception;
+
+/**
+ * La tarjeta de débito indicada en la operación no existe.
+ */
+public class CardNotFoundException extends DomainException {
+
+    public CardNotFoundException(String message) {
+        super(ErrorCode.CARD_NOT_FOUND, message);
+    }
+}
@@ -0,0 +1,20 @@
+package nnt_data.bankaccount_microservice.domain.exception;
+
+import lombok.Getter;
+
+/**
+ * Error de negocio esperado (saldo insuficiente, límite superado, cuenta inexistente...). No
+ * captura la traza de pila ni admite excepciones suprimidas: son resultados normales de una
+ * transacción rechazada y no fallos del programa, así que crearlos no cuesta más que un objeto y
+ * los de mensaje fijo pueden compartirse como constantes.
+ */
+@Getter
+public abstract class DomainException extends RuntimeException {
+
+    private final ErrorCode errorCode;
+
+    protected DomainException(ErrorCode errorCode, String message) {
+        super(message, null, false, false);
+        this.errorCode = errorCode;
+    }
+}
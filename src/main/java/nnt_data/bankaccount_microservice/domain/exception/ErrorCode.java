@@ -0,0 +1,28 @@
+package nnt_data.bankaccount_microservice.domain.exception;
+
+/**
+ * Códigos de error de negocio que se devuelven a los clientes, tanto en las respuestas HTTP como
+ * en las respuestas por Kafka.
+ */
+public enum ErrorCode {
+    INSUFFICIENT_FUNDS,
+    LIMIT_EXCEEDED,
+    OPERATION_NOT_ALLOWED,
+    ACCOUNT_NOT_FOUND,
+    CARD_NOT_FOUND,
+    CONFLICT,
+    INVALID_REQUEST,
+    SERVICE_UNAVAILABLE,
+    INTERNAL_ERROR;
+
+    /**
+     * Código que corresponde a un error cualquiera: el de la excepción de dominio, INVALID_REQUEST
+     * para los errores de validación de la solicitud e INTERNAL_ERROR para el resto.
+     */
+    public static ErrorCode of(Throwable error) {
+        if (error instanceof DomainException domainException) {
+            return domainException.getErrorCode();
+        }
+        return error instanceof IllegalArgumentException ? INVALID_REQUEST : INTERNAL_ERROR;
+    }
+}
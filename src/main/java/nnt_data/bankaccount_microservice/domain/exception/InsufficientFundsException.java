@@ -0,0 +1,24 @@
+package nnt_data.bankaccount_microservice.domain.exception;
+
+/**
+ * La cuenta no tiene saldo para cubrir el monto y la comisión de la operación.
+ */
+public class InsufficientFundsException extends DomainException {
+
+    public static final InsufficientFundsException BALANCE =
+            new InsufficientFundsException("Saldo insuficiente");
+    public static final InsufficientFundsException BALANCE_AND_COMMISSION =
+            new InsufficientFundsException("Saldo insuficiente para realizar la transacción y pagar la comisión");
+    public static final InsufficientFundsException COMMISSION =
+            new InsufficientFundsException("Saldo insuficiente para pagar la comisión");
+    public static final InsufficientFundsException DESTINY_BALANCE =
+            new InsufficientFundsException("Saldo insuficiente en la cuenta destino");
+    public static final InsufficientFundsException TRANSFER_AND_COMMISSIONS =
+            new InsufficientFundsException("Saldo insuficiente para realizar la transferencia y pagar las comisiones");
+    public static final InsufficientFundsException NO_FUNDING_ACCOUNT =
+            new InsufficientFundsException("No hay fondos suficientes en la cuenta principal ni en las asociadas");
+
+    public InsufficientFundsException(String message) {
+        super(ErrorCode.INSUFFICIENT_FUNDS, message);
+    }
+}
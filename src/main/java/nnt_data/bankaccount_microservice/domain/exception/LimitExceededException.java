@@ -0,0 +1,18 @@
+package nnt_data.bankaccount_microservice.domain.exception;
+
+/**
+ * La cuenta alcanzó un límite de movimientos (por transacción, mensual o diario).
+ */
+public class LimitExceededException extends DomainException {
+
+    public static final LimitExceededException MOVEMENTS =
+            new LimitExceededException("El número de transacciones ha superado el límite permitido");
+    public static final LimitExceededException MONTHLY_MOVEMENTS =
+            new LimitExceededException("Se ha excedido el límite de movimientos mensuales");
+    public static final LimitExceededException DAILY_MOVEMENT =
+            new LimitExceededException("Solo se permite un movimiento por día");
+
+    public LimitExceededException(String message) {
+        super(ErrorCode.LIMIT_EXCEEDED, message);
+    }
+}
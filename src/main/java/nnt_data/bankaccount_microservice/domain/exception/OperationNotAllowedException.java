@@ -0,0 +1,11 @@
+package nnt_data.bankaccount_microservice.domain.exception;
+
+/**
+ * Las reglas de la cuenta no permiten la operación, por ejemplo fuera del día permitido.
+ */
+public class OperationNotAllowedException extends DomainException {
+
+    public OperationNotAllowedException(String message) {
+        super(ErrorCode.OPERATION_NOT_ALLOWED, message);
+    }
+}
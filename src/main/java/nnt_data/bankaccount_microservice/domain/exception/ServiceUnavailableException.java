@@ -0,0 +1,15 @@
+package nnt_data.bankaccount_microservice.domain.exception;
+
+/**
+ * La operación no puede atenderse todavía, por ejemplo mientras se migran los importes al formato
+ * numérico. El cliente puede reintentarla más tarde.
+ */
+public class ServiceUnavailableException extends DomainException {
+
+    public static final ServiceUnavailableException MONEY_MIGRATION =
+            new ServiceUnavailableException("Migración de importes en curso, intente más tarde");
+
+    public ServiceUnavailableException(String message) {
+        super(ErrorCode.SERVICE_UNAVAILABLE, message);
+    }
+}
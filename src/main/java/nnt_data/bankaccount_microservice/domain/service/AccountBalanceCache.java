@@ -0,0 +1,77 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * AccountBalanceCache guarda durante unos segundos el saldo de las cuentas consultadas con frecuencia.
+ * Cada saldo va acompañado de la revisión de saldo de la cuenta: los movimientos escriben el saldo
+ * resultante y una lectura atrasada nunca sustituye a un saldo con revisión posterior. Las
+ * modificaciones de la cuenta que no pasan por los movimientos invalidan la entrada.
+ */
+@Component
+public class AccountBalanceCache {
+
+    private final Cache<String, CachedBalance> cache;
+
+    public AccountBalanceCache(@Value("${bankaccount.balance-cache.ttl-ms:2000}") long ttlMillis,
+                               @Value("${bankaccount.balance-cache.max-accounts:100000}") long maxAccounts) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxAccounts)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .build();
+    }
+
+    /**
+     * Saldo de la cuenta desde la caché o, si no está, desde la base de datos.
+     *
+     * @param accountId ID de la cuenta
+     * @param loader Lectura de la cuenta con al menos el saldo y la revisión de saldo
+     * @return Mono con el saldo, o vacío si la cuenta no existe
+     */
+    public Mono<BigDecimal> balanceOf(String accountId, Function<String, Mono<AccountBaseEntity>> loader) {
+        CachedBalance cached = cache.getIfPresent(accountId);
+        if (cached != null) {
+            return Mono.just(cached.balance());
+        }
+        return loader.apply(accountId)
+                .filter(account -> account.getBalance() != null)
+                .map(account -> update(account).balance());
+    }
+
+    /**
+     * Guarda el saldo de una cuenta recién leída o actualizada, salvo que ya haya uno más reciente.
+     *
+     * @param account Cuenta con saldo y revisión de saldo
+     * @return Saldo que queda en caché
+     */
+    public CachedBalance update(AccountBaseEntity account) {
+        CachedBalance incoming = new CachedBalance(account.getBalance(),
+                account.getBalanceRevision() != null ? account.getBalanceRevision() : -1L);
+        return cache.asMap().merge(account.getAccountId(), incoming,
+                (current, candidate) -> candidate.revision() >= current.revision() ? candidate : current);
+    }
+
+    /**
+     * Elimina el saldo de la cuenta de la caché.
+     *
+     * @param accountId ID de la cuenta
+     */
+    public void invalidate(String accountId) {
+        cache.invalidate(accountId);
+    }
+
+    /**
+     * Saldo en caché junto con la revisión de saldo con la que se leyó.
+     */
+    public record CachedBalance(BigDecimal balance, long revision) {
+    }
+}
@@ -0,0 +1,87 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import nnt_data.bankaccount_microservice.model.AccountType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * AccountConflictPolicy define cómo se reintentan las escrituras sobre cuentas que fallan por un
+ * conflicto de versión: reintentos acotados con espera exponencial y aleatoria, para que las
+ * escrituras que chocan no vuelvan a coincidir. Registra los conflictos y reintentos por tipo de
+ * cuenta para medir la contención real.
+ */
+@Component
+public class AccountConflictPolicy {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final double jitter;
+
+    public AccountConflictPolicy(MeterRegistry meterRegistry,
+                                 @Value("${bankaccount.concurrency.max-retries:5}") int maxRetries,
+                                 @Value("${bankaccount.concurrency.min-backoff-ms:10}") long minBackoffMillis,
+                                 @Value("${bankaccount.concurrency.max-backoff-ms:200}") long maxBackoffMillis,
+                                 @Value("${bankaccount.concurrency.jitter:0.5}") double jitter) {
+        this.meterRegistry = meterRegistry;
+        this.maxRetries = maxRetries;
+        this.minBackoff = Duration.ofMillis(minBackoffMillis);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMillis);
+        this.jitter = jitter;
+    }
+
+    /**
+     * Política de reintento para una escritura sobre la cuenta. Solo reintenta los conflictos de
+     * versión; al agotar los reintentos devuelve un IllegalStateException.
+     *
+     * @param accountType Tipo de cuenta, usado como etiqueta de las métricas
+     * @param accountId ID de la cuenta
+     * @return Especificación de reintento para retryWhen
+     */
+    public Retry retrySpec(AccountType accountType, String accountId) {
+        String type = tagOf(accountType);
+        return Retry.backoff(maxRetries, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(jitter)
+                .filter(OptimisticLockingFailureException.class::isInstance)
+                .doBeforeRetry(signal -> meterRegistry.counter("account.version.retries", "accountType", type).increment())
+                .onRetryExhaustedThrow((spec, signal) -> {
+                    meterRegistry.counter("account.version.retries.exhausted", "accountType", type).increment();
+                    return new IllegalStateException("No se pudo actualizar la cuenta " + accountId
+                            + " por modificaciones concurrentes", signal.failure());
+                });
+    }
+
+    /**
+     * Registra un conflicto de versión detectado por la base de datos.
+     *
+     * @param accountType Tipo de cuenta
+     */
+    public void recordConflict(AccountType accountType) {
+        meterRegistry.counter("account.version.conflicts", "accountType", tagOf(accountType)).increment();
+    }
+
+    /**
+     * Registra un conflicto detectado por una actualización condicional y devuelve la excepción
+     * que dispara el reintento.
+     *
+     * @param accountType Tipo de cuenta
+     * @param accountId ID de la cuenta
+     * @return Excepción de conflicto de versión
+     */
+    public OptimisticLockingFailureException conflict(AccountType accountType, String accountId) {
+        recordConflict(accountType);
+        return new OptimisticLockingFailureException(
+                "La cuenta " + accountId + " fue modificada por otra operación");
+    }
+
+    private String tagOf(AccountType accountType) {
+        return accountType != null ? accountType.getValue() : "unknown";
+    }
+}
@@ -0,0 +1,148 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * AccountMutationSequencer serializa dentro de la instancia las mutaciones de una misma cuenta.
+ * Cada cuenta tiene un buzón sin bloqueos: el trabajo de una cuenta se ejecuta en orden de llegada
+ * y el de cuentas distintas se ejecuta en paralelo. Los buzones se reparten en shards que exponen
+ * la profundidad de cola y el tiempo de espera como métricas.
+ * El secuenciador no combina trabajos: dos registros seguidos de la misma cuenta siguen siendo dos
+ * escrituras. Para agrupar movimientos de una cuenta en una sola escritura está
+ * TransactionOperationsService.createTransactionBatch, que aplica el saldo del grupo de una vez.
+ */
+@Component
+public class AccountMutationSequencer {
+
+    private final Shard[] shards;
+
+    public AccountMutationSequencer(MeterRegistry meterRegistry,
+                                    @Value("${bankaccount.sequencer.shards:16}") int shardCount) {
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, meterRegistry);
+        }
+    }
+
+    /**
+     * Encola un trabajo para la cuenta indicada. El trabajo no se suscribe hasta que terminan
+     * todos los trabajos encolados antes para la misma cuenta.
+     *
+     * @param accountId ID de la cuenta a la que afecta el trabajo
+     * @param work Proveedor del trabajo reactivo
+     * @param <T> Tipo del resultado
+     * @return Mono con el resultado del trabajo
+     */
+    public <T> Mono<T> submit(String accountId, Supplier<Mono<T>> work) {
+        if (accountId == null) {
+            return Mono.defer(work);
+        }
+        return Mono.create(sink -> {
+            Task<T> task = new Task<>(work, sink);
+            sink.onCancel(() -> task.cancelled = true);
+            shardFor(accountId).enqueue(accountId, task);
+        });
+    }
+
+    /**
+     * Número de trabajos pendientes o en ejecución para la cuenta.
+     *
+     * @param accountId ID de la cuenta
+     * @return Trabajos pendientes
+     */
+    public int pendingFor(String accountId) {
+        Mailbox mailbox = shardFor(accountId).mailboxes.get(accountId);
+        return mailbox != null ? mailbox.pending.get() : 0;
+    }
+
+    private Shard shardFor(String accountId) {
+        return shards[Math.floorMod(accountId.hashCode(), shards.length)];
+    }
+
+    private static final class Shard {
+        private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final Timer waitTimer;
+
+        private Shard(int index, MeterRegistry meterRegistry) {
+            String shardTag = String.valueOf(index);
+            Gauge.builder("account.sequencer.queue.depth", depth, AtomicInteger::get)
+                    .tag("shard", shardTag)
+                    .register(meterRegistry);
+            this.waitTimer = Timer.builder("account.sequencer.wait")
+                    .tag("shard", shardTag)
+                    .register(meterRegistry);
+        }
+
+        private void enqueue(String accountId, Task<?> task) {
+            depth.incrementAndGet();
+            boolean[] start = new boolean[1];
+            Mailbox mailbox = mailboxes.compute(accountId, (key, current) -> {
+                Mailbox target = current != null ? current : new Mailbox();
+                target.queue.offer(task);
+                start[0] = target.pending.getAndIncrement() == 0;
+                return target;
+            });
+            if (start[0]) {
+                runNext(accountId, mailbox);
+            }
+        }
+
+        private void runNext(String accountId, Mailbox mailbox) {
+            Task<?> task = mailbox.queue.poll();
+            depth.decrementAndGet();
+            waitTimer.record(System.nanoTime() - task.enqueuedAt, TimeUnit.NANOSECONDS);
+            task.run(() -> complete(accountId, mailbox));
+        }
+
+        private void complete(String accountId, Mailbox mailbox) {
+            if (mailbox.pending.decrementAndGet() > 0) {
+                Schedulers.parallel().schedule(() -> runNext(accountId, mailbox));
+            } else {
+                mailboxes.computeIfPresent(accountId,
+                        (key, current) -> current.pending.get() == 0 ? null : current);
+            }
+        }
+    }
+
+    private static final class Mailbox {
+        private final Queue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+    }
+
+    private static final class Task<T> {
+        private final Supplier<Mono<T>> work;
+        private final MonoSink<T> sink;
+        private final long enqueuedAt = System.nanoTime();
+        private volatile boolean cancelled;
+
+        private Task(Supplier<Mono<T>> work, MonoSink<T> sink) {
+            this.work = work;
+            this.sink = sink;
+        }
+
+        private void run(Runnable onDone) {
+            if (cancelled) {
+                onDone.run();
+                return;
+            }
+            Mono.defer(work)
+                    .doFinally(signal -> onDone.run())
+                    .subscribe(sink::success, sink::error, sink::success);
+        }
+    }
+}
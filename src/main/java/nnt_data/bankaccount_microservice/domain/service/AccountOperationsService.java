@@ -2,15 +2,20 @@ package nnt_data.bankaccount_microservice.domain.service;
 
 import nnt_data.bankaccount_microservice.application.port.AccountOperationsPort;
 import nnt_data.bankaccount_microservice.application.usecase.AccountUpdateStrategy;
+import nnt_data.bankaccount_microservice.domain.exception.AccountConflictException;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.mapper.AccountMapper;
 import nnt_data.bankaccount_microservice.model.AccountBase;
 import nnt_data.bankaccount_microservice.model.CustomerType;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.BankAccountRepository;
 import nnt_data.bankaccount_microservice.application.usecase.AccountCreationStrategy;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.util.Map;
+import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,16 +32,22 @@ public class AccountOperationsService implements AccountOperationsPort {
     private final BankAccountRepository accountRepository;
     private final AccountMapper accountMapper;
     private final Map<CustomerType, AccountUpdateStrategy> updateStrategies;
+    private final AccountBalanceCache accountBalanceCache;
+    private final AccountConflictPolicy accountConflictPolicy;
     private static final Logger log = LoggerFactory.getLogger(AccountOperationsService.class);
 
     public AccountOperationsService(Map<CustomerType, AccountCreationStrategy> creationStrategies,
                                     BankAccountRepository accountRepository,
                                     Map<CustomerType, AccountUpdateStrategy> updateStrategies,
-                                    AccountMapper accountMapper) {
+                                    AccountMapper accountMapper,
+                                    AccountBalanceCache accountBalanceCache,
+                                    AccountConflictPolicy accountConflictPolicy) {
         this.creationStrategies = creationStrategies;
         this.accountRepository = accountRepository;
         this.accountMapper = accountMapper;
         this.updateStrategies = updateStrategies;
+        this.accountBalanceCache = accountBalanceCache;
+        this.accountConflictPolicy = accountConflictPolicy;
     }
 
     @Override
@@ -57,7 +68,8 @@ public class AccountOperationsService implements AccountOperationsPort {
                         return Mono.error(new IllegalArgumentException(
                                 "No existe una cuenta con el ID: " + accountId));
                     }
-                    return accountRepository.deleteById(accountId);
+                    return accountRepository.deleteById(accountId)
+                            .doOnSuccess(deleted -> accountBalanceCache.invalidate(accountId));
                 });
     }
 
@@ -75,16 +87,38 @@ public class AccountOperationsService implements AccountOperationsPort {
                 .flatMap(accountMapper::toDomain);
     }
 
+    @Override
+    public Flux<AccountBase> findAccountsPage(String afterAccountId, int limit) {
+        Flux<AccountBaseEntity> page = afterAccountId == null || afterAccountId.isBlank()
+                ? accountRepository.findAllByOrderByAccountIdAsc(Limit.of(limit))
+                : accountRepository.findByAccountIdGreaterThanOrderByAccountIdAsc(afterAccountId, Limit.of(limit));
+        return page.concatMap(accountMapper::toDomain);
+    }
+
     @Override
     public Mono<AccountBase> createAccount(AccountBase accountBase) {
         return executeCreationStrategy(accountBase)
                 .flatMap(this::saveAccount);
     }
 
+    /**
+     * Actualiza los datos editables de la cuenta. La revisión de datos se lee una sola vez, al
+     * empezar, y se conserva en los reintentos: si otra edición la cambia antes de guardar, la
+     * actualización falla con AccountConflictException en lugar de pisar esa edición. Los cambios
+     * de saldo no cambian la revisión de datos y solo provocan un reintento.
+     */
     @Override
     public Mono<AccountBase> updateAccount(String accountId,AccountBase updatedAccount) {
-        return executeUpdateStrategy(accountId,updatedAccount)
-                .flatMap(this::saveAccount);
+        return accountRepository.findById(accountId)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                        "No existe una cuenta con el ID: " + accountId)))
+                .map(AccountOperationsService::profileRevisionOf)
+                .flatMap(readRevision -> executeUpdateStrategy(accountId, updatedAccount)
+                        .flatMap(validated -> saveVersioned(accountId, validated, readRevision)
+                                .doOnError(OptimisticLockingFailureException.class, error ->
+                                        accountConflictPolicy.recordConflict(updatedAccount.getAccountType()))
+                                .retryWhen(accountConflictPolicy.retrySpec(updatedAccount.getAccountType(), accountId))))
+                .doOnNext(saved -> accountBalanceCache.invalidate(accountId));
     }
 
     private Mono<AccountBase> executeCreationStrategy(AccountBase account) {
@@ -134,6 +168,41 @@ public class AccountOperationsService implements AccountOperationsPort {
                         .flatMap(strategy -> strategy.updateAccount(accountId, acc)));
     }
 
+    /**
+     * Guarda los datos editables de la cuenta sobre la versión actual, siempre que la revisión de
+     * datos siga siendo la leída al empezar la edición. El saldo y los contadores los mantienen las
+     * actualizaciones $inc, por eso se conservan los del documento guardado; si otra escritura
+     * cambia la versión entre la lectura y el guardado, save falla con
+     * OptimisticLockingFailureException y la actualización se reintenta.
+     */
+    private Mono<AccountBase> saveVersioned(String accountId, AccountBase account, long readRevision) {
+        return accountRepository.findById(accountId)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                        "No existe una cuenta con el ID: " + accountId)))
+                .flatMap(current -> current.getVersion() != null
+                        ? Mono.just(current)
+                        : accountRepository.initializeVersion(accountId))
+                .flatMap(current -> profileRevisionOf(current) == readRevision
+                        ? Mono.just(current)
+                        : Mono.error(new AccountConflictException(
+                                "La cuenta " + accountId + " fue editada por otra operación")))
+                .flatMap(current -> accountMapper.toEntity(account)
+                        .map(entity -> {
+                            entity.setVersion(current.getVersion());
+                            entity.setProfileRevision(readRevision + 1);
+                            entity.setBalance(current.getBalance());
+                            entity.setBalanceRevision(current.getBalanceRevision());
+                            entity.setTransactionMovements(current.getTransactionMovements());
+                            return entity;
+                        }))
+                .flatMap(accountRepository::save)
+                .flatMap(accountMapper::toDomain);
+    }
+
+    private static long profileRevisionOf(AccountBaseEntity account) {
+        return Objects.requireNonNullElse(account.getProfileRevision(), 0L);
+    }
+
     private Mono<AccountBase> saveAccount(AccountBase account) {
         return Mono.just(account)
                 .flatMap(accountMapper::toEntity)
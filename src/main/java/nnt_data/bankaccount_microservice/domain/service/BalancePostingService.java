@@ -0,0 +1,199 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.RequiredArgsConstructor;
+import nnt_data.bankaccount_microservice.domain.exception.AccountNotFoundException;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.migration.MoneyFieldMigration;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.BankAccountRepository;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Servicio que aplica los movimientos de saldo de las cuentas mediante actualizaciones condicionales
+ * ($inc) en el servidor. Sustituye el patrón leer-modificar-guardar, que reescribía el documento
+ * completo y perdía actualizaciones cuando dos transacciones tocaban la misma cuenta a la vez.
+ * Los $inc necesitan saldos numéricos, así que los movimientos esperan a que MoneyFieldMigration
+ * haya convertido los importes de las cuentas guardados como texto.
+ */
+@Service
+@RequiredArgsConstructor
+public class BalancePostingService {
+
+    private final BankAccountRepository bankAccountRepository;
+    private final DailyBalanceSnapshotService dailyBalanceSnapshotService;
+    private final AccountBalanceCache accountBalanceCache;
+    private final AccountConflictPolicy accountConflictPolicy;
+    private final MoneyFieldMigration moneyFieldMigration;
+
+    /**
+     * Registra un movimiento sobre la cuenta. El planificador calcula el movimiento a partir del
+     * estado leído de la cuenta y el $inc solo se aplica si la versión de la cuenta no ha cambiado.
+     * Si cambió, se vuelve a leer la cuenta y se recalcula el movimiento según la política de
+     * reintentos de AccountConflictPolicy.
+     *
+     * @param account Cuenta leída previamente
+     * @param planner Función que calcula el movimiento, o devuelve error si no puede realizarse
+     * @return Mono con la cuenta actualizada y el movimiento aplicado
+     */
+    public Mono<PostedMovement> post(AccountBaseEntity account,
+                                     Function<AccountBaseEntity, Mono<BalanceMovement>> planner) {
+        AtomicBoolean firstAttempt = new AtomicBoolean(true);
+        Mono<PostedMovement> posting = Mono.defer(() -> firstAttempt.getAndSet(false)
+                        ? Mono.just(account)
+                        : reload(account.getAccountId()))
+                .flatMap(this::ensureVersioned)
+                .flatMap(current -> planner.apply(current)
+                        .flatMap(movement -> recordBalanceChange(bankAccountRepository.applyBalanceDelta(
+                                        current.getAccountId(),
+                                        movement.delta(),
+                                        movement.minimumBalance(),
+                                        current.getVersion(),
+                                        movement.movements()))
+                                .map(updated -> new PostedMovement(updated, movement))
+                                .switchIfEmpty(Mono.error(() -> accountConflictPolicy.conflict(
+                                        current.getAccountType(), current.getAccountId())))))
+                .retryWhen(accountConflictPolicy.retrySpec(account.getAccountType(), account.getAccountId()));
+        return moneyFieldMigration.requireAccountFieldsMigrated().then(posting);
+    }
+
+    /**
+     * Aplica una variación de saldo sin validar la versión de la cuenta. Se usa para la cuenta
+     * contraparte de una transacción entre cuentas y para las compensaciones.
+     *
+     * @param accountId ID de la cuenta
+     * @param delta Variación del saldo
+     * @param minimumBalance Saldo mínimo requerido, o null
+     * @return Mono con la cuenta actualizada, o vacío si no existe o no tiene saldo suficiente
+     */
+    public Mono<AccountBaseEntity> adjust(String accountId, BigDecimal delta, BigDecimal minimumBalance) {
+        return moneyFieldMigration.requireAccountFieldsMigrated()
+                .then(Mono.defer(() -> recordBalanceChange(
+                        bankAccountRepository.applyBalanceDelta(accountId, delta, minimumBalance, null, 0))));
+    }
+
+    /**
+     * Revierte un movimiento previamente registrado con {@link #post}.
+     *
+     * @param posted Movimiento aplicado
+     * @return Mono con la cuenta actualizada
+     */
+    public Mono<AccountBaseEntity> revert(PostedMovement posted) {
+        return recordBalanceChange(bankAccountRepository.applyBalanceDelta(posted.account().getAccountId(),
+                posted.movement().delta().negate(), null, null, -posted.movement().movements()));
+    }
+
+    /**
+     * Abona o carga varias cuentas con una sola escritura masiva, sin validar saldo ni versión.
+     * Si alguna cuenta no existe, o la escritura falla a mitad, se deshacen las variaciones ya
+     * aplicadas y se devuelve error.
+     *
+     * @param deltas Variación de saldo por ID de cuenta
+     * @return Mono vacío cuando todas las cuentas quedaron actualizadas
+     */
+    public Mono<Void> adjustAll(Map<String, BigDecimal> deltas) {
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Map.Entry<String, BigDecimal>> entries = new ArrayList<>(deltas.entrySet());
+        return moneyFieldMigration.requireAccountFieldsMigrated()
+                .then(Mono.defer(() -> bankAccountRepository.applyBalanceDeltas(deltas)))
+                .onErrorResume(BulkOperationException.class, e -> revertAll(
+                        entries.subList(0, e.getErrors().isEmpty() ? entries.size() : e.getErrors().get(0).getIndex()))
+                        .then(Mono.<BulkWriteResult>error(e)))
+                .flatMap(result -> result.getMatchedCount() < entries.size()
+                        ? revertAll(entries).then(Mono.<Void>error(AccountNotFoundException.DESTINY_ACCOUNTS))
+                        : refreshBalances(deltas.keySet()));
+    }
+
+    /**
+     * Deshace las variaciones aplicadas con {@link #adjustAll}.
+     *
+     * @param deltas Variaciones aplicadas
+     * @return Mono vacío al terminar
+     */
+    public Mono<Void> revertAll(Map<String, BigDecimal> deltas) {
+        return revertAll(new ArrayList<>(deltas.entrySet()));
+    }
+
+    private Mono<Void> revertAll(List<Map.Entry<String, BigDecimal>> entries) {
+        if (entries.isEmpty()) {
+            return Mono.empty();
+        }
+        Map<String, BigDecimal> negated = new LinkedHashMap<>();
+        entries.forEach(entry -> negated.put(entry.getKey(), entry.getValue().negate()));
+        return bankAccountRepository.applyBalanceDeltas(negated)
+                .then(refreshBalances(negated.keySet()));
+    }
+
+    /**
+     * Tras una escritura masiva relee las cuentas afectadas para publicar su saldo en la caché y
+     * guardarlo como cierre del día.
+     */
+    private Mono<Void> refreshBalances(Collection<String> accountIds) {
+        return bankAccountRepository.findAllById(accountIds)
+                .doOnNext(accountBalanceCache::update)
+                .concatMap(dailyBalanceSnapshotService::recordClosingBalance)
+                .then();
+    }
+
+    /**
+     * Publica el saldo resultante en la caché de saldos y lo guarda como cierre del día antes de
+     * devolver la cuenta actualizada.
+     */
+    private Mono<AccountBaseEntity> recordBalanceChange(Mono<AccountBaseEntity> update) {
+        return update
+                .doOnNext(accountBalanceCache::update)
+                .flatMap(updated -> dailyBalanceSnapshotService.recordClosingBalance(updated)
+                        .thenReturn(updated));
+    }
+
+    private Mono<AccountBaseEntity> reload(String accountId) {
+        return bankAccountRepository.findById(accountId)
+                .switchIfEmpty(Mono.error(new AccountNotFoundException(
+                        "No existe la cuenta con ID: " + accountId)));
+    }
+
+    /**
+     * Las cuentas guardadas antes de existir la versión la reciben antes de su primer movimiento.
+     */
+    private Mono<AccountBaseEntity> ensureVersioned(AccountBaseEntity account) {
+        if (account.getVersion() != null) {
+            return Mono.just(account);
+        }
+        return bankAccountRepository.initializeVersion(account.getAccountId())
+                .switchIfEmpty(Mono.error(new AccountNotFoundException(
+                        "No existe la cuenta con ID: " + account.getAccountId())));
+    }
+
+    /**
+     * Movimiento calculado para una cuenta.
+     *
+     * @param delta Variación del saldo
+     * @param commission Comisión incluida en la variación
+     * @param minimumBalance Saldo mínimo que debe tener la cuenta para aplicar el movimiento
+     * @param movements Movimientos que suma al contador de la cuenta
+     */
+    public record BalanceMovement(BigDecimal delta, BigDecimal commission, BigDecimal minimumBalance, int movements) {
+
+        public BalanceMovement(BigDecimal delta, BigDecimal commission, BigDecimal minimumBalance) {
+            this(delta, commission, minimumBalance, 1);
+        }
+    }
+
+    /**
+     * Resultado de aplicar un movimiento: la cuenta tal como quedó en base de datos y el movimiento.
+     */
+    public record PostedMovement(AccountBaseEntity account, BalanceMovement movement) {
+    }
+}
@@ -0,0 +1,93 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nnt_data.bankaccount_microservice.domain.utils.DateUtils;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DailyBalanceSnapshotEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.DailyBalanceSnapshotRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Servicio de saldos de cierre diarios. Cada movimiento aplicado guarda el saldo resultante como
+ * cierre del día, y el saldo promedio de un periodo se calcula con esos cierres: un documento por
+ * día con movimientos más el último cierre anterior al periodo, sin recorrer las transacciones.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DailyBalanceSnapshotService {
+
+    private final DailyBalanceSnapshotRepository dailyBalanceSnapshotRepository;
+
+    /**
+     * Guarda el saldo de la cuenta como cierre del día actual. Un fallo al guardar no revierte
+     * el movimiento: se registra y el reporte recurre al cálculo por transacciones.
+     *
+     * @param account Cuenta tal como quedó tras aplicar el movimiento
+     * @return Mono vacío
+     */
+    public Mono<Void> recordClosingBalance(AccountBaseEntity account) {
+        if (account.getBalanceRevision() == null || account.getBalance() == null) {
+            return Mono.empty();
+        }
+        return dailyBalanceSnapshotRepository.recordClosingBalance(
+                        account.getAccountId(), LocalDate.now(), account.getBalance(), account.getBalanceRevision())
+                .onErrorResume(e -> {
+                    log.warn("No se pudo guardar el saldo de cierre de la cuenta {}: {}",
+                            account.getAccountId(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Calcula el saldo promedio diario del periodo a partir de los cierres guardados. Los días sin
+     * cierre mantienen el saldo del día anterior.
+     *
+     * @param accountId ID de la cuenta
+     * @param startDate Primer día del periodo
+     * @param endDate Último día del periodo
+     * @return Mono con el promedio, o vacío si no se conoce el saldo al inicio del periodo
+     */
+    public Mono<BigDecimal> averageDailyBalance(String accountId, LocalDate startDate, LocalDate endDate) {
+        Mono<Optional<BigDecimal>> opening = dailyBalanceSnapshotRepository
+                .findFirstByAccountIdAndDayLessThanOrderByDayDesc(accountId, DateUtils.toDate(startDate))
+                .map(snapshot -> Optional.of(snapshot.getClosingBalance()))
+                .defaultIfEmpty(Optional.empty());
+        Mono<List<DailyBalanceSnapshotEntity>> snapshots = dailyBalanceSnapshotRepository
+                .findByAccountIdInPeriod(accountId, DateUtils.toDate(startDate), DateUtils.toDate(endDate))
+                .collectList();
+
+        return Mono.zip(opening, snapshots)
+                .flatMap(tuple -> Mono.justOrEmpty(
+                        average(tuple.getT1().orElse(null), tuple.getT2(), startDate, endDate)));
+    }
+
+    private BigDecimal average(BigDecimal openingBalance, List<DailyBalanceSnapshotEntity> snapshots,
+                               LocalDate startDate, LocalDate endDate) {
+        BigDecimal balance = openingBalance;
+        BigDecimal sumOfBalances = BigDecimal.ZERO;
+        int next = 0;
+
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            if (next < snapshots.size() && DateUtils.toLocalDate(snapshots.get(next).getDay()).equals(day)) {
+                balance = snapshots.get(next++).getClosingBalance();
+            }
+            if (balance == null) {
+                return null;
+            }
+            sumOfBalances = sumOfBalances.add(balance);
+        }
+
+        long daysInPeriod = startDate.until(endDate, ChronoUnit.DAYS) + 1;
+        return sumOfBalances.divide(BigDecimal.valueOf(daysInPeriod), RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,127 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DebitCardEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * DebitCardCache guarda en memoria las tarjetas de débito leídas, por número y por ID, para que las
+ * consultas de saldo, las transacciones y los reportes con tarjeta no vayan a Mongo cada vez. La
+ * relación tarjeta-cuentas casi no cambia: el alta y la asociación de cuentas invalidan la tarjeta
+ * en esta instancia y el TTL acota cuánto tarda en verse el cambio en las demás. Por eso el cargo
+ * con tarjeta no decide con qué cuentas pagar a partir de la caché: la consulta de saldos de pago
+ * parte de la tarjeta guardada en la base de datos. Los aciertos, fallos y desalojos se publican
+ * como métricas de caché.
+ */
+@Component
+public class DebitCardCache {
+
+    private final Cache<String, DebitCardEntity> byCardNumber;
+    private final Cache<String, DebitCardEntity> byId;
+    private final AtomicLong generation = new AtomicLong();
+
+    public DebitCardCache(MeterRegistry meterRegistry,
+                          @Value("${bankaccount.debit-card-cache.ttl-seconds:60}") long ttlSeconds,
+                          @Value("${bankaccount.debit-card-cache.max-cards:100000}") long maxCards) {
+        this.byCardNumber = newCache(ttlSeconds, maxCards);
+        this.byId = newCache(ttlSeconds, maxCards);
+        CaffeineCacheMetrics.monitor(meterRegistry, byCardNumber, "debitCardsByNumber");
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "debitCardsById");
+    }
+
+    /**
+     * Tarjeta con el número indicado, desde la caché o, si no está, desde la base de datos.
+     *
+     * @param cardNumber Número de la tarjeta
+     * @param loader Lectura de la tarjeta completa por número
+     * @return Mono con una copia de la tarjeta, o vacío si no existe
+     */
+    public Mono<DebitCardEntity> byCardNumber(String cardNumber, Function<String, Mono<DebitCardEntity>> loader) {
+        return lookup(byCardNumber, cardNumber, loader);
+    }
+
+    /**
+     * Tarjeta con el ID indicado, desde la caché o, si no está, desde la base de datos.
+     *
+     * @param cardId ID de la tarjeta
+     * @param loader Lectura de la tarjeta completa por ID
+     * @return Mono con una copia de la tarjeta, o vacío si no existe
+     */
+    public Mono<DebitCardEntity> byId(String cardId, Function<String, Mono<DebitCardEntity>> loader) {
+        return lookup(byId, cardId, loader);
+    }
+
+    /**
+     * Elimina la tarjeta de la caché. Se llama después de guardar cualquier cambio de la tarjeta.
+     *
+     * @param card Tarjeta modificada
+     */
+    public void invalidate(DebitCardEntity card) {
+        generation.incrementAndGet();
+        if (card.getCardNumber() != null) {
+            byCardNumber.invalidate(card.getCardNumber());
+        }
+        if (card.getId() != null) {
+            byId.invalidate(card.getId());
+        }
+    }
+
+    /**
+     * Las tarjetas leídas se guardan con las dos claves. Si hubo una invalidación mientras se leía,
+     * la lectura puede ser anterior al cambio y no se guarda. Se devuelven copias para que quien
+     * modifique la tarjeta no altere la entrada en caché.
+     */
+    private Mono<DebitCardEntity> lookup(Cache<String, DebitCardEntity> cache, String key,
+                                         Function<String, Mono<DebitCardEntity>> loader) {
+        DebitCardEntity cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(copyOf(cached));
+        }
+        return Mono.defer(() -> {
+            long loadGeneration = generation.get();
+            return loader.apply(key)
+                    .doOnNext(card -> {
+                        DebitCardEntity stored = copyOf(card);
+                        if (generation.get() == loadGeneration) {
+                            if (stored.getCardNumber() != null) {
+                                byCardNumber.put(stored.getCardNumber(), stored);
+                            }
+                            if (stored.getId() != null) {
+                                byId.put(stored.getId(), stored);
+                            }
+                        }
+                    })
+                    .map(DebitCardCache::copyOf);
+        });
+    }
+
+    private static Cache<String, DebitCardEntity> newCache(long ttlSeconds, long maxCards) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxCards)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    private static DebitCardEntity copyOf(DebitCardEntity card) {
+        return DebitCardEntity.builder()
+                .id(card.getId())
+                .cardNumber(card.getCardNumber())
+                .expirationDate(card.getExpirationDate())
+                .primaryAccountId(card.getPrimaryAccountId())
+                .associatedAccountIds(card.getAssociatedAccountIds() != null
+                        ? new ArrayList<>(card.getAssociatedAccountIds())
+                        : new ArrayList<>())
+                .build();
+    }
+}
@@ -1,6 +1,12 @@
 package nnt_data.bankaccount_microservice.domain.service;
 
 import lombok.RequiredArgsConstructor;
+import nnt_data.bankaccount_microservice.domain.exception.AccountNotFoundException;
+import nnt_data.bankaccount_microservice.domain.exception.CardNotFoundException;
+import nnt_data.bankaccount_microservice.domain.exception.InsufficientFundsException;
+import nnt_data.bankaccount_microservice.domain.exception.OperationNotAllowedException;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DebitCardEntity;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.mapper.DebitCardMapper;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.BankAccountRepository;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.DebitCardRepository;
@@ -15,6 +21,10 @@ import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 
 @RequiredArgsConstructor
@@ -25,47 +35,51 @@ public class DebitCardOperationsService {
     private final DebitCardMapper debitCardMapper;
     private final BankAccountRepository bankAccountRepository;
     private final TransactionOperationsService transactionOperationsService;
+    private final AccountBalanceCache accountBalanceCache;
+    private final DebitCardCache debitCardCache;
 
 
     public Mono<DebitCardValidationResponse> existDebitCard(DebitCardValidationRequest debitCardValidationRequest) {
-        return debitCardRepository.findById(debitCardValidationRequest.getDebitCardId())
-                .map(debitCard -> new DebitCardValidationResponse()
-                        .isValid(true)
-                        .message("La tarjeta de débito existe y es válida"))
-                .defaultIfEmpty(new DebitCardValidationResponse()
-                        .isValid(false)
-                        .message("La tarjeta de débito no existe"))
+        return debitCardCache.byId(debitCardValidationRequest.getDebitCardId(), debitCardRepository::findById)
+                .hasElement()
+                .map(exists -> exists
+                        ? new DebitCardValidationResponse()
+                                .isValid(true)
+                                .message("La tarjeta de débito existe y es válida")
+                        : new DebitCardValidationResponse()
+                                .isValid(false)
+                                .message("La tarjeta de débito no existe"))
                 .onErrorResume(e -> Mono.just(new DebitCardValidationResponse()
                         .isValid(false)
                         .message("Error al validar la tarjeta: " + e.getMessage())));
     }
 
     public Mono<BigDecimal> getPrimaryAccountBalance(String cardNumber) {
-        return debitCardRepository.findByCardNumber(cardNumber)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+        return debitCardCache.byCardNumber(cardNumber, debitCardRepository::findByCardNumber)
+                .switchIfEmpty(Mono.error(new CardNotFoundException(
                         "La tarjeta de débito con número " + cardNumber + " no existe")))
                 .flatMap(debitCard -> {
                     String primaryAccountId = debitCard.getPrimaryAccountId();
-                    return bankAccountRepository.findById(primaryAccountId)
-                            .switchIfEmpty(Mono.error(new IllegalArgumentException(
-                                    "La cuenta principal con ID " + primaryAccountId + " no existe")))
-                            .map(bankAccount -> bankAccount.getBalance());
+                    return accountBalanceCache.balanceOf(primaryAccountId, bankAccountRepository::findBalanceById)
+                            .switchIfEmpty(Mono.error(new AccountNotFoundException(
+                                    "La cuenta principal con ID " + primaryAccountId + " no existe")));
                 });
     }
 
     public Mono<DebitCard> createDebitCard(DebitCard debitCard) {
         return bankAccountRepository.findById(debitCard.getPrimaryAccountId())
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                .switchIfEmpty(Mono.error(new AccountNotFoundException(
                         "La cuenta principal con ID " + debitCard.getPrimaryAccountId() + " no existe")))
                 .flatMap(primaryAccount -> {
                     if (debitCard.getAssociatedAccountIds() != null && !debitCard.getAssociatedAccountIds().isEmpty()) {
                         return Flux.fromIterable(debitCard.getAssociatedAccountIds())
                                 .flatMap(accountId -> bankAccountRepository.findById(accountId)
-                                        .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                                        .switchIfEmpty(Mono.error(new AccountNotFoundException(
                                                 "La cuenta asociada con ID " + accountId + " no existe"))))
                                 .collectList()
                                 .then(debitCardMapper.toEntity(debitCard)
                                         .flatMap(debitCardRepository::save)
+                                        .doOnNext(debitCardCache::invalidate)
                                         .flatMap(debitCardMapper::toDomain));
                     } else {
                         if (debitCard.getAssociatedAccountIds() == null) {
@@ -73,49 +87,86 @@ public class DebitCardOperationsService {
                         }
                         return debitCardMapper.toEntity(debitCard)
                                 .flatMap(debitCardRepository::save)
+                                .doOnNext(debitCardCache::invalidate)
                                 .flatMap(debitCardMapper::toDomain);
                     }
                 });
     }
 
     public Mono<DebitCard> findDebitCardById(String cardId) {
-        return debitCardRepository.findById(cardId)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+        return debitCardCache.byId(cardId, debitCardRepository::findById)
+                .switchIfEmpty(Mono.error(new CardNotFoundException(
                         "La tarjeta de débito con ID " + cardId + " no existe")))
                 .flatMap(debitCardMapper::toDomain);
     }
 
     public Mono<DebitCard> findDebitCardByNumber(String cardNumber) {
-        return debitCardRepository.findByCardNumber(cardNumber)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+        return debitCardCache.byCardNumber(cardNumber, debitCardRepository::findByCardNumber)
+                .switchIfEmpty(Mono.error(new CardNotFoundException(
                         "La tarjeta de débito con número " + cardNumber + " no existe")))
                 .flatMap(debitCardMapper::toDomain);
     }
 
+    /**
+     * Asocia una cuenta a la tarjeta con un único $addToSet condicional: la cuenta no puede ser la
+     * principal ni estar ya asociada.
+     */
     public Mono<DebitCard> associateAccountToCard(String cardId, String accountId) {
-        return debitCardRepository.findById(cardId)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(
-                        "La tarjeta de débito con ID " + cardId + " no existe")))
-                .flatMap(card -> {
-                    return bankAccountRepository.findById(accountId)
-                            .switchIfEmpty(Mono.error(new IllegalArgumentException(
-                                    "La cuenta con ID " + accountId + " no existe")))
-                            .flatMap(account -> {
-                                if (card.getPrimaryAccountId().equals(accountId) ||
-                                        (card.getAssociatedAccountIds() != null &&
-                                                card.getAssociatedAccountIds().contains(accountId))) {
-                                    return Mono.error(new IllegalArgumentException(
-                                            "La cuenta ya está asociada a esta tarjeta"));
-                                }
-                                if (card.getAssociatedAccountIds() == null) {
-                                    card.setAssociatedAccountIds(java.util.Arrays.asList(accountId));
-                                } else {
-                                    card.getAssociatedAccountIds().add(accountId);
-                                }
-                                return debitCardRepository.save(card)
-                                        .flatMap(debitCardMapper::toDomain);
-                            });
-                });
+        return bankAccountRepository.existsById(accountId)
+                .flatMap(exists -> exists
+                        ? debitCardRepository.addAssociatedAccount(cardId, accountId)
+                        : Mono.<DebitCardEntity>error(new AccountNotFoundException(
+                                "La cuenta con ID " + accountId + " no existe")))
+                .switchIfEmpty(Mono.defer(() -> cardUnchanged(cardId, "La cuenta ya está asociada a esta tarjeta")))
+                .doOnNext(debitCardCache::invalidate)
+                .flatMap(debitCardMapper::toDomain);
+    }
+
+    /**
+     * Asocia varias cuentas a la tarjeta: comprueba que existen con una sola consulta $in y las
+     * añade con un único $addToSet. Las cuentas ya asociadas se ignoran.
+     */
+    public Mono<DebitCard> associateAccountsToCard(String cardId, List<String> accountIds) {
+        Set<String> requested = new LinkedHashSet<>(accountIds);
+        return bankAccountRepository.findIdsByIdIn(requested)
+                .map(AccountBaseEntity::getAccountId)
+                .collect(Collectors.toSet())
+                .flatMap(found -> {
+                    List<String> missing = requested.stream()
+                            .filter(accountId -> !found.contains(accountId))
+                            .toList();
+                    if (!missing.isEmpty()) {
+                        return Mono.error(new AccountNotFoundException(
+                                "Las cuentas con ID " + String.join(", ", missing) + " no existen"));
+                    }
+                    return debitCardRepository.addAssociatedAccounts(cardId, requested);
+                })
+                .switchIfEmpty(Mono.defer(() -> cardUnchanged(cardId,
+                        "La cuenta principal de la tarjeta no puede asociarse como cuenta adicional")))
+                .doOnNext(debitCardCache::invalidate)
+                .flatMap(debitCardMapper::toDomain);
+    }
+
+    /**
+     * Desasocia una cuenta de la tarjeta con un único $pull condicional. La cuenta principal no
+     * puede desasociarse.
+     */
+    public Mono<DebitCard> dissociateAccountFromCard(String cardId, String accountId) {
+        return debitCardRepository.removeAssociatedAccount(cardId, accountId)
+                .switchIfEmpty(Mono.defer(() -> cardUnchanged(cardId, "La cuenta no está asociada a esta tarjeta")))
+                .doOnNext(debitCardCache::invalidate)
+                .flatMap(debitCardMapper::toDomain);
+    }
+
+    /**
+     * Cuando la actualización condicional no modifica la tarjeta, distingue si la tarjeta no existe
+     * (CardNotFoundException) o si no se cumplió la condición (OperationNotAllowedException).
+     */
+    private Mono<DebitCardEntity> cardUnchanged(String cardId, String conditionMessage) {
+        return debitCardRepository.existsById(cardId)
+                .flatMap(exists -> Mono.<DebitCardEntity>error(exists
+                        ? new OperationNotAllowedException(conditionMessage)
+                        : new CardNotFoundException("La tarjeta de débito con ID " + cardId + " no existe")));
     }
 
     public Mono<Transaction> processDebitCardTransactionFromId(String cardId, String destinyCardId, Transaction transaction) {
@@ -136,57 +187,73 @@ public class DebitCardOperationsService {
     }
 
     private Mono<DebitCard> findDebitCardAndValidate(String cardId) {
-        return debitCardRepository.findById(cardId)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+        return debitCardCache.byId(cardId, debitCardRepository::findById)
+                .switchIfEmpty(Mono.error(new CardNotFoundException(
                         "La tarjeta de débito con número " + cardId + " no existe")))
                 .flatMap(debitCardMapper::toDomain);
     }
 
     private Mono<Transaction> executeTransactionWithFallback(Transaction transaction, DebitCard sourceCard) {
-        return transactionOperationsService.createTransaction(transaction)
-                .onErrorResume(e -> {
-                    if (isInsufficientFundsError(e)) {
-                        Flux<String> associatedAccountIdsFlux = getAssociatedAccountsFlux(sourceCard);
-                        return tryWithAssociatedAccounts(associatedAccountIdsFlux, transaction);
-                    }
-                    return Mono.error(e);
-                });
+        return postFromFundingAccount(sourceCard.getId(), sourceCard.getPrimaryAccountId(),
+                sourceCard.getAssociatedAccountIds(), transaction);
     }
 
-    private boolean isInsufficientFundsError(Throwable e) {
-        return e instanceof IllegalArgumentException &&
-                (e.getMessage().contains("insuficiente") || e.getMessage().contains("comisión"));
+    /**
+     * Elige la cuenta que paga la transacción antes de registrarla: lee con una sola consulta el
+     * saldo de la cuenta principal y de las asociadas y registra la transacción en la primera, por
+     * orden de prioridad, que cubre el monto más la comisión. Si entre la lectura y el registro esa
+     * cuenta se queda sin fondos, se intenta con la siguiente que los cubría.
+     * Las cuentas de la tarjeta en caché pueden estar desactualizadas si otra instancia desasoció
+     * una cuenta, así que esa misma consulta parte de la tarjeta guardada y solo devuelve las
+     * cuentas que siguen en ella; la caché solo aporta el orden de prioridad.
+     */
+    private Mono<Transaction> postFromFundingAccount(String cardId, String primaryAccountId,
+                                                     List<String> associatedAccountIds, Transaction transaction) {
+        Set<String> candidates = new LinkedHashSet<>();
+        candidates.add(primaryAccountId);
+        if (associatedAccountIds != null) {
+            candidates.addAll(associatedAccountIds);
+        }
+        return debitCardRepository.findFundingAccounts(cardId)
+                .collectMap(AccountBaseEntity::getAccountId)
+                .flatMapMany(funding -> Flux.fromStream(candidates.stream()
+                        .map(funding::get)
+                        .filter(account -> account != null && canFund(account, transaction))))
+                .concatMap(account -> transactionOperationsService.createTransaction(
+                                prepareTransaction(transaction, account.getAccountId()))
+                        .onErrorResume(InsufficientFundsException.class, e -> Mono.empty()))
+                .next()
+                .switchIfEmpty(Mono.error(InsufficientFundsException.NO_FUNDING_ACCOUNT));
     }
 
-    private Flux<String> getAssociatedAccountsFlux(DebitCard debitCard) {
-        return debitCard.getAssociatedAccountIds() != null ?
-                Flux.fromIterable(debitCard.getAssociatedAccountIds()) :
-                Flux.empty();
+    /**
+     * Aplica la misma regla de comisión que el registro de la transacción: se cobra cuando la cuenta
+     * alcanzó su límite de movimientos. Solo los retiros y los depósitos a otra cuenta cargan el monto
+     * a la cuenta origen.
+     */
+    private boolean canFund(AccountBaseEntity account, Transaction transaction) {
+        if (account.getBalance() == null) {
+            return false;
+        }
+        BigDecimal required = account.getMovementLimit() != null && account.getTransactionMovements() != null
+                && account.getTransactionMovements() >= account.getMovementLimit()
+                && account.getFeePerTransaction() != null
+                ? account.getFeePerTransaction() : BigDecimal.ZERO;
+        boolean debitsSource = transaction.getTransactionMode() == Transaction.TransactionModeEnum.SINGLE_ACCOUNT
+                ? transaction.getType() == Transaction.TypeEnum.WITHDRAWAL
+                : transaction.getType() == Transaction.TypeEnum.DEPOSIT;
+        if (debitsSource) {
+            required = required.add(transaction.getAmount());
+        }
+        return account.getBalance().compareTo(required) >= 0;
     }
+
     public Mono<Transaction> processDebitCardTransaction(String cardNumber, Transaction transaction) {
-        return debitCardRepository.findByCardNumber(cardNumber)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+        return debitCardCache.byCardNumber(cardNumber, debitCardRepository::findByCardNumber)
+                .switchIfEmpty(Mono.error(new CardNotFoundException(
                         "La tarjeta de débito con número " + cardNumber + " no existe")))
-                .flatMap(debitCard -> {
-                    String primaryAccountId = debitCard.getPrimaryAccountId();
-                    Transaction txWithPrimaryAccount = prepareTransaction(transaction, primaryAccountId);
-
-                    return transactionOperationsService.createTransaction(txWithPrimaryAccount)
-                            .onErrorResume(e -> {
-                                if (e instanceof IllegalArgumentException &&
-                                        (e.getMessage().contains("insuficiente") ||
-                                                e.getMessage().contains("comisión"))) {
-
-                                    Flux<String> associatedAccountIdsFlux = debitCard.getAssociatedAccountIds() != null ?
-                                            Flux.fromIterable(debitCard.getAssociatedAccountIds()) : Flux.empty();
-
-                                    return tryWithAssociatedAccounts(associatedAccountIdsFlux, transaction)
-                                            .onErrorResume(err -> Mono.error(new IllegalArgumentException(
-                                                    "No hay fondos suficientes en la cuenta principal ni en las asociadas")));
-                                }
-                                return Mono.error(e);
-                            });
-                });
+                .flatMap(debitCard -> postFromFundingAccount(debitCard.getId(),
+                        debitCard.getPrimaryAccountId(), debitCard.getAssociatedAccountIds(), transaction));
     }
 
     private Transaction prepareTransaction(Transaction baseTransaction, String accountId) {
@@ -215,36 +282,4 @@ public class DebitCardOperationsService {
         return newTransaction;
     }
 
-    private Mono<Transaction> tryWithAssociatedAccounts(Flux<String> accountIdsFlux, Transaction baseTransaction) {
-        return accountIdsFlux
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(
-                        "No hay fondos suficientes en ninguna cuenta asociada")))
-                .next()
-                .flatMap(currentAccountId -> {
-                    Transaction txWithAccount = prepareTransaction(baseTransaction, currentAccountId);
-
-                    return transactionOperationsService.createTransaction(txWithAccount)
-                            .onErrorResume(e -> {
-                                if ((e instanceof IllegalArgumentException &&
-                                        (e.getMessage().contains("insuficiente") ||
-                                                e.getMessage().contains("comisión")))) {
-
-                                    return accountIdsFlux.skip(1)
-                                            .collectList()
-                                            .flatMap(remainingAccounts -> {
-                                                if (remainingAccounts.isEmpty()) {
-                                                    return Mono.error(new IllegalArgumentException(
-                                                            "No hay fondos suficientes en ninguna cuenta asociada a la tarjeta"));
-                                                }
-                                                return tryWithAssociatedAccounts(Flux.fromIterable(remainingAccounts), baseTransaction);
-                                            });
-                                }
-                                return Mono.error(e);
-                            });
-                });
-    }
-
-
-
-
 }
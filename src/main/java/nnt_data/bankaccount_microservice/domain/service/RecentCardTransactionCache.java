@@ -0,0 +1,117 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import nnt_data.bankaccount_microservice.model.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * RecentCardTransactionCache guarda en memoria las últimas transacciones con tarjeta de cada cuenta,
+ * en un buffer acotado a las N más recientes. TransactionOperationsService añade cada transacción con
+ * tarjeta al guardarla, venga de REST, del lote, de Kafka o de la tarjeta, y el reporte de tarjeta las
+ * lee de aquí, acudiendo a MongoDB solo cuando la cuenta no está en caché. La caché es de cada
+ * instancia: las transacciones registradas en otra instancia se ven cuando vence el TTL, por eso es
+ * corto. El tamaño total se limita por número de transacciones y Caffeine decide qué cuentas desalojar.
+ */
+@Component
+public class RecentCardTransactionCache {
+
+    private static final Comparator<Transaction> NEWEST_FIRST = Comparator.comparing(
+            (Transaction transaction) -> transaction.getDate() != null ? transaction.getDate() : new Date(0),
+            Comparator.reverseOrder());
+
+    private final Cache<String, RecentTransactions> cache;
+    private final int capacity;
+
+    public RecentCardTransactionCache(
+            @Value("${bankaccount.card-transactions.cache.per-account:10}") int capacity,
+            @Value("${bankaccount.card-transactions.cache.max-transactions:200000}") long maxTransactions,
+            @Value("${bankaccount.card-transactions.cache.ttl-seconds:30}") long ttlSeconds) {
+        this.capacity = capacity;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxTransactions)
+                .weigher((String accountId, RecentTransactions recent) -> recent.transactions().size() + 1)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Número máximo de transacciones guardadas por cuenta. Los cargadores no necesitan leer más.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Últimas transacciones con tarjeta de la cuenta, de la más reciente a la más antigua.
+     *
+     * @param accountId ID de la cuenta
+     * @param loader Consulta a base de datos de las transacciones más recientes, ya ordenadas
+     * @return Flux con hasta N transacciones
+     */
+    public Flux<Transaction> recentTransactions(String accountId, Supplier<Flux<Transaction>> loader) {
+        RecentTransactions cached = cache.getIfPresent(accountId);
+        if (cached != null && cached.complete()) {
+            return Flux.fromIterable(cached.transactions());
+        }
+        return loader.get()
+                .take(capacity)
+                .collectList()
+                .flatMapIterable(loaded -> cache.asMap()
+                        .merge(accountId, new RecentTransactions(loaded, true), this::merge)
+                        .transactions());
+    }
+
+    /**
+     * Añade una transacción con tarjeta recién registrada al buffer de su cuenta origen. Si la
+     * cuenta aún no está en caché se guarda como parcial y se completa en la siguiente lectura.
+     *
+     * @param transaction Transacción registrada
+     */
+    public void record(Transaction transaction) {
+        if (!Boolean.TRUE.equals(transaction.getIsByCreditCard()) || transaction.getSourceAccountId() == null) {
+            return;
+        }
+        cache.asMap().merge(transaction.getSourceAccountId(),
+                new RecentTransactions(List.of(transaction), false), this::merge);
+    }
+
+    /**
+     * Combina dos buffers sin duplicados y conserva las N transacciones más recientes. Un buffer
+     * parcial con N transacciones ya contiene las N más recientes, así que se considera completo.
+     */
+    private RecentTransactions merge(RecentTransactions current, RecentTransactions incoming) {
+        Map<String, Transaction> byId = new LinkedHashMap<>();
+        for (Transaction transaction : incoming.transactions()) {
+            byId.put(keyOf(transaction), transaction);
+        }
+        for (Transaction transaction : current.transactions()) {
+            byId.putIfAbsent(keyOf(transaction), transaction);
+        }
+        List<Transaction> merged = new ArrayList<>(byId.values());
+        merged.sort(NEWEST_FIRST);
+        List<Transaction> kept = List.copyOf(merged.subList(0, Math.min(capacity, merged.size())));
+        boolean complete = current.complete() || incoming.complete() || kept.size() >= capacity;
+        return new RecentTransactions(kept, complete);
+    }
+
+    private String keyOf(Transaction transaction) {
+        return transaction.getTransactionId() != null
+                ? transaction.getTransactionId()
+                : String.valueOf(System.identityHashCode(transaction));
+    }
+
+    private record RecentTransactions(List<Transaction> transactions, boolean complete) {
+    }
+}
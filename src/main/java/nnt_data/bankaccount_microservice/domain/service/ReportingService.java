@@ -1,43 +1,50 @@
 package nnt_data.bankaccount_microservice.domain.service;
 
 import lombok.RequiredArgsConstructor;
-import nnt_data.bankaccount_microservice.domain.utils.BalanceCalculator;
+import nnt_data.bankaccount_microservice.domain.exception.CardNotFoundException;
+import nnt_data.bankaccount_microservice.domain.utils.AverageBalanceCalculator;
 import nnt_data.bankaccount_microservice.domain.utils.DateUtils;
-import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionEntity;
-import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.TransactionEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionDailyRollupEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DebitCardEntity;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.mapper.TransactionMapper;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.BankAccountRepository;
-import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.CommissionRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.CommissionDailyRollupRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.CommissionSummary;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.DebitCardRepository;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.TransactionRepository;
 import nnt_data.bankaccount_microservice.model.AccountResume;
+import nnt_data.bankaccount_microservice.model.CommissionGranularity;
 import nnt_data.bankaccount_microservice.model.CommissionReport;
 import nnt_data.bankaccount_microservice.model.Transaction;
 import nnt_data.bankaccount_microservice.model.TransactionReport;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @RequiredArgsConstructor
 @Service
 public class ReportingService {
 
+    private static final int RECENT_CARD_TRANSACTIONS = 10;
+
     private final TransactionRepository transactionRepository;
     private final BankAccountRepository bankAccountRepository;
-    private final CommissionRepository commissionRepository;
+    private final CommissionDailyRollupRepository commissionDailyRollupRepository;
     private final TransactionMapper transactionMapper;
     private final DebitCardRepository debitCardRepository;
+    private final DailyBalanceSnapshotService dailyBalanceSnapshotService;
+    private final RecentCardTransactionCache recentCardTransactionCache;
+    private final DebitCardCache debitCardCache;
 
     public Flux<AccountResume> generateResumeOfAvarageBalance(String customerId) {
         LocalDate now = LocalDate.now();
@@ -46,110 +53,72 @@ public class ReportingService {
 
         return bankAccountRepository.findByCustomerId(customerId)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException("No se encontraron cuentas para el cliente ID: " + customerId)))
-                .flatMap(account ->
-                        transactionRepository.findBySourceAccountIdOrDestinyAccountIdAndDateBetween(
-                                        account.getAccountId(),
-                                        account.getAccountId(),
-                                        DateUtils.toDate(startOfMonth),
-                                        DateUtils.toDate(endOfMonth)
-                                )
-                                .collectList()
-                                .map(transactions -> {
-                                    BigDecimal averageBalance = calculateSalaryAverage(
-                                            account.getBalance(),
-                                            transactions,
-                                            startOfMonth,
-                                            endOfMonth,
-                                            account.getAccountId()
-                                    );
-                                    return new AccountResume(account.getAccountId(), account.getAccountType(), averageBalance);
-                                })
-                )
+                .flatMap(account -> averageDailyBalance(account, startOfMonth, endOfMonth)
+                        .map(averageBalance -> new AccountResume(account.getAccountId(), account.getAccountType(), averageBalance)))
                 .onErrorResume(e -> {
                     System.out.println("Error generating resume of average balance: " + e.getMessage());
                     return Mono.error(new IllegalArgumentException("Error al obtener las cuentas del cliente: " + e.getMessage(), e));
                 });
     }
 
-    private BigDecimal calculateSalaryAverage(BigDecimal initialBalance, List<TransactionEntity> transactions,
-                                              LocalDate startOfMonth, LocalDate endOfMonth, String accountId) {
-        BigDecimal dailyBalance = initialBalance;
-        BigDecimal sumOfBalances = BigDecimal.ZERO;
-        LocalDate currentDate = startOfMonth;
-
-        while (!currentDate.isAfter(endOfMonth)) {
-            LocalDate finalCurrentDate = currentDate;
-            List<TransactionEntity> dailyTransactions = transactions.stream()
-                    .filter(transaction -> DateUtils.toLocalDate(transaction.getDate()).equals(finalCurrentDate))
-                    .toList();
-
-            for (TransactionEntity transactionEntity : dailyTransactions) {
-                Transaction transaction = transactionMapper.toDomain(transactionEntity).block();
-                if (transaction != null) {
-                    dailyBalance = BalanceCalculator.calculateDailyBalance(dailyBalance, transaction, accountId);
-                }
-            }
-
-            sumOfBalances = sumOfBalances.add(dailyBalance);
-            currentDate = currentDate.plusDays(1);
-        }
-
-        long daysInPeriod = startOfMonth.until(endOfMonth, ChronoUnit.DAYS) + 1;
-        return sumOfBalances.divide(BigDecimal.valueOf(daysInPeriod), RoundingMode.HALF_UP);
-    }
-
     public Mono<AccountResume> generateResumeOfAvarageBalanceForPeriodByAccountId(String accountId, Date startDate, Date endDate) {
         LocalDate startLocalDate = DateUtils.toLocalDate(startDate);
         LocalDate endLocalDate = DateUtils.toLocalDate(endDate);
 
         return bankAccountRepository.findById(accountId)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException("No se encontró la cuenta con ID: " + accountId)))
-                .flatMap(account ->
-                        transactionRepository.findBySourceAccountIdOrDestinyAccountIdAndDateBetween(
-                                        account.getAccountId(),
-                                        account.getAccountId(),
-                                        startDate,
-                                        endDate
-                                )
-                                .collectList()
-                                .map(transactions -> {
-                                    BigDecimal averageBalance = calculateSalaryAverage(
-                                            account.getBalance(),
-                                            transactions,
-                                            startLocalDate,
-                                            endLocalDate,
-                                            account.getAccountId()
-                                    );
-                                    return new AccountResume(account.getAccountId(), account.getAccountType(), averageBalance);
-                                })
-                )
+                .flatMap(account -> averageDailyBalance(account, startLocalDate, endLocalDate)
+                        .map(averageBalance -> new AccountResume(account.getAccountId(), account.getAccountType(), averageBalance)))
                 .onErrorResume(e -> {
                     System.out.println("Error generating resume of average balance for account ID: " + e.getMessage());
                     return Mono.error(new IllegalArgumentException("Error al obtener el resumen de la cuenta: " + e.getMessage(), e));
                 });
     }
 
+    /**
+     * Saldo promedio diario de la cuenta. Se calcula con los saldos de cierre diarios y, si no se
+     * conoce el saldo al inicio del periodo, recorriendo las transacciones del periodo.
+     */
+    private Mono<BigDecimal> averageDailyBalance(AccountBaseEntity account, LocalDate startLocalDate,
+                                                 LocalDate endLocalDate) {
+        return dailyBalanceSnapshotService.averageDailyBalance(account.getAccountId(), startLocalDate, endLocalDate)
+                .switchIfEmpty(Mono.defer(() -> transactionRepository
+                        .findByAccountIdInPeriod(
+                                account.getAccountId(),
+                                DateUtils.toDate(startLocalDate),
+                                DateUtils.toDate(endLocalDate.plusDays(1))
+                        )
+                        .flatMap(transactionMapper::toDomain)
+                        .collectList()
+                        .map(transactions -> AverageBalanceCalculator.averageDailyBalance(
+                                account.getBalance(),
+                                transactions,
+                                startLocalDate,
+                                endLocalDate,
+                                account.getAccountId()
+                        ))));
+    }
+
     public Mono<CommissionReport> generateCommissionReportByAccountId(String accountId, Date startDate, Date endDate) {
         LocalDate startLocalDate = DateUtils.toLocalDate(startDate);
         LocalDate endLocalDate = DateUtils.toLocalDate(endDate);
 
-        Date startOfDayDate = Date.from(startLocalDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
-        Date endOfDayDate = Date.from(endLocalDate.atTime(LocalTime.MAX).atZone(ZoneId.systemDefault()).toInstant());
-
-        return commissionRepository.findByAccountIdAndDateTimeBetween(accountId, startOfDayDate, endOfDayDate)
+        return commissionDailyRollupRepository.findByAccountIdInPeriod(
+                        accountId, startLocalDate.toString(), endLocalDate.toString())
                 .collectList()
-                .flatMap(commissions -> {
-                    BigDecimal totalCommission = commissions.stream()
-                            .map(CommissionEntity::getAmount)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
+                .filter(rollups -> !rollups.isEmpty())
+                .map(rollups -> {
                     CommissionReport report = new CommissionReport();
                     report.setAccountId(accountId);
-                    report.setTotalCommission(totalCommission);
-                    report.setTransactionCount((long) commissions.size());
+                    report.setTotalCommission(rollups.stream()
+                            .map(CommissionDailyRollupEntity::getTotalCommission)
+                            .reduce(BigDecimal.ZERO, BigDecimal::add));
+                    report.setTransactionCount(rollups.stream()
+                            .mapToLong(CommissionDailyRollupEntity::getTransactionCount)
+                            .sum());
                     report.setStartDate(startDate);
                     report.setEndOfDate(endDate);
-                    return Mono.just(report);
+                    return report;
                 })
                 .switchIfEmpty(Mono.defer(() -> {
                     CommissionReport emptyReport = new CommissionReport();
@@ -162,46 +131,71 @@ public class ReportingService {
                 }));
     }
 
+    /**
+     * Resume las comisiones de varias cuentas en una sola consulta sobre los totales diarios, por
+     * rango completo, día o mes.
+     *
+     * @param accountIds IDs de las cuentas
+     * @param startDate Fecha de inicio
+     * @param endDate Fecha de fin, se incluye el día completo
+     * @param granularity Agrupación temporal
+     * @return Flux con un total por cuenta y periodo con comisiones
+     */
+    public Flux<CommissionSummary> generateCommissionSummaries(List<String> accountIds, Date startDate, Date endDate,
+                                                               CommissionGranularity granularity) {
+        return commissionDailyRollupRepository.summarize(accountIds,
+                DateUtils.toLocalDate(startDate).toString(),
+                DateUtils.toLocalDate(endDate).toString(),
+                granularity);
+    }
+
     public Mono<TransactionReport> getLastTenTransactions(String cardNumber) {
-        return debitCardRepository.findByCardNumber(cardNumber)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+        return debitCardCache.byCardNumber(cardNumber, debitCardRepository::findByCardNumber)
+                .switchIfEmpty(Mono.error(new CardNotFoundException(
                         "La tarjeta de débito con número " + cardNumber + " no existe")))
-                .flatMap(debitCard -> {
-                    List<String> allAccountIds = new ArrayList<>();
-                    allAccountIds.add(debitCard.getPrimaryAccountId());
-                    if (debitCard.getAssociatedAccountIds() != null && !debitCard.getAssociatedAccountIds().isEmpty()) {
-                        allAccountIds.addAll(debitCard.getAssociatedAccountIds());
-                    }
-                    return Flux.fromIterable(allAccountIds)
-                            .flatMap(accountId ->
-                                    Flux.concat(
-                                            transactionRepository.findBySourceAccountId(accountId)
-                                    )
-                            )
-                            .filter(transaction -> Boolean.TRUE.equals(transaction.getIsByCreditCard()))
-                            .sort(Comparator.comparing(transaction ->
-                                            transaction.getDate() != null ? transaction.getDate() : new Date(0),
-                                    Comparator.reverseOrder()))
-                            .take(10)
-                            .collectList()
-                            .flatMap(transactions ->
-                                    Flux.fromIterable(transactions)
-                                            .flatMap(transactionMapper::toDomain)
-                                            .collectList()
-                                            .map(domainTransactions -> {
-                                                TransactionReport report = new TransactionReport();
-                                                report.setCardNumber(cardNumber);
-                                                report.setGenerationDate(new Date());
-                                                report.setTransactions(domainTransactions);
-                                                report.setTransactionCount(domainTransactions.size());
-                                                if (!domainTransactions.isEmpty()) {
-                                                    report.setNewestTransactionDate(domainTransactions.get(0).getDate());
-                                                    report.setOldestTransactionDate(domainTransactions.get(domainTransactions.size() - 1).getDate());
-                                                }
-                                                return report;
-                                            })
-                            );
-                });
+                .flatMap(debitCard -> findRecentCardTransactions(debitCard)
+                        .collectList()
+                        .map(domainTransactions -> {
+                            TransactionReport report = new TransactionReport();
+                            report.setCardNumber(cardNumber);
+                            report.setGenerationDate(new Date());
+                            report.setTransactions(domainTransactions);
+                            report.setTransactionCount(domainTransactions.size());
+                            if (!domainTransactions.isEmpty()) {
+                                report.setNewestTransactionDate(domainTransactions.get(0).getDate());
+                                report.setOldestTransactionDate(domainTransactions.get(domainTransactions.size() - 1).getDate());
+                            }
+                            return report;
+                        }));
+    }
+
+    /**
+     * Últimas transacciones con tarjeta de las cuentas de la tarjeta. Cada cuenta aporta como máximo
+     * las que caben en RecentCardTransactionCache, servidas desde la caché o leídas ya ordenadas por
+     * índice con ese mismo límite, y se combinan con una mezcla ordenada que solo mantiene un
+     * elemento por cuenta.
+     */
+    @SuppressWarnings("unchecked")
+    private Flux<Transaction> findRecentCardTransactions(DebitCardEntity debitCard) {
+        Set<String> accountIds = new LinkedHashSet<>();
+        accountIds.add(debitCard.getPrimaryAccountId());
+        if (debitCard.getAssociatedAccountIds() != null) {
+            accountIds.addAll(debitCard.getAssociatedAccountIds());
+        }
+        Limit perAccountLimit = Limit.of(recentCardTransactionCache.capacity());
+        Flux<Transaction>[] perAccount = accountIds.stream()
+                .map(accountId -> recentCardTransactionCache.recentTransactions(accountId,
+                        () -> transactionRepository
+                                .findBySourceAccountIdAndIsByCreditCardOrderByDateDesc(accountId, true, perAccountLimit)
+                                .concatMap(transactionMapper::toDomain)))
+                .toArray(Flux[]::new);
+
+        return Flux.mergeComparing(Comparator.comparing(
+                                (Transaction transaction) ->
+                                        transaction.getDate() != null ? transaction.getDate() : new Date(0),
+                                Comparator.reverseOrder()),
+                        perAccount)
+                .take(RECENT_CARD_TRANSACTIONS);
     }
 
 }
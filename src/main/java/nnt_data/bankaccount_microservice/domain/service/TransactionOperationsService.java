@@ -3,21 +3,48 @@ package nnt_data.bankaccount_microservice.domain.service;
 import lombok.RequiredArgsConstructor;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
 import nnt_data.bankaccount_microservice.application.port.TransactionOperationsPort;
+import nnt_data.bankaccount_microservice.domain.exception.AccountNotFoundException;
+import nnt_data.bankaccount_microservice.domain.exception.DomainException;
+import nnt_data.bankaccount_microservice.domain.exception.InsufficientFundsException;
+import nnt_data.bankaccount_microservice.domain.service.BalancePostingService.BalanceMovement;
+import nnt_data.bankaccount_microservice.domain.utils.DateUtils;
+import nnt_data.bankaccount_microservice.domain.validator.TransactionCheck;
 import nnt_data.bankaccount_microservice.domain.validator.TransactionContext;
 import nnt_data.bankaccount_microservice.domain.validator.factory.ValidatorFactory;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionEntity;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.TransactionEntity;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.mapper.TransactionMapper;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.AccountMovementCounterRepository;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.BankAccountRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.CommissionDailyRollupRepository;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.CommissionRepository;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.TransactionRepository;
+import nnt_data.bankaccount_microservice.model.PayrollPayment;
+import nnt_data.bankaccount_microservice.model.PayrollTransferRequest;
+import nnt_data.bankaccount_microservice.model.PayrollTransferResult;
 import nnt_data.bankaccount_microservice.model.Transaction;
+import nnt_data.bankaccount_microservice.model.TransactionBatchResult;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 
 /**
@@ -34,16 +61,103 @@ public class TransactionOperationsService implements TransactionOperationsPort {
     private final BankAccountRepository bankAccountRepository;
     private final ValidatorFactory validatorFactory;
     private final CommissionRepository commissionRepository;
+    private final BalancePostingService balancePostingService;
+    private final AccountMutationSequencer accountMutationSequencer;
+    private final AccountMovementCounterRepository accountMovementCounterRepository;
+    private final CommissionDailyRollupRepository commissionDailyRollupRepository;
+    private final RecentCardTransactionCache recentCardTransactionCache;
+
+    private static final int BATCH_CHUNK_SIZE = 1000;
+    private static final int BATCH_ACCOUNT_CONCURRENCY = 8;
+    private static final int MAX_PAYROLL_PAYMENTS = 1000;
 
     @Override
     public Mono<Transaction> createTransaction(Transaction transaction) {
+        return postTransaction(transaction)
+                .onErrorMap(UncompensatedPostingException.class, Throwable::getCause);
+    }
+
+    /**
+     * Registra una transacción. Si el registro falla y no pudo deshacerse, el error llega como
+     * UncompensatedPostingException y la reserva de validación se conserva.
+     */
+    private Mono<Transaction> postTransaction(Transaction transaction) {
         transaction.setDate(new Date());
         if(transaction.getIsByCreditCard() == null){
             transaction.setIsByCreditCard(false);
         }
-        return findSourceAccount(transaction.getSourceAccountId())
-                .flatMap(sourceAccount -> validateTransaction(sourceAccount, transaction))
-                .flatMap(this::processTransaction);
+        return accountMutationSequencer.submit(transaction.getSourceAccountId(),
+                () -> loadTransactionContext(transaction)
+                        .flatMap(this::validateTransaction)
+                        .flatMap(context -> processTransaction(context)
+                                .onErrorResume(e -> !(e instanceof UncompensatedPostingException),
+                                        e -> releaseValidation(context).then(Mono.error(e)))));
+    }
+
+    /**
+     * Registra un lote de transacciones por bloques. En cada bloque las transacciones de una sola
+     * cuenta se agrupan por cuenta origen: el grupo se valida contra un único estado de la cuenta,
+     * el saldo final se aplica con una sola actualización y las transacciones y comisiones se
+     * insertan en bloque. Las transacciones entre cuentas siguen el camino de createTransaction.
+     * Si un registro falla y no pudo deshacerse, el lote termina con ese error en lugar de
+     * informar como rechazadas transacciones cuyo saldo sigue aplicado.
+     *
+     * @param transactions Transacciones a registrar
+     * @return Flux con un resultado por transacción, identificado por su posición en la entrada
+     */
+    @Override
+    public Flux<TransactionBatchResult> createTransactionBatch(Flux<Transaction> transactions) {
+        return transactions
+                .index()
+                .map(indexed -> new BatchItem(indexed.getT1(), indexed.getT2()))
+                .buffer(BATCH_CHUNK_SIZE)
+                .concatMap(this::processBatchChunk)
+                .onErrorMap(UncompensatedPostingException.class, Throwable::getCause);
+    }
+
+    /**
+     * Registra una transferencia de una cuenta origen a varias cuentas destino, todo o nada. Las
+     * transferencias se validan con las reglas del TransactionValidator de la cuenta origen, el
+     * origen se carga una sola vez por el total más comisiones, los destinos se abonan con una
+     * escritura masiva y las transacciones se guardan en bloque con un mismo batchId. Si falla
+     * algún paso se deshacen los anteriores; si deshacerlos también falla, las reservas de
+     * validación se conservan y se devuelve el error original.
+     *
+     * @param request Cuenta origen y pagos a realizar
+     * @return Mono con el resumen de la transferencia
+     */
+    @Override
+    public Mono<PayrollTransferResult> createPayrollTransfer(PayrollTransferRequest request) {
+        return Mono.defer(() -> {
+            String error = checkPayrollRequest(request);
+            if (error != null) {
+                return Mono.error(new IllegalArgumentException(error));
+            }
+            String batchId = UUID.randomUUID().toString();
+            Date date = new Date();
+            List<Transaction> transactions = request.getPayments().stream()
+                    .map(payment -> {
+                        Transaction transaction = new Transaction();
+                        transaction.setTransactionMode(Transaction.TransactionModeEnum.INTER_ACCOUNT);
+                        transaction.setType(Transaction.TypeEnum.DEPOSIT);
+                        transaction.setAmount(payment.getAmount());
+                        transaction.setSourceAccountId(request.getSourceAccountId());
+                        transaction.setDestinyAccountId(payment.getDestinyAccountId());
+                        transaction.setDate(date);
+                        transaction.setIsByCreditCard(false);
+                        transaction.setBatchId(batchId);
+                        return transaction;
+                    })
+                    .toList();
+
+            return accountMutationSequencer.submit(request.getSourceAccountId(),
+                    () -> loadPayrollContexts(request.getSourceAccountId(), transactions)
+                            .flatMap(contexts -> validatePayroll(contexts)
+                                    .then(Mono.defer(() -> postPayroll(contexts, batchId))
+                                            .onErrorResume(e -> !(e instanceof UncompensatedPostingException),
+                                                    e -> releaseValidations(contexts).then(Mono.error(e))))))
+                    .onErrorMap(UncompensatedPostingException.class, Throwable::getCause);
+        });
     }
 
     @Override
@@ -54,6 +168,17 @@ public class TransactionOperationsService implements TransactionOperationsPort {
                         new RuntimeException("Error al obtener las transacciones", error)));
     }
 
+    @Override
+    public Flux<Transaction> getTransactionsPage(String afterTransactionId, int limit) {
+        Flux<TransactionEntity> page = afterTransactionId == null || afterTransactionId.isBlank()
+                ? transactionRepository.findAllByOrderByTransactionIdAsc(Limit.of(limit))
+                : transactionRepository.findByTransactionIdGreaterThanOrderByTransactionIdAsc(
+                        afterTransactionId, Limit.of(limit));
+        return page.concatMap(transactionMapper::toDomain)
+                .onErrorResume(error -> Flux.error(
+                        new RuntimeException("Error al obtener las transacciones", error)));
+    }
+
     @Override
     public Flux<Transaction> getTransactionsAccountId(String accountId) {
         return transactionRepository.findBySourceAccountId(accountId)
@@ -65,203 +190,168 @@ public class TransactionOperationsService implements TransactionOperationsPort {
 
     private Mono<AccountBaseEntity> findSourceAccount(String accountId) {
         return bankAccountRepository.findById(accountId)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                .switchIfEmpty(Mono.error(new AccountNotFoundException(
                         "No existe la cuenta con ID: " + accountId)));
     }
 
     private Mono<AccountBaseEntity> findDestinyAccount(String accountId) {
         return bankAccountRepository.findById(accountId)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                .switchIfEmpty(Mono.error(new AccountNotFoundException(
                         "No existe la cuenta destino con ID: " + accountId)));
     }
 
-    private Mono<Transaction> validateTransaction(AccountBaseEntity account, Transaction transaction) {
+    /**
+     * Carga las cuentas que participan en la transacción. En transacciones entre cuentas
+     * el origen y el destino se leen en paralelo.
+     */
+    private Mono<TransactionContext> loadTransactionContext(Transaction transaction) {
+        Mono<AccountBaseEntity> sourceAccount = findSourceAccount(transaction.getSourceAccountId());
+        if (transaction.getTransactionMode() == Transaction.TransactionModeEnum.SINGLE_ACCOUNT) {
+            return sourceAccount.map(account -> new TransactionContext(account, transaction));
+        }
+        return Mono.zip(sourceAccount, findDestinyAccount(transaction.getDestinyAccountId()))
+                .map(accounts -> new TransactionContext(accounts.getT1(), transaction, accounts.getT2()));
+    }
+
+    private Mono<TransactionContext> validateTransaction(TransactionContext context) {
         try {
-            TransactionContext context = new TransactionContext(account, transaction);
-            return validatorFactory.getTransactionValidator(account)
-                    .validate(context)
-                    .map(result -> transaction);
+            return validatorFactory.getTransactionValidator(context.getAccount())
+                    .validate(context);
         } catch (IllegalArgumentException e) {
             return Mono.error(new IllegalArgumentException("Tipo de cuenta no soportado"));
         }
     }
 
-    private Mono<Transaction> processTransaction(Transaction transaction) {
-        if (transaction.getTransactionMode() == Transaction.TransactionModeEnum.SINGLE_ACCOUNT) {
-            return processSingleAccountTransaction(transaction);
-        } else {
-            return processDualAccountTransaction(transaction);
-        }
+    private Mono<Void> releaseValidation(TransactionContext context) {
+        return validatorFactory.getTransactionValidator(context.getAccount())
+                .release(context)
+                .onErrorResume(e -> Mono.empty());
     }
 
-    private Mono<Transaction> processSingleAccountTransaction(Transaction transaction) {
-        return findSourceAccount(transaction.getSourceAccountId())
-                .flatMap(account -> processSingleAccountBalance(account, transaction))
-                .flatMap(transactionRepository::save)
-                .flatMap(transactionMapper::toDomain);
-    }
-
-    private Mono<Transaction> processDualAccountTransaction(Transaction transaction) {
-        System.out.println("Starting dual account transaction processing for transactionId: " + transaction.getTransactionId());
-
-        return findSourceAccount(transaction.getSourceAccountId())
-                .doOnSuccess(sourceAccount -> System.out.println("Source account found: " + sourceAccount.getAccountId()))
-                .doOnError(e -> System.err.println("Error finding source account: " + e.getMessage()))
-                .flatMap(sourceAccount ->
-                        findDestinyAccount(transaction.getDestinyAccountId())
-                                .doOnSuccess(destinyAccount -> System.out.println("Destiny account found: " + destinyAccount.getAccountId()))
-                                .doOnError(e -> System.err.println("Error finding destiny account: " + e.getMessage()))
-                                .flatMap(destinyAccount ->
-                                        processDualAccountBalance(sourceAccount, destinyAccount, transaction)
-                                                .doOnSuccess(processedTransaction -> System.out.println("Dual account balance processed successfully."))
-                                                .doOnError(e -> System.err.println("Error processing dual account balance: " + e.getMessage()))
-                                )
-                )
-                .flatMap(savedTransaction -> {
-                    System.out.println("Saving transaction to repository: " + savedTransaction.getTransactionId());
-                    return transactionRepository.save(savedTransaction);
-                })
-                .doOnSuccess(savedTransaction -> System.out.println("Transaction saved successfully: " + savedTransaction.getTransactionId()))
-                .doOnError(e -> System.err.println("Error saving transaction: " + e.getMessage()))
-                .flatMap(transactionEntity -> {
-                    System.out.println("Mapping transaction entity to domain.");
-                    return transactionMapper.toDomain(transactionEntity);
-                })
-                .doOnSuccess(domainTransaction -> System.out.println("Transaction processed successfully: " + domainTransaction.getTransactionId()))
-                .doOnError(e -> System.err.println("Error mapping transaction entity to domain: " + e.getMessage()));
+    private Mono<Transaction> processTransaction(TransactionContext context) {
+        Mono<TransactionEntity> posting;
+        if (context.getTransaction().getTransactionMode() == Transaction.TransactionModeEnum.SINGLE_ACCOUNT) {
+            posting = processSingleAccountBalance(context.getAccount(), context.getTransaction());
+        } else {
+            posting = processDualAccountBalance(
+                    context.getAccount(), context.getDestinyAccount(), context.getTransaction());
+        }
+        return posting.flatMap(transactionMapper::toDomain);
     }
 
     private Mono<TransactionEntity> processSingleAccountBalance(
             AccountBaseEntity account, Transaction transaction) {
-        return calculateBalanceWithCommission(account, transaction)
-                .flatMap(result -> {
-                    BigDecimal newBalance = result.newBalance;
-                    BigDecimal commissionAmount = result.commissionApplied;
-                    account.setBalance(newBalance);
-                    account.setTransactionMovements(account.getTransactionMovements() + 1);
-
-                    Mono<TransactionEntity> saveTransaction = transactionMapper.toEntity(transaction)
-                            .flatMap(transactionRepository::save);
-
-                    if (commissionAmount.compareTo(BigDecimal.ZERO) > 0){
-                        return saveTransaction
-                                .flatMap(savedTransaction -> {
-                                    CommissionEntity commission = CommissionEntity.builder()
-                                            .transactionId(savedTransaction.getTransactionId())
-                                            .accountId(savedTransaction.getSourceAccountId())
-                                            .amount(commissionAmount)
-                                            .dateTime(savedTransaction.getDate())
-                                            .build();
-
-                                    return commissionRepository.save(commission)
-                                            .then(bankAccountRepository.save(account))
-                                            .thenReturn(savedTransaction);
-                                });
-                    } else {
-                        return bankAccountRepository.save(account)
-                                .then(saveTransaction);
-                    }
+        return balancePostingService.post(account, current -> planSingleAccountMovement(current, transaction))
+                .flatMap(posted -> {
+                    SavedWrites writes = new SavedWrites();
+                    return saveTransaction(account, transaction, posted.movement().commission(), writes)
+                            .onErrorResume(e -> compensate(undoSavedWrites(account.getAccountId(), writes)
+                                    .then(balancePostingService.revert(posted)), e));
                 });
     }
 
-    private Mono<TransactionEntity> processDualAccountBalance(
-            AccountBaseEntity sourceAccount, AccountBaseEntity destinyAccount, Transaction transaction) {
-
-        return shouldApplyCommission(sourceAccount)
-                .flatMap(needsCommission -> {
-                    BigDecimal commissionAmount = needsCommission ?
-                            sourceAccount.getFeePerTransaction() : BigDecimal.ZERO;
-
-                    return executeDualAccountTransaction(
-                            sourceAccount, destinyAccount, transaction, commissionAmount);
+    private Mono<BalanceMovement> planSingleAccountMovement(AccountBaseEntity account, Transaction transaction) {
+        return calculateBalanceWithCommission(account, transaction)
+                .map(result -> {
+                    BigDecimal delta = result.newBalance.subtract(account.getBalance());
+                    BigDecimal minimumBalance = delta.signum() < 0 ? delta.negate() : null;
+                    return new BalanceMovement(delta, result.commissionApplied, minimumBalance);
                 });
     }
 
-    private Mono<TransactionEntity> executeDualAccountTransaction(
-            AccountBaseEntity sourceAccount, AccountBaseEntity destinyAccount,
-            Transaction transaction, BigDecimal commissionAmount) {
+    private Mono<TransactionEntity> processDualAccountBalance(
+            AccountBaseEntity sourceAccount, AccountBaseEntity destinyAccount, Transaction transaction) {
 
         if (transaction.getType() == Transaction.TypeEnum.DEPOSIT) {
-            return handleDepositTransaction(
-                    sourceAccount, destinyAccount, transaction, commissionAmount);
+            return handleDepositTransaction(sourceAccount, destinyAccount, transaction);
         } else if (transaction.getType() == Transaction.TypeEnum.WITHDRAWAL) {
-            return handleWithdrawalTransaction(
-                    sourceAccount, destinyAccount, transaction, commissionAmount);
+            return handleWithdrawalTransaction(sourceAccount, destinyAccount, transaction);
         } else {
             return Mono.error(new IllegalStateException("Tipo de transacción no soportado"));
         }
     }
 
     private Mono<TransactionEntity> handleDepositTransaction(
-            AccountBaseEntity sourceAccount, AccountBaseEntity destinyAccount,
-            Transaction transaction, BigDecimal commissionAmount) {
-        BigDecimal totalDebit = transaction.getAmount().add(commissionAmount);
-        if (sourceAccount.getBalance().compareTo(totalDebit) < 0) {
-            return Mono.error(new IllegalArgumentException(
-                    "Saldo insuficiente para realizar la transacción y pagar la comisión"));
-        }
+            AccountBaseEntity sourceAccount, AccountBaseEntity destinyAccount, Transaction transaction) {
+        return balancePostingService.post(sourceAccount, current -> planDepositDebit(current, transaction))
+                .flatMap(posted -> balancePostingService.adjust(
+                                destinyAccount.getAccountId(), transaction.getAmount(), null)
+                        .switchIfEmpty(Mono.defer(() -> balancePostingService.revert(posted)
+                                .then(Mono.error(new AccountNotFoundException(
+                                        "No existe la cuenta destino con ID: " + destinyAccount.getAccountId())))))
+                        .thenReturn(posted))
+                .flatMap(posted -> {
+                    SavedWrites writes = new SavedWrites();
+                    return saveTransaction(sourceAccount, transaction, posted.movement().commission(), writes)
+                            .onErrorResume(e -> compensate(undoSavedWrites(sourceAccount.getAccountId(), writes)
+                                    .then(balancePostingService.adjust(
+                                            destinyAccount.getAccountId(), transaction.getAmount().negate(), null))
+                                    .then(balancePostingService.revert(posted)), e));
+                });
+    }
 
-        sourceAccount.setBalance(sourceAccount.getBalance().subtract(totalDebit));
-        destinyAccount.setBalance(destinyAccount.getBalance().add(transaction.getAmount()));
-        sourceAccount.setTransactionMovements(sourceAccount.getTransactionMovements() + 1);
-
-        return saveAccountsAndCreateTransaction(sourceAccount, destinyAccount, transaction)
-                .flatMap(savedTransaction -> {
-                    if (commissionAmount.compareTo(BigDecimal.ZERO) > 0) {
-                        CommissionEntity commission = CommissionEntity.builder()
-                                .transactionId(savedTransaction.getTransactionId())
-                                .accountId(savedTransaction.getSourceAccountId())
-                                .amount(commissionAmount)
-                                .dateTime(savedTransaction.getDate())
-                                .build();
-
-                        return commissionRepository.save(commission)
-                                .thenReturn(savedTransaction);
+    private Mono<BalanceMovement> planDepositDebit(AccountBaseEntity sourceAccount, Transaction transaction) {
+        return shouldApplyCommission(sourceAccount)
+                .flatMap(needsCommission -> {
+                    BigDecimal commissionAmount = needsCommission ?
+                            sourceAccount.getFeePerTransaction() : BigDecimal.ZERO;
+                    BigDecimal totalDebit = transaction.getAmount().add(commissionAmount);
+                    if (sourceAccount.getBalance().compareTo(totalDebit) < 0) {
+                        return Mono.error(InsufficientFundsException.BALANCE_AND_COMMISSION);
                     }
-                    return Mono.just(savedTransaction);
+                    return Mono.just(new BalanceMovement(totalDebit.negate(), commissionAmount, totalDebit));
                 });
     }
 
     private Mono<TransactionEntity> handleWithdrawalTransaction(
-            AccountBaseEntity sourceAccount, AccountBaseEntity destinyAccount,
-            Transaction transaction, BigDecimal commissionAmount) {
-
-        if (destinyAccount.getBalance().compareTo(transaction.getAmount()) < 0) {
-            return Mono.error(new IllegalArgumentException("Saldo insuficiente en la cuenta destino"));
-        }
-
-        if (sourceAccount.getBalance().compareTo(commissionAmount) < 0) {
-            return Mono.error(new IllegalArgumentException("Saldo insuficiente para pagar la comisión"));
-        }
+            AccountBaseEntity sourceAccount, AccountBaseEntity destinyAccount, Transaction transaction) {
+        BigDecimal amount = transaction.getAmount();
+
+        return balancePostingService.adjust(destinyAccount.getAccountId(), amount.negate(), amount)
+                .switchIfEmpty(Mono.error(InsufficientFundsException.DESTINY_BALANCE))
+                .flatMap(updatedDestiny -> balancePostingService
+                        .post(sourceAccount, current -> planWithdrawalCredit(current, transaction))
+                        .onErrorResume(e -> balancePostingService
+                                .adjust(destinyAccount.getAccountId(), amount, null)
+                                .then(Mono.error(e))))
+                .flatMap(posted -> {
+                    SavedWrites writes = new SavedWrites();
+                    return saveTransaction(sourceAccount, transaction, posted.movement().commission(), writes)
+                            .onErrorResume(e -> compensate(undoSavedWrites(sourceAccount.getAccountId(), writes)
+                                    .then(balancePostingService.revert(posted))
+                                    .then(balancePostingService.adjust(
+                                            destinyAccount.getAccountId(), amount, null)), e));
+                });
+    }
 
-        sourceAccount.setBalance(
-                sourceAccount.getBalance().add(transaction.getAmount()).subtract(commissionAmount));
-        destinyAccount.setBalance(destinyAccount.getBalance().subtract(transaction.getAmount()));
-        sourceAccount.setTransactionMovements(sourceAccount.getTransactionMovements() + 1);
-
-        return saveAccountsAndCreateTransaction(sourceAccount, destinyAccount, transaction)
-                .flatMap(savedTransaction -> {
-                    if (commissionAmount.compareTo(BigDecimal.ZERO) > 0) {
-                        CommissionEntity commission = CommissionEntity.builder()
-                                .transactionId(savedTransaction.getTransactionId())
-                                .accountId(savedTransaction.getSourceAccountId())
-                                .amount(commissionAmount)
-                                .dateTime(savedTransaction.getDate())
-                                .build();
-
-                        return commissionRepository.save(commission)
-                                .thenReturn(savedTransaction);
+    private Mono<BalanceMovement> planWithdrawalCredit(AccountBaseEntity sourceAccount, Transaction transaction) {
+        return shouldApplyCommission(sourceAccount)
+                .flatMap(needsCommission -> {
+                    BigDecimal commissionAmount = needsCommission ?
+                            sourceAccount.getFeePerTransaction() : BigDecimal.ZERO;
+                    if (sourceAccount.getBalance().compareTo(commissionAmount) < 0) {
+                        return Mono.error(InsufficientFundsException.COMMISSION);
                     }
-                    return Mono.just(savedTransaction);
+                    BigDecimal delta = transaction.getAmount().subtract(commissionAmount);
+                    return Mono.just(new BalanceMovement(delta, commissionAmount, commissionAmount));
                 });
     }
 
-    private Mono<TransactionEntity> saveAccountsAndCreateTransaction(
-            AccountBaseEntity sourceAccount, AccountBaseEntity destinyAccount, Transaction transaction) {
+    private Mono<TransactionEntity> saveTransaction(AccountBaseEntity account, Transaction transaction,
+                                                    BigDecimal commissionAmount, SavedWrites writes) {
+        return saveTransactionsWithCommissions(account, List.of(transaction), List.of(commissionAmount), writes)
+                .map(saved -> saved.get(0));
+    }
 
-        return bankAccountRepository.save(sourceAccount)
-                .then(bankAccountRepository.save(destinyAccount))
-                .then(transactionMapper.toEntity(transaction));
+    /**
+     * Deshace lo aplicado antes de un fallo y propaga el error original. Si la compensación también
+     * falla el movimiento queda aplicado, y el error se envuelve para que no se liberen las reservas
+     * de la validación, como la marca diaria de las cuentas a plazo fijo.
+     */
+    private <T> Mono<T> compensate(Mono<?> compensation, Throwable error) {
+        return compensation
+                .onErrorMap(compensationError -> new UncompensatedPostingException(error))
+                .then(Mono.error(error));
     }
 
     private Mono<BalanceResult> calculateBalanceWithCommission(
@@ -288,7 +378,7 @@ public class TransactionOperationsService implements TransactionOperationsPort {
             return Mono.just(balance.add(transaction.getAmount()));
         } else if (transaction.getType() == Transaction.TypeEnum.WITHDRAWAL) {
             if (balance.compareTo(transaction.getAmount()) < 0) {
-                return Mono.error(new IllegalArgumentException("Saldo insuficiente"));
+                return Mono.error(InsufficientFundsException.BALANCE);
             }
             return Mono.just(balance.subtract(transaction.getAmount()));
         } else {
@@ -296,6 +386,472 @@ public class TransactionOperationsService implements TransactionOperationsPort {
         }
     }
 
+    private Flux<TransactionBatchResult> processBatchChunk(List<BatchItem> chunk) {
+        List<TransactionBatchResult> invalid = new ArrayList<>();
+        Map<String, List<BatchItem>> groups = new LinkedHashMap<>();
+        List<BatchItem> individual = new ArrayList<>();
+        for (BatchItem item : chunk) {
+            String error = checkBatchItem(item.transaction());
+            if (error != null) {
+                invalid.add(rejected(item, error));
+            } else if (item.transaction().getTransactionMode() == Transaction.TransactionModeEnum.SINGLE_ACCOUNT) {
+                groups.computeIfAbsent(item.transaction().getSourceAccountId(), key -> new ArrayList<>()).add(item);
+            } else {
+                individual.add(item);
+            }
+        }
+
+        return Flux.concat(
+                Flux.fromIterable(invalid),
+                Flux.fromIterable(groups.entrySet())
+                        .flatMap(group -> accountMutationSequencer.submit(group.getKey(),
+                                        () -> processBatchGroup(group.getKey(), group.getValue()).collectList())
+                                .flatMapIterable(results -> results), BATCH_ACCOUNT_CONCURRENCY),
+                Flux.fromIterable(individual)
+                        .flatMap(item -> postTransaction(item.transaction())
+                                .map(created -> accepted(item, created.getTransactionId()))
+                                .onErrorResume(e -> !(e instanceof UncompensatedPostingException),
+                                        e -> Mono.just(rejected(item, rejectionMessage(e)))),
+                                BATCH_ACCOUNT_CONCURRENCY));
+    }
+
+    private String checkBatchItem(Transaction transaction) {
+        if (transaction.getSourceAccountId() == null) {
+            return "La cuenta origen es obligatoria";
+        }
+        if (transaction.getType() == null || transaction.getTransactionMode() == null) {
+            return "El tipo y el modo de la transacción son obligatorios";
+        }
+        if (transaction.getAmount() == null || transaction.getAmount().signum() <= 0) {
+            return "El monto de la transacción debe ser mayor que cero";
+        }
+        return null;
+    }
+
+    /**
+     * Procesa las transacciones de una sola cuenta del lote con una única lectura de la cuenta.
+     */
+    private Flux<TransactionBatchResult> processBatchGroup(String accountId, List<BatchItem> items) {
+        Date date = new Date();
+        Map<Transaction, BatchItem> itemsByTransaction = new IdentityHashMap<>();
+        for (BatchItem item : items) {
+            item.transaction().setDate(date);
+            if (item.transaction().getIsByCreditCard() == null) {
+                item.transaction().setIsByCreditCard(false);
+            }
+            itemsByTransaction.put(item.transaction(), item);
+        }
+
+        return bankAccountRepository.findById(accountId)
+                .flatMapMany(account -> validateBatch(account, items)
+                        .collectList()
+                        .flatMapMany(checks -> postBatch(account, checks, itemsByTransaction)))
+                .switchIfEmpty(Flux.defer(() -> Flux.fromIterable(items)
+                        .map(item -> rejected(item, "No existe la cuenta con ID: " + accountId))))
+                .onErrorResume(e -> !(e instanceof UncompensatedPostingException), e -> Flux.fromIterable(items)
+                        .map(item -> rejected(item, rejectionMessage(e))));
+    }
+
+    private Flux<TransactionCheck> validateBatch(AccountBaseEntity account, List<BatchItem> items) {
+        return validateBatchContexts(account, items.stream()
+                .map(item -> new TransactionContext(account, item.transaction()))
+                .toList());
+    }
+
+    private Flux<TransactionCheck> validateBatchContexts(AccountBaseEntity account, List<TransactionContext> contexts) {
+        try {
+            return validatorFactory.getTransactionValidator(account).validateAll(contexts);
+        } catch (IllegalArgumentException e) {
+            return Flux.fromIterable(contexts)
+                    .map(context -> TransactionCheck.rejected(context, "Tipo de cuenta no soportado"));
+        }
+    }
+
+    /**
+     * Aplica el saldo del grupo con una sola actualización condicional. Si la cuenta cambió entre
+     * la lectura y la actualización, BalancePostingService vuelve a leerla y el grupo se recalcula.
+     * Si la inserción de las transacciones falla se borra lo ya escrito, se revierte el saldo y se
+     * rechaza el grupo; si eso también falla, el error se propaga como UncompensatedPostingException.
+     */
+    private Flux<TransactionBatchResult> postBatch(AccountBaseEntity account, List<TransactionCheck> checks,
+                                                   Map<Transaction, BatchItem> itemsByTransaction) {
+        List<TransactionContext> validated = checks.stream()
+                .filter(TransactionCheck::isAccepted)
+                .map(TransactionCheck::context)
+                .toList();
+        Flux<TransactionBatchResult> validationRejections = Flux.fromIterable(checks)
+                .filter(check -> !check.isAccepted())
+                .map(check -> rejected(itemsByTransaction.get(check.context().getTransaction()), check.rejection()));
+
+        BatchPlan initialPlan = planBatch(account, validated);
+        if (initialPlan.planned().isEmpty()) {
+            return releaseValidations(validated)
+                    .thenMany(Flux.concat(validationRejections, planRejections(initialPlan, itemsByTransaction)));
+        }
+
+        AtomicReference<BatchPlan> plan = new AtomicReference<>();
+        return balancePostingService.post(account, current -> {
+                    BatchPlan currentPlan = planBatch(current, validated);
+                    plan.set(currentPlan);
+                    return Mono.just(currentPlan.movement());
+                })
+                .flatMapMany(posted -> {
+                    SavedWrites writes = new SavedWrites();
+                    return saveBatch(account, plan.get(), writes)
+                            .onErrorResume(e -> compensate(undoSavedWrites(account.getAccountId(), writes)
+                                    .then(balancePostingService.revert(posted)), e))
+                            .flatMapMany(saved -> releaseValidations(plan.get().rejectedContexts())
+                                    .thenMany(Flux.concat(
+                                            Flux.fromIterable(plan.get().planned())
+                                                    .zipWith(Flux.fromIterable(saved))
+                                                    .map(pair -> accepted(itemsByTransaction.get(
+                                                                    pair.getT1().context().getTransaction()),
+                                                            pair.getT2().getTransactionId())),
+                                            planRejections(plan.get(), itemsByTransaction))));
+                })
+                .onErrorResume(e -> !(e instanceof UncompensatedPostingException), e -> releaseValidations(validated)
+                        .thenMany(Flux.fromIterable(validated)
+                                .map(context -> rejected(itemsByTransaction.get(context.getTransaction()),
+                                        rejectionMessage(e)))))
+                .concatWith(validationRejections);
+    }
+
+    /**
+     * Recorre el grupo en orden sobre un saldo y un contador de movimientos simulados, con las mismas
+     * reglas de comisión y saldo que una transacción individual.
+     */
+    private BatchPlan planBatch(AccountBaseEntity account, List<TransactionContext> contexts) {
+        BigDecimal balance = account.getBalance();
+        int movements = account.getTransactionMovements();
+        BigDecimal totalCommission = BigDecimal.ZERO;
+        List<PlannedTransaction> planned = new ArrayList<>();
+        List<TransactionCheck> rejected = new ArrayList<>();
+
+        for (TransactionContext context : contexts) {
+            Transaction transaction = context.getTransaction();
+            BigDecimal commission = movements >= account.getMovementLimit()
+                    ? account.getFeePerTransaction() : BigDecimal.ZERO;
+            BigDecimal newBalance;
+            if (transaction.getType() == Transaction.TypeEnum.DEPOSIT) {
+                newBalance = balance.subtract(commission).add(transaction.getAmount());
+            } else if (transaction.getType() == Transaction.TypeEnum.WITHDRAWAL) {
+                newBalance = balance.subtract(commission).subtract(transaction.getAmount());
+            } else {
+                rejected.add(TransactionCheck.rejected(context, "Tipo de transacción no soportado"));
+                continue;
+            }
+            if (newBalance.signum() < 0) {
+                rejected.add(TransactionCheck.rejected(context, "Saldo insuficiente"));
+                continue;
+            }
+            planned.add(new PlannedTransaction(context, commission));
+            balance = newBalance;
+            movements++;
+            totalCommission = totalCommission.add(commission);
+        }
+
+        BalanceMovement movement = new BalanceMovement(
+                balance.subtract(account.getBalance()), totalCommission, null, planned.size());
+        return new BatchPlan(planned, rejected, movement);
+    }
+
+    private Mono<List<TransactionEntity>> saveBatch(AccountBaseEntity account, BatchPlan plan, SavedWrites writes) {
+        return saveTransactionsWithCommissions(account,
+                plan.planned().stream().map(planned -> planned.context().getTransaction()).toList(),
+                plan.planned().stream().map(PlannedTransaction::commission).toList(), writes);
+    }
+
+    /**
+     * Inserta en bloque transacciones de una misma cuenta origen y sus comisiones, y actualiza el
+     * acumulado diario de comisiones y el contador mensual una sola vez. Es el único punto donde se
+     * guardan transacciones, así que aquí se añaden las hechas con tarjeta a
+     * RecentCardTransactionCache.
+     *
+     * @param account Cuenta origen
+     * @param transactions Transacciones a insertar, todas con la misma fecha
+     * @param commissions Comisión de cada transacción, en el mismo orden
+     * @param writes Registro de lo escrito, para poder deshacerlo con undoSavedWrites
+     * @return Mono con las transacciones guardadas, en el mismo orden
+     */
+    private Mono<List<TransactionEntity>> saveTransactionsWithCommissions(AccountBaseEntity account,
+                                                                          List<Transaction> transactions,
+                                                                          List<BigDecimal> commissions,
+                                                                          SavedWrites writes) {
+        return Flux.fromIterable(transactions)
+                .concatMap(transactionMapper::toEntity)
+                .doOnNext(entity -> {
+                    entity.setTransactionId(new ObjectId().toHexString());
+                    writes.transactionIds.add(entity.getTransactionId());
+                })
+                .collectList()
+                .flatMap(entities -> transactionRepository.insert(entities).collectList())
+                .flatMap(saved -> {
+                    List<CommissionEntity> commissionEntities = new ArrayList<>();
+                    BigDecimal totalCommission = BigDecimal.ZERO;
+                    for (int i = 0; i < saved.size(); i++) {
+                        BigDecimal commission = commissions.get(i);
+                        if (commission.signum() > 0) {
+                            totalCommission = totalCommission.add(commission);
+                            commissionEntities.add(CommissionEntity.builder()
+                                    .id(new ObjectId().toHexString())
+                                    .transactionId(saved.get(i).getTransactionId())
+                                    .accountId(saved.get(i).getSourceAccountId())
+                                    .amount(commission)
+                                    .dateTime(saved.get(i).getDate())
+                                    .build());
+                        }
+                    }
+                    commissionEntities.forEach(commission -> writes.commissionIds.add(commission.getId()));
+                    LocalDate day = DateUtils.toLocalDate(saved.get(0).getDate());
+                    BigDecimal rollupAmount = totalCommission;
+                    int commissionCount = commissionEntities.size();
+                    Mono<Void> saveCommissions = commissionEntities.isEmpty()
+                            ? Mono.empty()
+                            : commissionRepository.insert(commissionEntities)
+                                    .then(commissionDailyRollupRepository.increment(
+                                            account.getAccountId(), day, rollupAmount, commissionCount))
+                                    .doOnSuccess(rollup -> writes.rollupApplied(day, rollupAmount, commissionCount))
+                                    .then();
+                    Mono<Void> countMovements = account.getMonthlyMovementLimit() == null
+                            ? Mono.empty()
+                            : accountMovementCounterRepository.increment(account.getAccountId(),
+                                            YearMonth.from(day), saved.size())
+                                    .doOnSuccess(counter -> writes.counterApplied(YearMonth.from(day), saved.size()))
+                                    .then();
+                    return saveCommissions.then(countMovements).thenReturn(saved);
+                })
+                .flatMap(saved -> Flux.fromIterable(saved)
+                        .filter(entity -> Boolean.TRUE.equals(entity.getIsByCreditCard()))
+                        .concatMap(transactionMapper::toDomain)
+                        .doOnNext(recentCardTransactionCache::record)
+                        .then(Mono.just(saved)));
+    }
+
+    /**
+     * Borra las transacciones y comisiones insertadas y descuenta los incrementos del acumulado
+     * diario de comisiones y del contador mensual ya aplicados.
+     */
+    private Mono<Void> undoSavedWrites(String accountId, SavedWrites writes) {
+        return Mono.defer(() -> {
+            Mono<Void> rollup = writes.rollupDay == null
+                    ? Mono.empty()
+                    : commissionDailyRollupRepository.increment(accountId, writes.rollupDay,
+                            writes.rollupAmount.negate(), -writes.rollupCommissions).then();
+            Mono<Void> counter = writes.counterPeriod == null
+                    ? Mono.empty()
+                    : accountMovementCounterRepository.increment(accountId, writes.counterPeriod,
+                            -writes.counterMovements).then();
+            return transactionRepository.deleteAllById(writes.transactionIds)
+                    .then(commissionRepository.deleteAllById(writes.commissionIds))
+                    .then(rollup)
+                    .then(counter);
+        });
+    }
+
+    private String checkPayrollRequest(PayrollTransferRequest request) {
+        if (request.getSourceAccountId() == null) {
+            return "La cuenta origen es obligatoria";
+        }
+        if (request.getPayments() == null || request.getPayments().isEmpty()) {
+            return "La transferencia debe incluir al menos un pago";
+        }
+        if (request.getPayments().size() > MAX_PAYROLL_PAYMENTS) {
+            return "La transferencia no puede incluir más de " + MAX_PAYROLL_PAYMENTS + " pagos";
+        }
+        for (PayrollPayment payment : request.getPayments()) {
+            if (payment.getDestinyAccountId() == null
+                    || payment.getDestinyAccountId().equals(request.getSourceAccountId())) {
+                return "Cada pago debe tener una cuenta destino distinta de la cuenta origen";
+            }
+            if (payment.getAmount() == null || payment.getAmount().signum() <= 0) {
+                return "El monto de cada pago debe ser mayor que cero";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Carga la cuenta origen y todas las cuentas destino con una sola consulta $in.
+     */
+    private Mono<List<TransactionContext>> loadPayrollContexts(String sourceAccountId, List<Transaction> transactions) {
+        Set<String> destinyIds = transactions.stream()
+                .map(Transaction::getDestinyAccountId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return Mono.zip(findSourceAccount(sourceAccountId),
+                        bankAccountRepository.findAllById(destinyIds).collectMap(AccountBaseEntity::getAccountId))
+                .flatMap(accounts -> {
+                    for (String destinyId : destinyIds) {
+                        if (!accounts.getT2().containsKey(destinyId)) {
+                            return Mono.error(new AccountNotFoundException(
+                                    "No existe la cuenta destino con ID: " + destinyId));
+                        }
+                    }
+                    return Mono.just(transactions.stream()
+                            .map(transaction -> new TransactionContext(accounts.getT1(), transaction,
+                                    accounts.getT2().get(transaction.getDestinyAccountId())))
+                            .toList());
+                });
+    }
+
+    /**
+     * Valida todos los pagos con el validador de la cuenta origen. Basta un rechazo para rechazar
+     * la transferencia completa, liberando lo que hayan reservado los pagos aceptados.
+     */
+    private Mono<Void> validatePayroll(List<TransactionContext> contexts) {
+        return validateBatchContexts(contexts.get(0).getAccount(), contexts)
+                .collectList()
+                .flatMap(checks -> {
+                    Optional<TransactionCheck> rejection = checks.stream()
+                            .filter(check -> !check.isAccepted())
+                            .findFirst();
+                    if (rejection.isEmpty()) {
+                        return Mono.<Void>empty();
+                    }
+                    List<TransactionContext> accepted = checks.stream()
+                            .filter(TransactionCheck::isAccepted)
+                            .map(TransactionCheck::context)
+                            .toList();
+                    return releaseValidations(accepted).then(Mono.<Void>error(new IllegalArgumentException(
+                            "Pago a la cuenta " + rejection.get().context().getTransaction().getDestinyAccountId()
+                                    + " rechazado: " + rejection.get().rejection())));
+                });
+    }
+
+    private Mono<PayrollTransferResult> postPayroll(List<TransactionContext> contexts, String batchId) {
+        AccountBaseEntity source = contexts.get(0).getAccount();
+        Map<String, BigDecimal> credits = new LinkedHashMap<>();
+        contexts.forEach(context -> credits.merge(
+                context.getTransaction().getDestinyAccountId(), context.getTransaction().getAmount(), BigDecimal::add));
+        AtomicReference<List<BigDecimal>> commissions = new AtomicReference<>();
+
+        return balancePostingService.post(source, current -> planPayrollDebit(current, contexts, commissions))
+                .flatMap(posted -> balancePostingService.adjustAll(credits)
+                        .onErrorResume(e -> compensate(balancePostingService.revert(posted), e))
+                        .then(Mono.defer(() -> {
+                            SavedWrites writes = new SavedWrites();
+                            return saveTransactionsWithCommissions(source,
+                                            contexts.stream().map(TransactionContext::getTransaction).toList(),
+                                            commissions.get(), writes)
+                                    .onErrorResume(e -> compensate(transactionRepository.deleteByBatchId(batchId)
+                                            .then(undoSavedWrites(source.getAccountId(), writes))
+                                            .then(balancePostingService.revertAll(credits))
+                                            .then(balancePostingService.revert(posted)), e));
+                        }))
+                        .map(saved -> new PayrollTransferResult()
+                                .batchId(batchId)
+                                .sourceAccountId(source.getAccountId())
+                                .totalAmount(posted.movement().delta().negate().subtract(posted.movement().commission()))
+                                .totalCommission(posted.movement().commission())
+                                .transactionIds(saved.stream().map(TransactionEntity::getTransactionId).toList())));
+    }
+
+    /**
+     * Calcula el cargo total de la cuenta origen: cada pago cuenta como un movimiento, por lo que
+     * la comisión se aplica a partir del pago que alcanza el límite de movimientos.
+     */
+    private Mono<BalanceMovement> planPayrollDebit(AccountBaseEntity account, List<TransactionContext> contexts,
+                                                   AtomicReference<List<BigDecimal>> commissions) {
+        int movements = account.getTransactionMovements();
+        BigDecimal totalDebit = BigDecimal.ZERO;
+        BigDecimal totalCommission = BigDecimal.ZERO;
+        List<BigDecimal> planned = new ArrayList<>();
+        for (TransactionContext context : contexts) {
+            BigDecimal commission = movements >= account.getMovementLimit()
+                    ? account.getFeePerTransaction() : BigDecimal.ZERO;
+            planned.add(commission);
+            totalCommission = totalCommission.add(commission);
+            totalDebit = totalDebit.add(context.getTransaction().getAmount()).add(commission);
+            movements++;
+        }
+        if (account.getBalance().compareTo(totalDebit) < 0) {
+            return Mono.error(InsufficientFundsException.TRANSFER_AND_COMMISSIONS);
+        }
+        commissions.set(planned);
+        return Mono.just(new BalanceMovement(totalDebit.negate(), totalCommission, totalDebit, contexts.size()));
+    }
+
+    private Mono<Void> releaseValidations(List<TransactionContext> contexts) {
+        return Flux.fromIterable(contexts)
+                .concatMap(this::releaseValidation)
+                .then();
+    }
+
+    private Flux<TransactionBatchResult> planRejections(BatchPlan plan, Map<Transaction, BatchItem> itemsByTransaction) {
+        return Flux.fromIterable(plan.rejected())
+                .map(check -> rejected(itemsByTransaction.get(check.context().getTransaction()), check.rejection()));
+    }
+
+    private static String rejectionMessage(Throwable error) {
+        return error instanceof DomainException || error instanceof IllegalArgumentException
+                ? error.getMessage()
+                : "Error al registrar la transacción";
+    }
+
+    private static TransactionBatchResult accepted(BatchItem item, String transactionId) {
+        return new TransactionBatchResult()
+                .index(item.index())
+                .status(TransactionBatchResult.StatusEnum.ACCEPTED)
+                .transactionId(transactionId)
+                .sourceAccountId(item.transaction().getSourceAccountId());
+    }
+
+    private static TransactionBatchResult rejected(BatchItem item, String message) {
+        return new TransactionBatchResult()
+                .index(item.index())
+                .status(TransactionBatchResult.StatusEnum.REJECTED)
+                .sourceAccountId(item.transaction().getSourceAccountId())
+                .message(message);
+    }
+
+    private record BatchItem(long index, Transaction transaction) {
+    }
+
+    private record PlannedTransaction(TransactionContext context, BigDecimal commission) {
+    }
+
+    private record BatchPlan(List<PlannedTransaction> planned, List<TransactionCheck> rejected,
+                             BalanceMovement movement) {
+
+        List<TransactionContext> rejectedContexts() {
+            return rejected.stream().map(TransactionCheck::context).toList();
+        }
+    }
+
+    /**
+     * Escrituras hechas al guardar transacciones cuyo saldo ya se aplicó. Los IDs se asignan antes
+     * de insertar, así que también se conocen los de una inserción que falló a mitad.
+     */
+    private static final class SavedWrites {
+        private final List<String> transactionIds = new ArrayList<>();
+        private final List<String> commissionIds = new ArrayList<>();
+        private LocalDate rollupDay;
+        private BigDecimal rollupAmount;
+        private long rollupCommissions;
+        private YearMonth counterPeriod;
+        private long counterMovements;
+
+        void rollupApplied(LocalDate day, BigDecimal amount, long commissions) {
+            this.rollupDay = day;
+            this.rollupAmount = amount;
+            this.rollupCommissions = commissions;
+        }
+
+        void counterApplied(YearMonth period, long movements) {
+            this.counterPeriod = period;
+            this.counterMovements = movements;
+        }
+    }
+
+    /**
+     * Fallo de un registro cuya compensación también falló: el saldo sigue aplicado. La causa es el
+     * error original.
+     */
+    private static final class UncompensatedPostingException extends RuntimeException {
+        UncompensatedPostingException(Throwable cause) {
+            super(cause.getMessage(), cause, false, false);
+        }
+    }
+
         /**
          * Clase auxiliar para mantener los resultados del cálculo de saldo
          */
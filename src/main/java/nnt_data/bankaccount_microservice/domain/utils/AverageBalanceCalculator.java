@@ -0,0 +1,48 @@
+package nnt_data.bankaccount_microservice.domain.utils;
+
+import nnt_data.bankaccount_microservice.model.Transaction;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Calcula el saldo promedio diario de un periodo con un único recorrido: ordena una vez las
+ * transacciones por fecha y avanza día a día con un puntero, en lugar de volver a filtrar
+ * la lista completa para cada día. Coste O(t log t + días).
+ */
+public class AverageBalanceCalculator {
+
+    public static BigDecimal averageDailyBalance(BigDecimal initialBalance, List<Transaction> transactions,
+                                                 LocalDate startDate, LocalDate endDate, String accountId) {
+        List<DatedTransaction> sorted = transactions.stream()
+                .filter(transaction -> transaction.getDate() != null)
+                .map(transaction -> new DatedTransaction(DateUtils.toLocalDate(transaction.getDate()), transaction))
+                .sorted(Comparator.comparing(DatedTransaction::day))
+                .toList();
+
+        BigDecimal dailyBalance = initialBalance;
+        BigDecimal sumOfBalances = BigDecimal.ZERO;
+        int next = 0;
+
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            while (next < sorted.size() && !sorted.get(next).day().isAfter(day)) {
+                DatedTransaction current = sorted.get(next++);
+                if (current.day().equals(day)) {
+                    dailyBalance = BalanceCalculator.calculateDailyBalance(
+                            dailyBalance, current.transaction(), accountId);
+                }
+            }
+            sumOfBalances = sumOfBalances.add(dailyBalance);
+        }
+
+        long daysInPeriod = startDate.until(endDate, ChronoUnit.DAYS) + 1;
+        return sumOfBalances.divide(BigDecimal.valueOf(daysInPeriod), RoundingMode.HALF_UP);
+    }
+
+    private record DatedTransaction(LocalDate day, Transaction transaction) {
+    }
+}
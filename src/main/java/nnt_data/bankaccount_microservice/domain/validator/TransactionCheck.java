@@ -0,0 +1,23 @@
+package nnt_data.bankaccount_microservice.domain.validator;
+
+/**
+ * Resultado de validar una transacción dentro de un lote: el contexto validado y, si fue
+ * rechazada, el motivo.
+ *
+ * @param context Contexto de la transacción
+ * @param rejection Motivo del rechazo, o null si la transacción es válida
+ */
+public record TransactionCheck(TransactionContext context, String rejection) {
+
+    public static TransactionCheck accepted(TransactionContext context) {
+        return new TransactionCheck(context, null);
+    }
+
+    public static TransactionCheck rejected(TransactionContext context, String rejection) {
+        return new TransactionCheck(context, rejection);
+    }
+
+    public boolean isAccepted() {
+        return rejection == null;
+    }
+}
@@ -7,7 +7,9 @@ import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.Accou
 import nnt_data.bankaccount_microservice.model.Transaction;
 /**
  * TransactionContext es una clase que encapsula el contexto de una transacción,
- * incluyendo la entidad de la cuenta y la transacción asociada. Utiliza Lombok
+ * incluyendo la entidad de la cuenta origen, la cuenta destino (solo en transacciones
+ * entre cuentas) y la transacción asociada. Las cuentas se cargan una sola vez y el mismo
+ * contexto recorre la validación y el registro de saldos. Utiliza Lombok
  * para generar automáticamente los métodos getter, setter y el constructor.
  */
 @Data
@@ -16,4 +18,9 @@ import nnt_data.bankaccount_microservice.model.Transaction;
 public class TransactionContext {
     private final AccountBaseEntity account;
     private final Transaction transaction;
+    private final AccountBaseEntity destinyAccount;
+
+    public TransactionContext(AccountBaseEntity account, Transaction transaction) {
+        this(account, transaction, null);
+    }
 }
@@ -1,9 +1,14 @@
 package nnt_data.bankaccount_microservice.domain.validator;
 
 
+import nnt_data.bankaccount_microservice.domain.exception.DomainException;
+import nnt_data.bankaccount_microservice.domain.exception.LimitExceededException;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * TransactionValidator es una interfaz que extiende Validator y proporciona
  * validaciones específicas para contextos de transacciones.
@@ -11,9 +16,30 @@ import reactor.core.publisher.Mono;
 public interface TransactionValidator extends Validator<TransactionContext> {
     default Mono<Boolean> hasExceededLimit(AccountBaseEntity account) {
         if (account.getTransactionMovements() >= account.getMovementLimit()) {
-            return Mono.error(new IllegalArgumentException("El número de transacciones ha superado el límite permitido"));
+            return Mono.error(LimitExceededException.MOVEMENTS);
         } else {
             return Mono.just(true);
         }
     }
+
+    /**
+     * Libera lo que la validación haya reservado cuando la transacción no llega a registrarse.
+     * Por defecto no hay nada que liberar.
+     */
+    default Mono<Void> release(TransactionContext entity) {
+        return Mono.empty();
+    }
+
+    /**
+     * Valida un lote de transacciones de la misma cuenta, todas con el mismo estado de cuenta.
+     * Por defecto valida cada transacción por separado y en orden; los validadores que leen
+     * contadores pueden sobrescribirlo para leerlos una sola vez por lote.
+     */
+    default Flux<TransactionCheck> validateAll(List<TransactionContext> entities) {
+        return Flux.fromIterable(entities)
+                .concatMap(entity -> validate(entity)
+                        .map(TransactionCheck::accepted)
+                        .onErrorResume(e -> e instanceof DomainException || e instanceof IllegalArgumentException,
+                                e -> Mono.just(TransactionCheck.rejected(entity, e.getMessage()))));
+    }
 }
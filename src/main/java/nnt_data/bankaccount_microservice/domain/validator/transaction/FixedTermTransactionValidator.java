@@ -1,60 +1,57 @@
 package nnt_data.bankaccount_microservice.domain.validator.transaction;
 
 import lombok.RequiredArgsConstructor;
+import nnt_data.bankaccount_microservice.domain.exception.LimitExceededException;
+import nnt_data.bankaccount_microservice.domain.exception.OperationNotAllowedException;
+import nnt_data.bankaccount_microservice.domain.utils.DateUtils;
 import nnt_data.bankaccount_microservice.domain.validator.TransactionContext;
 import nnt_data.bankaccount_microservice.domain.validator.TransactionValidator;
-import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.TransactionRepository;
-import nnt_data.bankaccount_microservice.model.Transaction;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DailyMovementMarkerEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.DailyMovementMarkerRepository;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
-import java.util.Calendar;
+import java.time.LocalDate;
 import java.util.Date;
 
+/**
+ * Valida las transacciones de cuentas a plazo fijo: solo el día permitido del mes y un único
+ * movimiento por día. El movimiento del día se reserva insertando una marca con clave
+ * cuenta + fecha; si la inserción falla por clave duplicada ya hubo un movimiento ese día.
+ */
 @Component
 @RequiredArgsConstructor
 public class FixedTermTransactionValidator implements TransactionValidator {
 
-    private final TransactionRepository transactionRepository;
+    private final DailyMovementMarkerRepository dailyMovementMarkerRepository;
+
     @Override
     public Mono<TransactionContext> validate(TransactionContext entity) {
-        return Mono.just(entity)
-                .then(Mono.defer(() -> {
-                    Calendar calendar = Calendar.getInstance();
-                    calendar.setTime(entity.getTransaction().getDate());
-                    int dayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
-
-                    if (dayOfMonth != Integer.parseInt(entity.getAccount().getAllowedDayOfMonth())) {
-                        return Mono.error(new IllegalArgumentException(
-                                "Solo se permiten transacciones el día " + entity.getAccount().getAllowedDayOfMonth()));
-                    }
-                    return transactionRepository.findAll()
-                            .filter(t -> t.getSourceAccountId().equals(entity.getTransaction().getSourceAccountId()))
-                            .filter(t -> isSameDay(t.getDate(), entity.getTransaction().getDate()))
-                            .count()
-                            .flatMap(count -> {
-                                if (count > 0) {
-                                    return Mono.error(new IllegalArgumentException(
-                                            "Solo se permite un movimiento por día"));
-                                }
-                                return Mono.just(entity);
-                            });
-                }));
+        return Mono.defer(() -> {
+            LocalDate day = DateUtils.toLocalDate(entity.getTransaction().getDate());
+
+            if (day.getDayOfMonth() != Integer.parseInt(entity.getAccount().getAllowedDayOfMonth())) {
+                return Mono.error(new OperationNotAllowedException(
+                        "Solo se permiten transacciones el día " + entity.getAccount().getAllowedDayOfMonth()));
+            }
+            DailyMovementMarkerEntity marker = DailyMovementMarkerEntity.builder()
+                    .id(DailyMovementMarkerEntity.idOf(entity.getAccount().getAccountId(), day))
+                    .accountId(entity.getAccount().getAccountId())
+                    .day(day.toString())
+                    .createdAt(new Date())
+                    .build();
+
+            return dailyMovementMarkerRepository.insert(marker)
+                    .thenReturn(entity)
+                    .onErrorMap(DuplicateKeyException.class, e -> LimitExceededException.DAILY_MOVEMENT);
+        });
     }
 
-    private boolean isSameDay(Date date1, Date date2) {
-        Calendar cal1 = Calendar.getInstance();
-        cal1.setTime(date1);
-
-        Calendar cal2 = Calendar.getInstance();
-        cal2.setTime(date2);
-
-        return cal1.get(Calendar.YEAR) == cal2.get(Calendar.YEAR) &&
-                cal1.get(Calendar.MONTH) == cal2.get(Calendar.MONTH) &&
-                cal1.get(Calendar.DAY_OF_MONTH) == cal2.get(Calendar.DAY_OF_MONTH);
+    @Override
+    public Mono<Void> release(TransactionContext entity) {
+        LocalDate day = DateUtils.toLocalDate(entity.getTransaction().getDate());
+        return dailyMovementMarkerRepository.deleteById(
+                DailyMovementMarkerEntity.idOf(entity.getAccount().getAccountId(), day));
     }
-
-
-
 }
@@ -1,44 +1,78 @@
 package nnt_data.bankaccount_microservice.domain.validator.transaction;
 
 import lombok.RequiredArgsConstructor;
+import nnt_data.bankaccount_microservice.domain.exception.LimitExceededException;
+import nnt_data.bankaccount_microservice.domain.utils.DateUtils;
+import nnt_data.bankaccount_microservice.domain.validator.TransactionCheck;
 import nnt_data.bankaccount_microservice.domain.validator.TransactionContext;
 import nnt_data.bankaccount_microservice.domain.validator.TransactionValidator;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountMovementCounterEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.AccountMovementCounterRepository;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.TransactionRepository;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.Calendar;
-import java.util.Date;
+import java.time.YearMonth;
+import java.util.List;
 
+/**
+ * Valida el límite de movimientos mensuales de las cuentas de ahorro leyendo el contador
+ * materializado del mes en curso. Si el contador aún no existe se inicializa una única vez
+ * contando las transacciones del mes por índice.
+ */
 @Component
 @RequiredArgsConstructor
 public class SavingsTransactionValidator implements TransactionValidator {
 
+    private final AccountMovementCounterRepository accountMovementCounterRepository;
     private final TransactionRepository transactionRepository;
 
-    private boolean isInCurrentMonth(Date date) {
-        Calendar cal1 = Calendar.getInstance();
-        cal1.setTime(date);
-
-        Calendar cal2 = Calendar.getInstance();
-        cal2.setTime(new Date());
+    @Override
+    public Mono<TransactionContext> validate(TransactionContext entity) {
+        String accountId = entity.getTransaction().getSourceAccountId();
+        YearMonth currentMonth = YearMonth.now();
 
-        return cal1.get(Calendar.YEAR) == cal2.get(Calendar.YEAR) &&
-                cal1.get(Calendar.MONTH) == cal2.get(Calendar.MONTH);
+        return currentMovements(accountId, currentMonth)
+                .flatMap(count -> {
+                    if (count >= entity.getAccount().getMonthlyMovementLimit()) {
+                        return Mono.error(LimitExceededException.MONTHLY_MOVEMENTS);
+                    }
+                    return Mono.just(entity);
+                });
     }
 
+    /**
+     * Valida el lote con una sola lectura del contador: se aceptan, en orden, tantas transacciones
+     * como movimientos queden disponibles en el mes.
+     */
     @Override
-    public Mono<TransactionContext> validate(TransactionContext entity) {
-        return transactionRepository.findAll()
-                        .filter(t -> t.getSourceAccountId().equals(entity.getTransaction().getSourceAccountId()))
-                        .filter(t -> isInCurrentMonth(t.getDate()))
-                        .count()
-                        .flatMap(count -> {
-                            if (count >= entity.getAccount().getMonthlyMovementLimit()) {
-                                return Mono.error(new IllegalArgumentException(
-                                        "Se ha excedido el límite de movimientos mensuales"));
-                            }
-                            return Mono.just(entity);
-                        });
+    public Flux<TransactionCheck> validateAll(List<TransactionContext> entities) {
+        if (entities.isEmpty()) {
+            return Flux.empty();
+        }
+        AccountBaseEntity account = entities.get(0).getAccount();
+        return currentMovements(account.getAccountId(), YearMonth.now())
+                .flatMapMany(count -> Flux.fromIterable(entities)
+                        .index()
+                        .map(indexed -> count + indexed.getT1() < account.getMonthlyMovementLimit()
+                                ? TransactionCheck.accepted(indexed.getT2())
+                                : TransactionCheck.rejected(indexed.getT2(),
+                                        LimitExceededException.MONTHLY_MOVEMENTS.getMessage())));
+    }
+
+    private Mono<Long> currentMovements(String accountId, YearMonth month) {
+        return accountMovementCounterRepository.findById(AccountMovementCounterEntity.idOf(accountId, month))
+                .switchIfEmpty(Mono.defer(() -> initializeCounter(accountId, month)))
+                .map(AccountMovementCounterEntity::getMovements);
+    }
+
+    private Mono<AccountMovementCounterEntity> initializeCounter(String accountId, YearMonth month) {
+        return transactionRepository.countBySourceAccountIdInPeriod(
+                        accountId,
+                        DateUtils.toDate(month.atDay(1)),
+                        DateUtils.toDate(month.plusMonths(1).atDay(1)))
+                .flatMap(count -> accountMovementCounterRepository.initialize(accountId, month, count));
     }
 }
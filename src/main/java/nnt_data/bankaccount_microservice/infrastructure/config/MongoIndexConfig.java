@@ -0,0 +1,87 @@
+package nnt_data.bankaccount_microservice.infrastructure.config;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionDailyRollupEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DailyBalanceSnapshotEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DailyMovementMarkerEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DebitCardEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.IdempotencyRecordEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.TransactionEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.index.IndexDeclaration;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.index.MongoIndexCatalog;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.Index;
+
+import java.time.Duration;
+
+/**
+ * MongoIndexConfig declara los índices que necesitan las consultas de los repositorios.
+ * Cada índice tiene nombre explícito para que MongoIndexManager pueda reconciliarlo.
+ */
+@Configuration
+public class MongoIndexConfig {
+
+    @Bean
+    public MongoIndexCatalog mongoIndexCatalog() {
+        return new MongoIndexCatalog()
+                .declare(new IndexDeclaration(TransactionEntity.class, new Index()
+                        .on("sourceAccountId", Sort.Direction.ASC)
+                        .on("date", Sort.Direction.DESC)
+                        .named("sourceAccountId_date")
+                        .background()))
+                .declare(new IndexDeclaration(TransactionEntity.class, new Index()
+                        .on("destinyAccountId", Sort.Direction.ASC)
+                        .on("date", Sort.Direction.DESC)
+                        .named("destinyAccountId_date")
+                        .background()))
+                .declare(new IndexDeclaration(TransactionEntity.class, new Index()
+                        .on("sourceAccountId", Sort.Direction.ASC)
+                        .on("isByCreditCard", Sort.Direction.ASC)
+                        .on("date", Sort.Direction.DESC)
+                        .named("sourceAccountId_isByCreditCard_date")
+                        .background()))
+                .declare(new IndexDeclaration(TransactionEntity.class, new Index()
+                        .on("batchId", Sort.Direction.ASC)
+                        .sparse()
+                        .named("batchId")
+                        .background()))
+                .declare(new IndexDeclaration(CommissionEntity.class, new Index()
+                        .on("accountId", Sort.Direction.ASC)
+                        .on("dateTime", Sort.Direction.ASC)
+                        .named("accountId_dateTime")
+                        .background()))
+                .declare(new IndexDeclaration(DebitCardEntity.class, new Index()
+                        .on("cardNumber", Sort.Direction.ASC)
+                        .unique()
+                        .named("cardNumber_unique")
+                        .background()))
+                .declare(new IndexDeclaration(AccountBaseEntity.class, new Index()
+                        .on("customerId", Sort.Direction.ASC)
+                        .on("accountType", Sort.Direction.ASC)
+                        .named("customerId_accountType")
+                        .background()))
+                .declare(new IndexDeclaration(DailyMovementMarkerEntity.class, new Index()
+                        .on("createdAt", Sort.Direction.ASC)
+                        .expire(Duration.ofDays(2))
+                        .named("createdAt_ttl")
+                        .background()))
+                .declare(new IndexDeclaration(DailyBalanceSnapshotEntity.class, new Index()
+                        .on("accountId", Sort.Direction.ASC)
+                        .on("day", Sort.Direction.DESC)
+                        .named("accountId_day")
+                        .background()))
+                .declare(new IndexDeclaration(CommissionDailyRollupEntity.class, new Index()
+                        .on("accountId", Sort.Direction.ASC)
+                        .on("day", Sort.Direction.ASC)
+                        .named("accountId_day")
+                        .background()))
+                .declare(new IndexDeclaration(IdempotencyRecordEntity.class, new Index()
+                        .on("expiresAt", Sort.Direction.ASC)
+                        .expire(Duration.ZERO)
+                        .named("expiresAt_ttl")
+                        .background()));
+    }
+}
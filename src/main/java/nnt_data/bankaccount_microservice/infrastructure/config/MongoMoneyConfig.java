@@ -0,0 +1,25 @@
+package nnt_data.bankaccount_microservice.infrastructure.config;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.converter.BigDecimalToDecimal128Converter;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.converter.Decimal128ToBigDecimalConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.util.List;
+
+/**
+ * MongoMoneyConfig registra la conversión de importes a Decimal128 para todas las entidades.
+ * Los documentos antiguos con importes en texto se siguen leyendo y se migran con
+ * MoneyFieldMigration.
+ */
+@Configuration
+public class MongoMoneyConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(
+                new BigDecimalToDecimal128Converter(),
+                new Decimal128ToBigDecimalConverter()));
+    }
+}
@@ -6,10 +6,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import nnt_data.bankaccount_microservice.application.port.AccountOperationsPort;
 import nnt_data.bankaccount_microservice.domain.service.KafkaService;
+import nnt_data.bankaccount_microservice.infrastructure.kafka.KafkaRequestConsumer;
 import nnt_data.bankaccount_microservice.infrastructure.kafka.MessageWrapper;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
 @Component
 @RequiredArgsConstructor
@@ -18,51 +21,45 @@ public class AccountKafkaListener {
     private final KafkaService kafkaService;
     private final AccountOperationsPort accountOperationsPort;
     private final ObjectMapper objectMapper;
+    private final KafkaRequestConsumer kafkaRequestConsumer;
+
+    @Value("${kafka.topics.account-validation-request}")
+    private String accountRequestTopic;
 
     @Value("${kafka.topics.account-validation-response}")
     private String accountResponseTopic;
 
-    @KafkaListener(
-            topics = "${kafka.topics.account-validation-request}",
-            groupId = "${spring.kafka.consumer.group-id}",
-            containerFactory = "kafkaListenerContainerFactory"
-    )
-    public void listenForAccountValidationRequests(String message) {
-        try {
-            MessageWrapper<String> wrapper = objectMapper.readValue(
-                    message,
-                    new TypeReference<MessageWrapper<String>>() {}
-            );
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        kafkaRequestConsumer.consume(accountRequestTopic, this::listenForAccountValidationRequests);
+    }
 
-            String accountId = wrapper.getPayload();
-            String correlationId = wrapper.getCorrelationId();
+    /**
+     * Valida la cuenta solicitada y publica la respuesta. Termina cuando la respuesta fue enviada;
+     * los mensajes mal formados se descartan.
+     */
+    public Mono<Void> listenForAccountValidationRequests(String message) {
+        return Mono.fromCallable(() -> objectMapper.readValue(
+                        message,
+                        new TypeReference<MessageWrapper<String>>() {}
+                ))
+                .doOnError(e -> log.error("Error al procesar mensaje de validación: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .flatMap(wrapper -> {
+                    String accountId = wrapper.getPayload();
+                    String correlationId = wrapper.getCorrelationId();
 
-            accountOperationsPort.existsById(accountId)
-                    .doOnNext(exists -> {
-                        try {
-                            MessageWrapper<Boolean> responseWrapper =
-                                    new MessageWrapper<>(exists, correlationId);
-                            kafkaService.send(accountResponseTopic, responseWrapper)
-                                    .subscribe();
-                            log.info("Respuesta de validación enviada para cuenta {}: {}",
-                                    accountId, exists);
-                        } catch (Exception e) {
-                            log.error("Error al enviar respuesta de validación: {}",
-                                    e.getMessage());
-                        }
-                    })
-                    .doOnError(error -> {
-                        log.error("Error al validar cuenta {}: {}",
-                                accountId, error.getMessage());
-                        MessageWrapper<Boolean> errorWrapper =
-                                new MessageWrapper<>(false, correlationId);
-                        kafkaService.send(accountResponseTopic, errorWrapper)
-                                .subscribe();
-                    })
-                    .subscribe();
-        } catch (Exception e) {
-            log.error("Error al procesar mensaje de validación: {}", e.getMessage());
-        }
+                    return accountOperationsPort.existsById(accountId)
+                            .onErrorResume(error -> {
+                                log.error("Error al validar cuenta {}: {}",
+                                        accountId, error.getMessage());
+                                return Mono.just(false);
+                            })
+                            .flatMap(exists -> kafkaService.send(accountResponseTopic,
+                                            new MessageWrapper<>(exists, correlationId))
+                                    .doOnSuccess(sent -> log.info("Respuesta de validación enviada para cuenta {}: {}",
+                                            accountId, exists)));
+                });
     }
 
 }
@@ -6,16 +6,23 @@ import nnt_data.bankaccount_microservice.application.port.AccountOperationsPort;
 import nnt_data.bankaccount_microservice.application.port.TransactionOperationsPort;
 import nnt_data.bankaccount_microservice.domain.service.ReportingService;
 import nnt_data.bankaccount_microservice.model.AccountBase;
+import nnt_data.bankaccount_microservice.model.CommissionGranularity;
+import nnt_data.bankaccount_microservice.model.PayrollTransferRequest;
+import nnt_data.bankaccount_microservice.model.PayrollTransferResult;
 import nnt_data.bankaccount_microservice.model.PostSalarySummaryForPeriodRequest;
 import nnt_data.bankaccount_microservice.model.Transaction;
+import nnt_data.bankaccount_microservice.model.TransactionBatchResult;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,7 +39,10 @@ public class BankAccountController implements AccountsApi {
     private final AccountOperationsPort accountOperationsPort;
     private final ReportingService reportingService;
     private final TransactionOperationsPort transactionOperationsPort;
+    private final IdempotentRequestHandler idempotentRequestHandler;
     private static final Logger log = LoggerFactory.getLogger(BankAccountController.class);
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final int MAX_PAGE_LIMIT = 500;
 
     @Override
     public Mono<ResponseEntity<Map<String, Object>>> createAccount(Mono<AccountBase> accountBase, ServerWebExchange exchange) {
@@ -51,6 +61,7 @@ public class BankAccountController implements AccountsApi {
 
     /**
      * POST /accounts/transactions : Registrar una nueva transacción en la cuenta
+     * Con la cabecera Idempotency-Key las repeticiones devuelven la respuesta de la primera solicitud.
      *
      * @param transaction (required)
      * @param exchange
@@ -64,15 +75,16 @@ public class BankAccountController implements AccountsApi {
     public Mono<ResponseEntity<Map<String, Object>>> createTransaction(Mono<Transaction> transaction, ServerWebExchange exchange) {
         log.info("Iniciando registro de nueva transacción");
         return transaction
-                .flatMap(tx -> transactionOperationsPort.createTransaction(tx))
-                .map(createdTransaction -> {
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("message", "Transacción creada exitosamente");
-                    response.put("transaction_id", createdTransaction.getTransactionId());
-                    return ResponseEntity
-                            .status(HttpStatus.CREATED)
-                            .body(response);
-                });
+                .flatMap(tx -> idempotentRequestHandler.execute("transactions", exchange, tx,
+                        () -> transactionOperationsPort.createTransaction(tx)
+                                .map(createdTransaction -> {
+                                    Map<String, Object> response = new HashMap<>();
+                                    response.put("message", "Transacción creada exitosamente");
+                                    response.put("transaction_id", createdTransaction.getTransactionId());
+                                    return ResponseEntity
+                                            .status(HttpStatus.CREATED)
+                                            .body(response);
+                                })));
     }
 
 
@@ -98,39 +110,164 @@ public class BankAccountController implements AccountsApi {
                 });
     }
 
+    /**
+     * GET /accounts/all : Obtener una página de cuentas bancarias
+     * Sin after ni limit devuelve todas las cuentas, como antes de la paginación (obsoleto).
+     *
+     * @param after ID de la última cuenta de la página anterior (optional)
+     * @param limit Número máximo de cuentas de la página (optional, 100 si se envía after)
+     * @param exchange
+     * @return Lista de cuentas bancarias y cursor de la página siguiente (status code 200)
+     * or Error interno del servidor (status code 500)
+     */
     @Override
-    public Mono<ResponseEntity<Map<String, Object>>> getAllAccounts(ServerWebExchange exchange) {
-        log.info("Obteniendo listado de todas las cuentas bancarias");
-        return accountOperationsPort.findAllAccounts()
+    public Mono<ResponseEntity<Map<String, Object>>> getAllAccounts(String after, Integer limit, ServerWebExchange exchange) {
+        if (isUnpaged(after, limit)) {
+            log.warn("Listado completo de cuentas sin paginar (obsoleto)");
+            return accountOperationsPort.findAllAccounts()
+                    .collectList()
+                    .map(accounts -> {
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("accounts", accounts);
+                        return deprecatedFullList(response);
+                    });
+        }
+        log.info("Obteniendo página de cuentas bancarias después de: {}", after);
+        int pageLimit = pageLimit(limit);
+        return accountOperationsPort.findAccountsPage(after, pageLimit)
                 .collectList()
                 .map(accounts -> {
                     Map<String, Object> response = new HashMap<>();
                     response.put("accounts", accounts);
+                    response.put("nextCursor", accounts.size() < pageLimit
+                            ? null : accounts.get(accounts.size() - 1).getAccountId());
                     return ResponseEntity.ok()
                             .body(response);
                 });
     }
 
     /**
-     * GET /accounts/transactions : Obtener todas las transacciones
+     * GET /accounts/all/stream : Transmitir todas las cuentas bancarias
      *
      * @param exchange
-     * @return Historial completo de transacciones (status code 200)
+     * @return Flujo de cuentas bancarias en formato NDJSON (status code 200)
      * or Error interno del servidor (status code 500)
      */
     @Override
-    public Mono<ResponseEntity<Map<String, Object>>> getAllTransactions(ServerWebExchange exchange) {
-        log.info("Obteniendo listado de todas las trasnaciones");
-        return transactionOperationsPort.getTransactions()
+    public Mono<ResponseEntity<Flux<AccountBase>>> streamAllAccounts(ServerWebExchange exchange) {
+        log.info("Transmitiendo todas las cuentas bancarias");
+        return Mono.just(ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(accountOperationsPort.findAllAccounts()));
+    }
+
+    /**
+     * GET /accounts/transactions : Obtener una página de transacciones
+     * Sin after ni limit devuelve todas las transacciones, como antes de la paginación (obsoleto).
+     *
+     * @param after ID de la última transacción de la página anterior (optional)
+     * @param limit Número máximo de transacciones de la página (optional, 100 si se envía after)
+     * @param exchange
+     * @return Página del historial de transacciones y cursor de la página siguiente (status code 200)
+     * or Error interno del servidor (status code 500)
+     */
+    @Override
+    public Mono<ResponseEntity<Map<String, Object>>> getAllTransactions(String after, Integer limit, ServerWebExchange exchange) {
+        if (isUnpaged(after, limit)) {
+            log.warn("Listado completo de transacciones sin paginar (obsoleto)");
+            return transactionOperationsPort.getTransactions()
+                    .collectList()
+                    .map(transactions -> {
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("transactions", transactions);
+                        return deprecatedFullList(response);
+                    });
+        }
+        log.info("Obteniendo página de transacciones después de: {}", after);
+        int pageLimit = pageLimit(limit);
+        return transactionOperationsPort.getTransactionsPage(after, pageLimit)
                 .collectList()
                 .map(transactions -> {
                     Map<String, Object> response = new HashMap<>();
                     response.put("transactions", transactions);
+                    response.put("nextCursor", transactions.size() < pageLimit
+                            ? null : transactions.get(transactions.size() - 1).getTransactionId());
                     return ResponseEntity.ok()
                             .body(response);
                 });
     }
 
+    /**
+     * GET /accounts/transactions/stream : Transmitir todas las transacciones
+     *
+     * @param exchange
+     * @return Flujo del historial de transacciones en formato NDJSON (status code 200)
+     * or Error interno del servidor (status code 500)
+     */
+    @Override
+    public Mono<ResponseEntity<Flux<Transaction>>> streamAllTransactions(ServerWebExchange exchange) {
+        log.info("Transmitiendo todas las transacciones");
+        return Mono.just(ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(transactionOperationsPort.getTransactions()));
+    }
+
+    /**
+     * POST /accounts/transactions/batch : Registrar un lote de transacciones
+     *
+     * @param transaction Transacciones en formato NDJSON (required)
+     * @param exchange
+     * @return Flujo con el resultado de cada transacción en formato NDJSON (status code 200)
+     * or Solicitud incorrecta (status code 400)
+     * or Error interno del servidor (status code 500)
+     */
+    @Override
+    public Mono<ResponseEntity<Flux<TransactionBatchResult>>> createTransactionBatch(Flux<Transaction> transaction, ServerWebExchange exchange) {
+        log.info("Iniciando registro de lote de transacciones");
+        return Mono.just(ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(transactionOperationsPort.createTransactionBatch(transaction)));
+    }
+
+    /**
+     * POST /accounts/transactions/payroll : Registrar una transferencia a varias cuentas destino
+     *
+     * @param payrollTransferRequest (required)
+     * @param exchange
+     * @return Transferencia registrada exitosamente (status code 201)
+     * or Solicitud incorrecta (status code 400)
+     * or Error interno del servidor (status code 500)
+     */
+    @Override
+    public Mono<ResponseEntity<PayrollTransferResult>> createPayrollTransfer(Mono<PayrollTransferRequest> payrollTransferRequest, ServerWebExchange exchange) {
+        log.info("Iniciando transferencia a varias cuentas destino");
+        return payrollTransferRequest
+                .flatMap(transactionOperationsPort::createPayrollTransfer)
+                .map(result -> ResponseEntity.status(HttpStatus.CREATED).body(result));
+    }
+
+    private static boolean isUnpaged(String after, Integer limit) {
+        return (after == null || after.isBlank()) && limit == null;
+    }
+
+    /**
+     * Respuesta del listado completo sin paginar, que se mantiene por compatibilidad con los
+     * clientes anteriores a la paginación y se marca como obsoleto.
+     */
+    private static ResponseEntity<Map<String, Object>> deprecatedFullList(Map<String, Object> response) {
+        response.put("nextCursor", null);
+        return ResponseEntity.ok()
+                .header("Deprecation", "true")
+                .body(response);
+    }
+
+    private int pageLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_LIMIT;
+        }
+        return Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+    }
+
     /**
      * GET /accounts/reporting/commissionReport : Obtener el reporte de comisiones
      *
@@ -162,6 +299,37 @@ public class BankAccountController implements AccountsApi {
     }
 
 
+    /**
+     * GET /accounts/reporting/commissionSummary : Resumir las comisiones de varias cuentas
+     *
+     * @param accountIds  IDs de las cuentas bancarias (required)
+     * @param startDate   Fecha de inicio del resumen (required)
+     * @param endDate     Fecha de fin del resumen (required)
+     * @param granularity Agrupación temporal de los totales, TOTAL si no se indica (optional)
+     * @param exchange
+     * @return Resumen de comisiones generado exitosamente (status code 200)
+     * or Solicitud incorrecta (status code 400)
+     * or Error interno del servidor (status code 500)
+     */
+    @Override
+    public Mono<ResponseEntity<Map<String, Object>>> getCommissionSummary(List<String> accountIds, Date startDate,
+                                                                          Date endDate,
+                                                                          CommissionGranularity granularity,
+                                                                          ServerWebExchange exchange) {
+        if (endDate.before(startDate)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return reportingService.generateCommissionSummaries(accountIds, startDate, endDate,
+                        granularity != null ? granularity : CommissionGranularity.TOTAL)
+                .collectList()
+                .map(summaries -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("summaries", summaries);
+                    return ResponseEntity.ok()
+                            .body(response);
+                });
+    }
+
 
     /**
      * GET /accounts/{accountId}/transactions : Obtener transacciones por ID de cuenta
@@ -2,11 +2,14 @@ package nnt_data.bankaccount_microservice.infrastructure.controller;
 
 import lombok.RequiredArgsConstructor;
 import nnt_data.bankaccount_microservice.api.DebitCardApi;
+import nnt_data.bankaccount_microservice.domain.exception.DomainException;
 import nnt_data.bankaccount_microservice.domain.service.DebitCardOperationsService;
 import nnt_data.bankaccount_microservice.domain.service.ReportingService;
+import nnt_data.bankaccount_microservice.model.AssociateAccountsToCardRequest;
 import nnt_data.bankaccount_microservice.model.AssocieteAccountToCardRequest;
 import nnt_data.bankaccount_microservice.model.CreateTransactionFromDebitCardRequest;
 import nnt_data.bankaccount_microservice.model.DebitCard;
+import nnt_data.bankaccount_microservice.model.DissociateAccountFromCardRequest;
 import nnt_data.bankaccount_microservice.model.TransactionReport;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -24,6 +27,7 @@ public class DebitCardController implements DebitCardApi {
 
     private final DebitCardOperationsService debitCardOperationsService;
     private final ReportingService reportingService;
+    private final IdempotentRequestHandler idempotentRequestHandler;
 
     /**
      * PUT /debitCard/associeteAccountToCard : Asociar cuenta a tarjeta de debito
@@ -45,21 +49,78 @@ public class DebitCardController implements DebitCardApi {
                     }
                     return debitCardOperationsService.associateAccountToCard(request.getCardId(), request.getAccountId());
                 })
-                .map(updatedCard -> {
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("debitCard", updatedCard);
-                    response.put("message", "Cuenta asociada exitosamente a la tarjeta de débito");
-                    return ResponseEntity.status(HttpStatus.OK).body(response);
+                .map(updatedCard -> cardUpdated(updatedCard, "Cuenta asociada exitosamente a la tarjeta de débito"))
+                .onErrorResume(e -> cardUpdateFailed(e, "Error al asociar la cuenta a la tarjeta: "));
+    }
+
+    /**
+     * PUT /debitCard/associateAccountsToCard : Asociar varias cuentas a tarjeta de debito
+     *
+     * @param associateAccountsToCardRequest (required)
+     * @param exchange
+     * @return Tarjeta actualizada exitosamente (status code 200)
+     * or Solicitud incorrecta (status code 400)
+     * or Recurso no encontrado (status code 404)
+     * or Error de validación (status code 422)
+     * or Error interno del servidor (status code 500)
+     */
+    @Override
+    public Mono<ResponseEntity<Map<String, Object>>> associateAccountsToCard(Mono<AssociateAccountsToCardRequest> associateAccountsToCardRequest, ServerWebExchange exchange) {
+        return associateAccountsToCardRequest
+                .flatMap(request -> {
+                    if (request.getCardId() == null || request.getAccountIds() == null || request.getAccountIds().isEmpty()) {
+                        return Mono.error(new IllegalArgumentException("El ID de la tarjeta y los IDs de las cuentas son obligatorios"));
+                    }
+                    return debitCardOperationsService.associateAccountsToCard(request.getCardId(), request.getAccountIds());
                 })
-                .onErrorResume(e -> {
-                    Map<String, Object> errorResponse = new HashMap<>();
-                    if (e instanceof IllegalArgumentException) {
-                        errorResponse.put("error", e.getMessage());
-                        return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse));
+                .map(updatedCard -> cardUpdated(updatedCard, "Cuentas asociadas exitosamente a la tarjeta de débito"))
+                .onErrorResume(e -> cardUpdateFailed(e, "Error al asociar las cuentas a la tarjeta: "));
+    }
+
+    /**
+     * PUT /debitCard/dissociateAccountFromCard : Desasociar cuenta de tarjeta de debito
+     *
+     * @param dissociateAccountFromCardRequest (required)
+     * @param exchange
+     * @return Tarjeta actualizada exitosamente (status code 200)
+     * or Solicitud incorrecta (status code 400)
+     * or Recurso no encontrado (status code 404)
+     * or Error interno del servidor (status code 500)
+     */
+    @Override
+    public Mono<ResponseEntity<Map<String, Object>>> dissociateAccountFromCard(Mono<DissociateAccountFromCardRequest> dissociateAccountFromCardRequest, ServerWebExchange exchange) {
+        return dissociateAccountFromCardRequest
+                .flatMap(request -> {
+                    if (request.getCardId() == null || request.getAccountId() == null) {
+                        return Mono.error(new IllegalArgumentException("El ID de la tarjeta y el ID de la cuenta son obligatorios"));
                     }
-                    errorResponse.put("error", "Error al asociar la cuenta a la tarjeta: " + e.getMessage());
-                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse));
-                });
+                    return debitCardOperationsService.dissociateAccountFromCard(request.getCardId(), request.getAccountId());
+                })
+                .map(updatedCard -> cardUpdated(updatedCard, "Cuenta desasociada exitosamente de la tarjeta de débito"))
+                .onErrorResume(e -> cardUpdateFailed(e, "Error al desasociar la cuenta de la tarjeta: "));
+    }
+
+    private ResponseEntity<Map<String, Object>> cardUpdated(DebitCard updatedCard, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("debitCard", updatedCard);
+        response.put("message", message);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> cardUpdateFailed(Throwable e, String unexpectedPrefix) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        if (e instanceof DomainException domainException) {
+            errorResponse.put("error", e.getMessage());
+            errorResponse.put("code", domainException.getErrorCode().name());
+            return Mono.just(ResponseEntity.status(GlobalExceptionHandler.statusOf(domainException.getErrorCode()))
+                    .body(errorResponse));
+        }
+        if (e instanceof IllegalArgumentException) {
+            errorResponse.put("error", e.getMessage());
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse));
+        }
+        errorResponse.put("error", unexpectedPrefix + e.getMessage());
+        return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse));
     }
 
     /**
@@ -84,6 +145,12 @@ public class DebitCardController implements DebitCardApi {
                 })
                 .onErrorResume(e -> {
                     Map<String, Object> errorResponse = new HashMap<>();
+                    if (e instanceof DomainException domainException) {
+                        errorResponse.put("error", e.getMessage());
+                        errorResponse.put("code", domainException.getErrorCode().name());
+                        return Mono.just(ResponseEntity.status(GlobalExceptionHandler.statusOf(domainException.getErrorCode()))
+                                .body(errorResponse));
+                    }
                     if (e instanceof IllegalArgumentException) {
                         errorResponse.put("error", e.getMessage());
                         return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse));
@@ -95,6 +162,7 @@ public class DebitCardController implements DebitCardApi {
 
     /**
      * POST /debitCard/createTransaction : Crear transacción desde cuenta de débito
+     * Con la cabecera Idempotency-Key las repeticiones devuelven la respuesta de la primera solicitud.
      *
      * @param createTransactionFromDebitCardRequest (required)
      * @param exchange
@@ -107,7 +175,12 @@ public class DebitCardController implements DebitCardApi {
     @Override
     public Mono<ResponseEntity<Map<String, Object>>> createTransactionFromDebitCard(Mono<CreateTransactionFromDebitCardRequest> createTransactionFromDebitCardRequest, ServerWebExchange exchange) {
         return createTransactionFromDebitCardRequest
-                .flatMap(request -> {
+                .flatMap(request -> idempotentRequestHandler.execute("debitCardTransactions", exchange, request,
+                        () -> processDebitCardTransaction(request)));
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> processDebitCardTransaction(CreateTransactionFromDebitCardRequest request) {
+        return Mono.defer(() -> {
                     if (request.getCardNumber() == null || request.getTransaction() == null) {
                         return Mono.error(new IllegalArgumentException("El número de tarjeta y los datos de la transacción son obligatorios"));
                     }
@@ -122,6 +195,12 @@ public class DebitCardController implements DebitCardApi {
                 })
                 .onErrorResume(e -> {
                     Map<String, Object> errorResponse = new HashMap<>();
+                    if (e instanceof DomainException domainException) {
+                        errorResponse.put("error", e.getMessage());
+                        errorResponse.put("code", domainException.getErrorCode().name());
+                        return Mono.just(ResponseEntity.status(GlobalExceptionHandler.statusOf(domainException.getErrorCode()))
+                                .body(errorResponse));
+                    }
                     if (e instanceof IllegalArgumentException) {
                         errorResponse.put("error", e.getMessage());
                         return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse));
@@ -138,7 +217,8 @@ public class DebitCardController implements DebitCardApi {
      * @param cardNumber Número de la tarjeta de débito (required)
      * @param exchange
      * @return Reporte de transacciones generado exitosamente (status code 200)
-     * or Número de tarjeta inválido o no encontrado (status code 400)
+     * or Número de tarjeta inválido (status code 400)
+     * or Tarjeta no encontrada (status code 404)
      * or Error interno del servidor (status code 500)
      */
     @Override
@@ -150,7 +230,7 @@ public class DebitCardController implements DebitCardApi {
                 .onErrorResume(IllegalArgumentException.class, e ->
                         Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
                                 .build()))
-                .onErrorResume(e ->
+                .onErrorResume(e -> !(e instanceof DomainException), e ->
                         Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                                 .build()));
     }
@@ -4,25 +4,44 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import nnt_data.bankaccount_microservice.domain.exception.AccountConflictException;
+import nnt_data.bankaccount_microservice.domain.exception.DomainException;
+import nnt_data.bankaccount_microservice.domain.exception.ErrorCode;
+import nnt_data.bankaccount_microservice.domain.exception.ServiceUnavailableException;
 import nnt_data.bankaccount_microservice.domain.service.DebitCardOperationsService;
 import nnt_data.bankaccount_microservice.domain.service.KafkaService;
+import nnt_data.bankaccount_microservice.infrastructure.kafka.KafkaRequestConsumer;
 import nnt_data.bankaccount_microservice.infrastructure.kafka.MessageWrapper;
 import nnt_data.bankaccount_microservice.model.DebitCardValidationRequest;
-import nnt_data.bankaccount_microservice.model.DebitCardValidationResponse;
-import nnt_data.bankaccount_microservice.model.Transaction;
 import nnt_data.bankaccount_microservice.model.YankiTransactionRequest;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class DebitCardKafkaListener {
+    private static final String TRANSACTION_REQUESTS_SCOPE = "kafkaTransactionRequests";
+    private static final TypeReference<Map<String, Object>> REPLY_TYPE = new TypeReference<>() {
+    };
+
     private final KafkaService kafkaService;
     private final DebitCardOperationsService debitCardOperationsService;
     private final ObjectMapper objectMapper;
+    private final KafkaRequestConsumer kafkaRequestConsumer;
+    private final IdempotentRequestHandler idempotentRequestHandler;
+
+    @Value("${kafka.topics.debit-card-validation-request}")
+    private String validationRequestTopic;
+
+    @Value("${kafka.topics.transaction-requests}")
+    private String transactionRequestsTopic;
 
     @Value("${kafka.topics.transaction-responses}")
     private String transactionResponsesTopic;
@@ -30,77 +49,87 @@ public class DebitCardKafkaListener {
     @Value("${kafka.topics.debit-card-validation-response}")
     private String validationResponseTopic;
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        kafkaRequestConsumer.consume(validationRequestTopic, this::handleDebitCardValidation);
+        kafkaRequestConsumer.consume(transactionRequestsTopic, this::handleTransactionRequest);
+    }
+
+    /**
+     * Valida la tarjeta solicitada y publica la respuesta. Termina cuando la respuesta fue enviada;
+     * los mensajes mal formados se descartan.
+     */
+    public Mono<Void> handleDebitCardValidation(String message) {
+        return Mono.fromCallable(() -> objectMapper.readValue(
+                        message,
+                        new TypeReference<MessageWrapper<DebitCardValidationRequest>>() {}
+                ))
+                .doOnError(e -> log.error("Error procesando validación de tarjeta: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .flatMap(wrapper -> debitCardOperationsService.existDebitCard(wrapper.getPayload())
+                        .flatMap(response -> kafkaService.send(validationResponseTopic,
+                                new MessageWrapper<>(response, wrapper.getCorrelationId()))));
+    }
 
-    @KafkaListener(
-            topics = "${kafka.topics.debit-card-validation-request}",
-            groupId = "${spring.kafka.consumer.group-id}",
-            containerFactory = "kafkaListenerContainerFactory"
-    )
-    public void handleDebitCardValidation(ConsumerRecord<String,String> record) {
-        try {
-            MessageWrapper<DebitCardValidationRequest> wrapper = objectMapper.readValue(
-                    record.value(),
-                    new TypeReference<MessageWrapper<DebitCardValidationRequest>>() {}
-            );
+    /**
+     * Registra la transacción Yanki entre tarjetas y publica la transacción o, si fue rechazada, el
+     * motivo con su código de error. Termina cuando la respuesta fue enviada; los mensajes mal
+     * formados se descartan. Kafka puede entregar de nuevo una solicitud ya procesada, por ejemplo
+     * tras un reinicio antes de confirmar su offset: la respuesta se guarda por correlationId en el
+     * mismo registro de idempotencia que usa la API y las repeticiones la vuelven a publicar sin
+     * registrar otra vez la transacción.
+     * Solo los rechazos de negocio se guardan como respuesta. Un error transitorio (servicio no
+     * disponible, conflicto de concurrencia o cualquier fallo que no sea de dominio) hace fallar el
+     * manejador: el registro de idempotencia se libera y KafkaRequestConsumer reintenta la solicitud.
+     */
+    public Mono<Void> handleTransactionRequest(String message) {
+        return Mono.fromCallable(() -> objectMapper.readValue(
+                        message,
+                        new TypeReference<MessageWrapper<YankiTransactionRequest>>() {}
+                ))
+                .doOnError(e -> log.error("Error procesando solicitud de transacción: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .flatMap(wrapper -> {
+                    YankiTransactionRequest request = wrapper.getPayload();
+                    String correlationId = wrapper.getCorrelationId();
 
-            DebitCardValidationRequest request = wrapper.getPayload();
-            String correlationId = wrapper.getCorrelationId();
+                    return idempotentRequestHandler.execute(TRANSACTION_REQUESTS_SCOPE, correlationId, request,
+                                    () -> processTransactionRequest(request, correlationId)
+                                            .map(reply -> ResponseEntity.ok(
+                                                    objectMapper.convertValue(reply, REPLY_TYPE))))
+                            .flatMap(this::toReply)
+                            .onErrorResume(IllegalArgumentException.class, error -> Mono.just(new MessageWrapper<>(
+                                    error.getMessage(), correlationId, ErrorCode.of(error).name())))
+                            .flatMap(reply -> kafkaService.send(transactionResponsesTopic, reply));
+                });
+    }
 
-            debitCardOperationsService.existDebitCard(request)
-                    .doOnNext(response -> {
-                        try {
-                            MessageWrapper<DebitCardValidationResponse> responseWrapper =
-                                    new MessageWrapper<>(response, correlationId);
-                            kafkaService.send(validationResponseTopic, responseWrapper)
-                                    .subscribe();
-                        } catch (Exception e) {
-                            log.error("Error enviando respuesta de validación: {}", e.getMessage());
-                        }
-                    })
-                    .subscribe();
-        } catch (Exception e) {
-            log.error("Error procesando validación de tarjeta: {}", e.getMessage());
-        }
+    private Mono<MessageWrapper<?>> processTransactionRequest(YankiTransactionRequest request, String correlationId) {
+        return debitCardOperationsService.processDebitCardTransactionFromId(
+                        request.getDebitCardIdOrigin(),
+                        request.getDebitCardIdDestiny(),
+                        request.getTransaction()
+                )
+                .<MessageWrapper<?>>map(response -> new MessageWrapper<>(response, correlationId))
+                .onErrorResume(DebitCardKafkaListener::isBusinessRejection, error -> Mono.just(new MessageWrapper<>(
+                        error.getMessage(), correlationId, ErrorCode.of(error).name())));
     }
 
-    @KafkaListener(
-            topics = "${kafka.topics.transaction-requests}",
-            groupId = "${spring.kafka.consumer.group-id}",
-            containerFactory = "kafkaListenerContainerFactory"
-    )
-    public void handleTransactionRequest(ConsumerRecord<String,String> record) {
-        try {
-            MessageWrapper<YankiTransactionRequest> wrapper = objectMapper.readValue(
-                    record.value(),
-                    new TypeReference<MessageWrapper<YankiTransactionRequest>>() {}
-            );
-            YankiTransactionRequest request = wrapper.getPayload();
-            String correlationId = wrapper.getCorrelationId();
+    private static boolean isBusinessRejection(Throwable error) {
+        return error instanceof DomainException
+                && !(error instanceof ServiceUnavailableException)
+                && !(error instanceof AccountConflictException);
+    }
 
-            debitCardOperationsService.processDebitCardTransactionFromId(
-                            request.getDebitCardIdOrigin(),
-                            request.getDebitCardIdDestiny(),
-                            request.getTransaction()
-                    )
-                    .doOnNext(response -> {
-                        try {
-                            MessageWrapper<Transaction> responseWrapper =
-                                    new MessageWrapper<>(response, correlationId);
-                            kafkaService.send(transactionResponsesTopic, responseWrapper)
-                                    .subscribe();
-                        } catch (Exception e) {
-                            log.error("Error enviando respuesta de transacción: {}", e.getMessage());
-                        }
-                    })
-                    .doOnError(error -> {
-                        MessageWrapper<String> errorWrapper =
-                                new MessageWrapper<>(error.getMessage(), correlationId);
-                        kafkaService.send(transactionResponsesTopic, errorWrapper)
-                                .subscribe();
-                    })
-                    .subscribe();
-        } catch (Exception e) {
-            log.error("Error procesando solicitud de transacción: {}", e.getMessage());
+    /**
+     * Respuesta a publicar, recién generada o guardada. Si otra instancia aún procesa la misma
+     * solicitud el manejador falla, el offset no se confirma y el registro se reintenta.
+     */
+    private Mono<MessageWrapper<?>> toReply(ResponseEntity<Map<String, Object>> response) {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return Mono.error(new IllegalStateException(
+                    "Solicitud en proceso en otra instancia: " + response.getBody()));
         }
+        return Mono.<MessageWrapper<?>>just(objectMapper.convertValue(response.getBody(), MessageWrapper.class));
     }
-}
\ No newline at end of file
+}
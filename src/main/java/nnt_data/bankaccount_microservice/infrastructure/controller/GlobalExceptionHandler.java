@@ -1,4 +1,6 @@
 package nnt_data.bankaccount_microservice.infrastructure.controller;
+import nnt_data.bankaccount_microservice.domain.exception.DomainException;
+import nnt_data.bankaccount_microservice.domain.exception.ErrorCode;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -38,6 +40,36 @@ public class GlobalExceptionHandler {
         return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body));
     }
 
+    /**
+     * Errores de negocio: la cuenta o tarjeta no existe (404) o la operación incumple una regla de
+     * la cuenta, como saldo o límite de movimientos (422). Una edición que choca con otra edición
+     * de la misma cuenta responde 409. Si el servicio aún no puede atenderla,
+     * como durante la migración de importes, se responde 503. El cuerpo incluye el código del error.
+     */
+    @ExceptionHandler(DomainException.class)
+    public Mono<ResponseEntity<Object>> handleDomainException(DomainException ex) {
+        HttpStatus status = statusOf(ex.getErrorCode());
+        Map<String, Object> body = new HashMap<>();
+        body.put(TIMESTAMP, LocalDateTime.now().toString());
+        body.put("status", status.value());
+        body.put("code", ex.getErrorCode().name());
+        body.put("error", status.getReasonPhrase());
+        body.put("message", ex.getMessage());
+
+        return Mono.just(ResponseEntity.status(status).body(body));
+    }
+
+    static HttpStatus statusOf(ErrorCode errorCode) {
+        return switch (errorCode) {
+            case ACCOUNT_NOT_FOUND, CARD_NOT_FOUND -> HttpStatus.NOT_FOUND;
+            case INSUFFICIENT_FUNDS, LIMIT_EXCEEDED, OPERATION_NOT_ALLOWED -> HttpStatus.UNPROCESSABLE_ENTITY;
+            case CONFLICT -> HttpStatus.CONFLICT;
+            case INVALID_REQUEST -> HttpStatus.BAD_REQUEST;
+            case SERVICE_UNAVAILABLE -> HttpStatus.SERVICE_UNAVAILABLE;
+            case INTERNAL_ERROR -> HttpStatus.INTERNAL_SERVER_ERROR;
+        };
+    }
+
     @ExceptionHandler(ServerWebInputException.class)
     public Mono<ResponseEntity<Map<String, Object>>> handleServerWebInputException(ServerWebInputException ex) {
         Map<String, Object> errorResponse = new HashMap<>();
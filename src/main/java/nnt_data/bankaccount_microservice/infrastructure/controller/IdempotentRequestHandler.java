@@ -0,0 +1,242 @@
+package nnt_data.bankaccount_microservice.infrastructure.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.IdempotencyRecordEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * IdempotentRequestHandler evita que los reintentos de una misma solicitud registren dos veces una
+ * transacción. La primera solicitud con una Idempotency-Key deja una marca IN_FLIGHT en Mongo,
+ * ejecuta la operación y guarda la respuesta; las repeticiones devuelven esa respuesta sin volver a
+ * leer cuentas. Los duplicados concurrentes de la misma instancia comparten la ejecución en curso y
+ * los de otras instancias esperan a que la marca se complete. La marca se toma por un tiempo
+ * acotado (lease): si la instancia que la tomó cae antes de completarla, un duplicado posterior
+ * puede tomarla cuando el lease vence en lugar de esperar al TTL de la clave.
+ */
+@Component
+public class IdempotentRequestHandler {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final Logger log = LoggerFactory.getLogger(IdempotentRequestHandler.class);
+    private static final TypeReference<Map<String, Object>> BODY_TYPE = new TypeReference<>() {
+    };
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Duration waitTimeout;
+    private final Duration pollInterval;
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotentRequestHandler(IdempotencyRecordRepository idempotencyRecordRepository,
+                                    ObjectMapper objectMapper,
+                                    @Value("${bankaccount.idempotency.ttl-hours:24}") long ttlHours,
+                                    @Value("${bankaccount.idempotency.lease-ms:60000}") long leaseMillis,
+                                    @Value("${bankaccount.idempotency.wait-timeout-ms:10000}") long waitTimeoutMillis,
+                                    @Value("${bankaccount.idempotency.poll-interval-ms:100}") long pollIntervalMillis) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.waitTimeout = Duration.ofMillis(waitTimeoutMillis);
+        this.pollInterval = Duration.ofMillis(pollIntervalMillis);
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por Idempotency-Key. Sin cabecera la operación se ejecuta
+     * siempre, como hasta ahora.
+     *
+     * @param scope Ámbito de la clave (endpoint), para que la misma clave no choque entre endpoints
+     * @param exchange Intercambio HTTP del que se lee la cabecera Idempotency-Key
+     * @param request Cuerpo de la solicitud; su JSON se usa para detectar claves reutilizadas con otro
+     *                contenido
+     * @param action Operación a ejecutar
+     * @return Mono con la respuesta de la operación o la respuesta guardada
+     */
+    public Mono<ResponseEntity<Map<String, Object>>> execute(String scope, ServerWebExchange exchange, Object request,
+                                                             Supplier<Mono<ResponseEntity<Map<String, Object>>>> action) {
+        return execute(scope, exchange.getRequest().getHeaders().getFirst(IDEMPOTENCY_KEY_HEADER), request, action);
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por clave para solicitudes que no llegan por HTTP, como las
+     * de Kafka identificadas por su correlationId. Sin clave la operación se ejecuta siempre.
+     *
+     * @param scope Ámbito de la clave, para que la misma clave no choque entre tópicos o endpoints
+     * @param key Clave de idempotencia, o null
+     * @param request Cuerpo de la solicitud; su JSON se usa para detectar claves reutilizadas con otro
+     *                contenido
+     * @param action Operación a ejecutar
+     * @return Mono con la respuesta de la operación o la respuesta guardada
+     */
+    public Mono<ResponseEntity<Map<String, Object>>> execute(String scope, String key, Object request,
+                                                             Supplier<Mono<ResponseEntity<Map<String, Object>>>> action) {
+        if (key == null || key.isBlank()) {
+            return Mono.defer(action);
+        }
+        return Mono.fromCallable(() -> fingerprintOf(request))
+                .flatMap(fingerprint -> execute(IdempotencyRecordEntity.idOf(scope, key), fingerprint, action));
+    }
+
+    Mono<ResponseEntity<Map<String, Object>>> execute(String id, String fingerprint,
+                                                      Supplier<Mono<ResponseEntity<Map<String, Object>>>> action) {
+        return Mono.defer(() -> {
+            InFlight[] created = new InFlight[1];
+            InFlight current = inFlight.computeIfAbsent(id, key -> created[0] = new InFlight(fingerprint,
+                    claimOrAwait(id, fingerprint, action, System.nanoTime() + waitTimeout.toNanos())
+                            .doFinally(signal -> inFlight.remove(key, created[0]))
+                            .cache()));
+            if (!current.fingerprint().equals(fingerprint)) {
+                return Mono.error(new IllegalArgumentException(reusedKeyMessage(id)));
+            }
+            return current.response();
+        });
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> claimOrAwait(String id, String fingerprint,
+                                                                   Supplier<Mono<ResponseEntity<Map<String, Object>>>> action,
+                                                                   long deadline) {
+        Date now = new Date();
+        IdempotencyRecordEntity marker = IdempotencyRecordEntity.builder()
+                .id(id)
+                .status(IdempotencyRecordEntity.Status.IN_FLIGHT)
+                .requestHash(fingerprint)
+                .createdAt(now)
+                .leaseUntil(new Date(now.getTime() + lease.toMillis()))
+                .expiresAt(new Date(now.getTime() + ttl.toMillis()))
+                .build();
+
+        return idempotencyRecordRepository.insert(marker)
+                .thenReturn(true)
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.just(false))
+                .flatMap(claimed -> claimed
+                        ? run(marker, action)
+                        : awaitStored(id, fingerprint, action, deadline));
+    }
+
+    /**
+     * Ejecuta la operación con la marca ya tomada. Si la operación falla, se cancela o responde con
+     * error de servidor se libera la marca para que el cliente pueda reintentar; si falla el
+     * guardado de la respuesta la marca se conserva hasta que venza su lease.
+     */
+    private Mono<ResponseEntity<Map<String, Object>>> run(IdempotencyRecordEntity marker,
+                                                          Supplier<Mono<ResponseEntity<Map<String, Object>>>> action) {
+        return Mono.defer(action)
+                .onErrorResume(error -> release(marker).then(Mono.error(error)))
+                .flatMap(response -> response.getStatusCode().is5xxServerError()
+                        ? release(marker).thenReturn(response)
+                        : store(marker, response).thenReturn(response))
+                .doFinally(signal -> {
+                    if (signal == SignalType.CANCEL) {
+                        release(marker).subscribe();
+                    }
+                });
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> awaitStored(String id, String fingerprint,
+                                                                  Supplier<Mono<ResponseEntity<Map<String, Object>>>> action,
+                                                                  long deadline) {
+        return idempotencyRecordRepository.findById(id)
+                .flatMap(record -> {
+                    if (!fingerprint.equals(record.getRequestHash())) {
+                        return Mono.error(new IllegalArgumentException(reusedKeyMessage(id)));
+                    }
+                    if (record.getStatus() == IdempotencyRecordEntity.Status.COMPLETED) {
+                        return replay(record);
+                    }
+                    if (leaseExpired(record)) {
+                        log.warn("La marca de la clave {} venció sin completarse, se toma de nuevo", id);
+                        return idempotencyRecordRepository.deleteByIdAndLeaseUntil(id, record.getLeaseUntil())
+                                .then(Mono.defer(() -> claimOrAwait(id, fingerprint, action, deadline)));
+                    }
+                    if (System.nanoTime() >= deadline) {
+                        return Mono.just(stillInProgress(id));
+                    }
+                    return Mono.delay(pollInterval)
+                            .then(Mono.defer(() -> awaitStored(id, fingerprint, action, deadline)));
+                })
+                .switchIfEmpty(Mono.defer(() -> claimOrAwait(id, fingerprint, action, deadline)));
+    }
+
+    private Mono<Void> store(IdempotencyRecordEntity marker, ResponseEntity<Map<String, Object>> response) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(response.getBody()))
+                .flatMap(body -> {
+                    marker.setStatus(IdempotencyRecordEntity.Status.COMPLETED);
+                    marker.setHttpStatus(response.getStatusCode().value());
+                    marker.setResponseBody(body);
+                    return idempotencyRecordRepository.save(marker);
+                })
+                .doOnError(error -> log.error("No se pudo guardar la respuesta de la clave {}: {}",
+                        marker.getId(), error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * Libera la marca tomada por esta ejecución. Si su lease venció y otra instancia ya la tomó, la
+     * marca nueva no se toca.
+     */
+    private Mono<Void> release(IdempotencyRecordEntity marker) {
+        return idempotencyRecordRepository.deleteByIdAndLeaseUntil(marker.getId(), marker.getLeaseUntil())
+                .doOnError(error -> log.error("No se pudo liberar la clave {}: {}", marker.getId(), error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private static boolean leaseExpired(IdempotencyRecordEntity record) {
+        return record.getLeaseUntil() != null && record.getLeaseUntil().before(new Date());
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> replay(IdempotencyRecordEntity record) {
+        return Mono.fromCallable(() -> objectMapper.readValue(record.getResponseBody(), BODY_TYPE))
+                .map(body -> ResponseEntity.status(record.getHttpStatus())
+                        .header(REPLAYED_HEADER, "true")
+                        .body(body));
+    }
+
+    private ResponseEntity<Map<String, Object>> stillInProgress(String id) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "La solicitud con la clave " + id + " sigue en proceso, reintente más tarde");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    private static String reusedKeyMessage(String id) {
+        return "La clave de idempotencia " + id + " ya se usó con una solicitud distinta";
+    }
+
+    /**
+     * Huella del cuerpo serializado como JSON, con las claves de los mapas ordenadas: no depende de
+     * toString, que puede omitir campos o variar entre versiones del modelo.
+     */
+    private String fingerprintOf(Object request) throws JsonProcessingException {
+        return DigestUtils.md5DigestAsHex(objectMapper.writer()
+                .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                .writeValueAsBytes(request));
+    }
+
+    private record InFlight(String fingerprint, Mono<ResponseEntity<Map<String, Object>>> response) {
+    }
+}
@@ -0,0 +1,101 @@
+package nnt_data.bankaccount_microservice.infrastructure.kafka;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * KafkaRequestConsumer consume los tópicos de solicitudes con reactor-kafka. Los registros se
+ * agrupan por partición y cada partición se procesa en orden, un registro a la vez, así que como
+ * mucho hay un registro en curso por partición asignada y el consumidor se pausa cuando el
+ * procesamiento no da abasto. El offset de un registro se marca solo cuando su manejador termina,
+ * es decir, después de publicar la respuesta, y se confirma periódicamente: tras un reinicio se
+ * vuelven a entregar los registros no respondidos en lugar de perderse. Si el manejador de un
+ * registro falla, ese registro se reintenta en su partición, sin detener las demás.
+ */
+@Component
+@Slf4j
+public class KafkaRequestConsumer {
+
+    private final ReceiverOptions<String, String> receiverOptions;
+    private final int maxPartitions;
+    private final int maxBufferedRecords;
+    private final Duration restartBackoff;
+    private final long recordRetries;
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    public KafkaRequestConsumer(ReceiverOptions<String, String> receiverOptions,
+                                @Value("${bankaccount.kafka.max-partitions:256}") int maxPartitions,
+                                @Value("${bankaccount.kafka.max-buffered-records:256}") int maxBufferedRecords,
+                                @Value("${bankaccount.kafka.restart-backoff-ms:1000}") long restartBackoffMillis,
+                                @Value("${bankaccount.kafka.record-retries:10}") long recordRetries) {
+        this.receiverOptions = receiverOptions;
+        this.maxPartitions = maxPartitions;
+        this.maxBufferedRecords = maxBufferedRecords;
+        this.restartBackoff = Duration.ofMillis(restartBackoffMillis);
+        this.recordRetries = recordRetries;
+    }
+
+    /**
+     * Empieza a consumir el tópico. Los manejadores deben responder sus propios errores de negocio
+     * y solo fallar cuando no pudieron publicar la respuesta; ese registro se reintenta con espera
+     * en su partición. Si el consumidor falla o un registro agota sus reintentos se vuelve a
+     * suscribir desde el último offset confirmado.
+     *
+     * @param topic Tópico de solicitudes
+     * @param handler Procesa el valor del registro y publica la respuesta; el Mono termina cuando
+     *                la respuesta fue enviada
+     */
+    public void consume(String topic, Function<String, Mono<Void>> handler) {
+        Flux<ReceiverRecord<String, String>> records = Flux.defer(() -> KafkaReceiver
+                .create(receiverOptions.subscription(List.of(topic)))
+                .receive());
+        subscriptions.add(process(records, handler)
+                .doOnError(error -> log.error("Consumidor del tópico {} detenido, se reinicia: {}",
+                        topic, error.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, restartBackoff).maxBackoff(restartBackoff.multipliedBy(30)))
+                .subscribe());
+        log.info("Consumiendo el tópico {}", topic);
+    }
+
+    /**
+     * Procesa los registros en orden dentro de cada partición y con particiones en paralelo. El
+     * límite de particiones debe ser al menos el número de particiones del tópico. Un registro que
+     * falla se reintenta antes de pasar al siguiente de su partición, así se conserva el orden y
+     * las demás particiones siguen avanzando.
+     */
+    Flux<Void> process(Flux<ReceiverRecord<String, String>> records, Function<String, Mono<Void>> handler) {
+        return records
+                .groupBy(record -> record.receiverOffset().topicPartition(), maxBufferedRecords)
+                .flatMap(partition -> partition.concatMap(record -> Mono.defer(() -> handler.apply(record.value()))
+                        .retryWhen(recordRetry(record))
+                        .then(Mono.<Void>fromRunnable(() -> record.receiverOffset().acknowledge()))), maxPartitions);
+    }
+
+    private Retry recordRetry(ReceiverRecord<String, String> record) {
+        return Retry.backoff(recordRetries, restartBackoff)
+                .maxBackoff(restartBackoff.multipliedBy(30))
+                .doBeforeRetry(signal -> log.warn("Registro {}@{} fallido, se reintenta: {}",
+                        record.receiverOffset().topicPartition(), record.receiverOffset().offset(),
+                        signal.failure().getMessage()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscriptions.dispose();
+    }
+}
@@ -10,4 +10,12 @@ import lombok.NoArgsConstructor;
 public class MessageWrapper<T> {
     private T payload;
     private String correlationId;
+    /**
+     * Código del error (ErrorCode) cuando la respuesta es un rechazo; null en las respuestas correctas.
+     */
+    private String errorCode;
+
+    public MessageWrapper(T payload, String correlationId) {
+        this(payload, correlationId, null);
+    }
 }
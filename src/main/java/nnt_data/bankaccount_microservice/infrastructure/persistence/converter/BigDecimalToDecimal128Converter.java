@@ -0,0 +1,20 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.converter;
+
+import org.bson.types.Decimal128;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.math.BigDecimal;
+
+/**
+ * Guarda los importes BigDecimal como Decimal128 en lugar de cadenas, para que MongoDB pueda
+ * compararlos, sumarlos e incrementarlos en el servidor.
+ */
+@WritingConverter
+public class BigDecimalToDecimal128Converter implements Converter<BigDecimal, Decimal128> {
+
+    @Override
+    public Decimal128 convert(BigDecimal source) {
+        return new Decimal128(source);
+    }
+}
@@ -0,0 +1,19 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.converter;
+
+import org.bson.types.Decimal128;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+import java.math.BigDecimal;
+
+/**
+ * Lee los importes Decimal128 como BigDecimal.
+ */
+@ReadingConverter
+public class Decimal128ToBigDecimalConverter implements Converter<Decimal128, BigDecimal> {
+
+    @Override
+    public BigDecimal convert(Decimal128 source) {
+        return source.bigDecimalValue();
+    }
+}
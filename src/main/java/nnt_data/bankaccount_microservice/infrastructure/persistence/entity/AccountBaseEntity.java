@@ -6,6 +6,7 @@ import nnt_data.bankaccount_microservice.model.CustomerSubtype;
 import nnt_data.bankaccount_microservice.model.CustomerType;
 import nnt_data.bankaccount_microservice.model.Person;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
@@ -35,4 +36,8 @@ public class AccountBaseEntity {
     private Integer transactionMovements;
     private String allowedDayOfMonth;
     private Double minimumDailyAverage;
+    private Long balanceRevision;
+    private Long profileRevision;
+    @Version
+    private Long version;
 }
@@ -0,0 +1,31 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.YearMonth;
+
+/**
+ * Contador materializado de movimientos de una cuenta en un mes. El ID combina la cuenta y el
+ * periodo, de modo que la validación del límite mensual es una lectura puntual por clave.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "account_movement_counters")
+public class AccountMovementCounterEntity {
+    @Id
+    private String id;
+    private String accountId;
+    private String period;
+    private Long movements;
+
+    public static String idOf(String accountId, YearMonth period) {
+        return accountId + ":" + period;
+    }
+}
@@ -0,0 +1,33 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Total de comisiones de una cuenta en un día, mantenido con $inc al registrar cada comisión.
+ * El día se guarda como yyyy-MM-dd, así que un rango de días es un rango de texto sobre el índice.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "commission_daily_rollups")
+public class CommissionDailyRollupEntity {
+    @Id
+    private String id;
+    private String accountId;
+    private String day;
+    private BigDecimal totalCommission;
+    private Long transactionCount;
+
+    public static String idOf(String accountId, LocalDate day) {
+        return accountId + ":" + day;
+    }
+}
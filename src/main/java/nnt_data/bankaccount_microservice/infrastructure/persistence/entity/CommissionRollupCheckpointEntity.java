@@ -0,0 +1,27 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Punto de control del recálculo de los totales diarios de comisiones. Guarda el día del primer
+ * recálculo y el día hasta el que ya se recalculó (yyyy-MM-dd), para no repetirlo en cada arranque.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "commission_rollup_checkpoints")
+public class CommissionRollupCheckpointEntity {
+    @Id
+    private String id;
+    private String firstDay;
+    private String rebuiltBefore;
+    private Date updatedAt;
+}
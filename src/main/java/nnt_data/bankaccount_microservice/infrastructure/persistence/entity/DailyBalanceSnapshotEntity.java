@@ -0,0 +1,36 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * Saldo de cierre de una cuenta en un día. El ID combina la cuenta y el día, de modo que cada
+ * movimiento sobrescribe el cierre del día y los reportes leen como máximo un documento por día.
+ * La revisión es la de la cuenta cuando se escribió el saldo, para que una escritura atrasada
+ * no sustituya un saldo más reciente.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "daily_balance_snapshots")
+public class DailyBalanceSnapshotEntity {
+    @Id
+    private String id;
+    private String accountId;
+    private Date day;
+    private BigDecimal closingBalance;
+    private Long revision;
+
+    public static String idOf(String accountId, LocalDate day) {
+        return accountId + ":" + day;
+    }
+}
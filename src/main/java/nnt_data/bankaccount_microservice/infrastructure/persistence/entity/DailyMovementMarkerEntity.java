@@ -0,0 +1,33 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * Marca que registra que una cuenta ya realizó su movimiento del día. El ID combina la cuenta
+ * y la fecha, por lo que la unicidad de _id garantiza un solo movimiento diario aun con
+ * solicitudes concurrentes.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "daily_movement_markers")
+public class DailyMovementMarkerEntity {
+    @Id
+    private String id;
+    private String accountId;
+    private String day;
+    private Date createdAt;
+
+    public static String idOf(String accountId, LocalDate day) {
+        return accountId + ":" + day;
+    }
+}
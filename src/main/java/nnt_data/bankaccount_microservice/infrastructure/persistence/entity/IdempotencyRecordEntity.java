@@ -0,0 +1,43 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Registro de una solicitud con Idempotency-Key. Se inserta en estado IN_FLIGHT antes de ejecutar
+ * la operación y pasa a COMPLETED con la respuesta serializada; la unicidad de _id impide que dos
+ * instancias ejecuten la misma clave. Una marca IN_FLIGHT cuyo leaseUntil ya pasó pertenece a una
+ * instancia que cayó a mitad de la operación y otra instancia puede tomarla. El índice TTL sobre
+ * expiresAt elimina los registros vencidos.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecordEntity {
+    @Id
+    private String id;
+    private Status status;
+    private String requestHash;
+    private Integer httpStatus;
+    private String responseBody;
+    private Date createdAt;
+    private Date leaseUntil;
+    private Date expiresAt;
+
+    public static String idOf(String scope, String key) {
+        return scope + ":" + key;
+    }
+
+    public enum Status {
+        IN_FLIGHT,
+        COMPLETED
+    }
+}
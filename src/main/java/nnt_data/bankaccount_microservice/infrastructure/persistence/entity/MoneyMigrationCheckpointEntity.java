@@ -0,0 +1,27 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Punto de control de la migración de importes. El ID es la colección y el campo migrado, de modo
+ * que un campo terminado no se vuelve a recorrer en los siguientes arranques.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "money_migration_checkpoints")
+public class MoneyMigrationCheckpointEntity {
+    @Id
+    private String id;
+    private Boolean completed;
+    private Long migrated;
+    private Date updatedAt;
+}
@@ -0,0 +1,27 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Punto de control del relleno de saldos diarios. Guarda la última cuenta procesada para que
+ * el proceso continúe desde ahí tras un reinicio.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "daily_balance_snapshot_checkpoints")
+public class SnapshotBackfillCheckpointEntity {
+    @Id
+    private String id;
+    private String lastAccountId;
+    private Boolean completed;
+    private Date updatedAt;
+}
@@ -26,4 +26,5 @@ public class TransactionEntity {
     private String destinyAccountId;
     private Transaction.TransactionModeEnum transactionMode;
     private Boolean isByCreditCard;
+    private String batchId;
 }
@@ -0,0 +1,16 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.index;
+
+import org.springframework.data.mongodb.core.index.Index;
+
+/**
+ * Índice declarado para la colección asociada a una entidad.
+ *
+ * @param entityClass Entidad cuya colección debe tener el índice
+ * @param index Definición del índice; debe tener nombre para poder reconciliarlo
+ */
+public record IndexDeclaration(Class<?> entityClass, Index index) {
+
+    public String name() {
+        return index.getIndexOptions().getString("name");
+    }
+}
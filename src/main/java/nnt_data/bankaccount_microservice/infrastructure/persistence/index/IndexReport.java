@@ -0,0 +1,17 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.index;
+
+import java.util.List;
+
+/**
+ * Resultado de reconciliar los índices de una colección.
+ *
+ * @param collection Nombre de la colección
+ * @param missing Índices declarados que no existían en la base de datos
+ * @param created Índices creados durante la reconciliación
+ * @param undeclared Índices existentes que no están declarados (no se eliminan)
+ * @param unused Índices declarados sin accesos según $indexStats
+ * @param failed Índices declarados que no se pudieron crear o verificar
+ */
+public record IndexReport(String collection, List<String> missing, List<String> created,
+                          List<String> undeclared, List<String> unused, List<String> failed) {
+}
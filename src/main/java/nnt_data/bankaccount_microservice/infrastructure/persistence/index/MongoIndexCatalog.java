@@ -0,0 +1,25 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catálogo con los índices que cada colección debe tener. Se construye en
+ * MongoIndexConfig y lo consume MongoIndexManager al reconciliar contra la base de datos.
+ */
+public class MongoIndexCatalog {
+
+    private final Map<Class<?>, List<IndexDeclaration>> declarations = new LinkedHashMap<>();
+
+    public MongoIndexCatalog declare(IndexDeclaration declaration) {
+        declarations.computeIfAbsent(declaration.entityClass(), key -> new ArrayList<>()).add(declaration);
+        return this;
+    }
+
+    public Map<Class<?>, List<IndexDeclaration>> byEntity() {
+        return Collections.unmodifiableMap(declarations);
+    }
+}
@@ -0,0 +1,172 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * MongoIndexManager reconcilia al arrancar los índices declarados en MongoIndexCatalog con los
+ * existentes en MongoDB: crea en segundo plano los que faltan y reporta los no declarados y los
+ * declarados que no registran accesos. Nunca elimina índices.
+ */
+@Slf4j
+@Component
+public class MongoIndexManager {
+
+    private static final String ID_INDEX = "_id_";
+
+    private final ReactiveMongoOperations mongoOperations;
+    private final MongoIndexCatalog catalog;
+    private final boolean reconcileOnStartup;
+
+    public MongoIndexManager(ReactiveMongoOperations mongoOperations,
+                             MongoIndexCatalog catalog,
+                             @Value("${bankaccount.mongo.indexes.reconcile-on-startup:true}") boolean reconcileOnStartup) {
+        this.mongoOperations = mongoOperations;
+        this.catalog = catalog;
+        this.reconcileOnStartup = reconcileOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!reconcileOnStartup) {
+            return;
+        }
+        reconcile(true)
+                .subscribe(
+                        this::logReport,
+                        error -> log.error("Error al reconciliar índices de MongoDB: {}", error.getMessage()));
+    }
+
+    /**
+     * Compara los índices declarados con los existentes en cada colección.
+     *
+     * @param createMissing Si es true crea los índices que falten
+     * @return Flux con un reporte por colección
+     */
+    public Flux<IndexReport> reconcile(boolean createMissing) {
+        return Flux.fromIterable(catalog.byEntity().entrySet())
+                .concatMap(entry -> reconcileCollection(entry.getKey(), entry.getValue(), createMissing));
+    }
+
+    private Mono<IndexReport> reconcileCollection(Class<?> entityClass, List<IndexDeclaration> declarations,
+                                                  boolean createMissing) {
+        String collection = mongoOperations.getCollectionName(entityClass);
+        ReactiveIndexOperations indexOperations = mongoOperations.indexOps(entityClass);
+        Set<String> declaredNames = declarations.stream()
+                .map(IndexDeclaration::name)
+                .collect(Collectors.toSet());
+
+        return indexOperations.getIndexInfo()
+                .map(IndexInfo::getName)
+                .collect(Collectors.toSet())
+                .flatMap(existingNames -> {
+                    List<IndexDeclaration> missing = declarations.stream()
+                            .filter(declaration -> !existingNames.contains(declaration.name()))
+                            .toList();
+                    List<String> undeclared = existingNames.stream()
+                            .filter(name -> !ID_INDEX.equals(name) && !declaredNames.contains(name))
+                            .sorted()
+                            .toList();
+
+                    Mono<List<EnsureOutcome>> ensured = createMissing
+                            ? Flux.fromIterable(missing)
+                                    .concatMap(declaration -> ensureIndex(collection, indexOperations, declaration))
+                                    .collectList()
+                            : Mono.just(List.of());
+
+                    return Mono.zip(ensured, unusedIndexes(collection, declaredNames))
+                            .map(result -> new IndexReport(
+                                    collection,
+                                    missing.stream().map(IndexDeclaration::name).toList(),
+                                    namesOf(result.getT1(), true),
+                                    undeclared,
+                                    result.getT2(),
+                                    namesOf(result.getT1(), false)));
+                })
+                .onErrorResume(error -> {
+                    log.error("No se pudieron leer los índices de {}: {}", collection, error.getMessage());
+                    return Mono.just(new IndexReport(collection, List.of(), List.of(), List.of(), List.of(),
+                            declarations.stream().map(IndexDeclaration::name).sorted().toList()));
+                });
+    }
+
+    /**
+     * Crea un índice declarado. Un fallo queda registrado en el resultado y no interrumpe la
+     * creación de los demás índices ni la reconciliación de otras colecciones.
+     */
+    private Mono<EnsureOutcome> ensureIndex(String collection, ReactiveIndexOperations indexOperations,
+                                            IndexDeclaration declaration) {
+        return indexOperations.ensureIndex(declaration.index())
+                .map(name -> new EnsureOutcome(name, true))
+                .defaultIfEmpty(new EnsureOutcome(declaration.name(), true))
+                .onErrorResume(error -> {
+                    log.error("No se pudo crear el índice {} en {}: {}",
+                            declaration.name(), collection, error.getMessage());
+                    return Mono.just(new EnsureOutcome(declaration.name(), false));
+                });
+    }
+
+    private List<String> namesOf(List<EnsureOutcome> outcomes, boolean created) {
+        return outcomes.stream()
+                .filter(outcome -> outcome.created() == created)
+                .map(EnsureOutcome::name)
+                .toList();
+    }
+
+    private Mono<List<String>> unusedIndexes(String collection, Set<String> declaredNames) {
+        Aggregation indexStats = Aggregation.newAggregation(
+                context -> new Document("$indexStats", new Document()));
+
+        return mongoOperations.aggregate(indexStats, collection, Document.class)
+                .filter(stats -> declaredNames.contains(stats.getString("name")))
+                .filter(stats -> accessCount(stats) == 0)
+                .map(stats -> stats.getString("name"))
+                .sort()
+                .collectList()
+                .onErrorResume(error -> {
+                    log.warn("No se pudo leer $indexStats de {}: {}", collection, error.getMessage());
+                    return Mono.just(List.of());
+                });
+    }
+
+    private long accessCount(Document stats) {
+        Object accesses = stats.get("accesses");
+        if (accesses instanceof Map<?, ?> accessMap && accessMap.get("ops") instanceof Number ops) {
+            return ops.longValue();
+        }
+        return 0;
+    }
+
+    private void logReport(IndexReport report) {
+        if (!report.created().isEmpty()) {
+            log.info("Índices creados en {}: {}", report.collection(), report.created());
+        }
+        if (!report.undeclared().isEmpty()) {
+            log.warn("Índices no declarados en {}: {}", report.collection(), report.undeclared());
+        }
+        if (!report.unused().isEmpty()) {
+            log.info("Índices sin uso en {}: {}", report.collection(), report.unused());
+        }
+        if (!report.failed().isEmpty()) {
+            log.error("Índices que no se pudieron crear en {}: {}", report.collection(), report.failed());
+        }
+    }
+
+    private record EnsureOutcome(String name, boolean created) {
+    }
+}
@@ -0,0 +1,100 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import nnt_data.bankaccount_microservice.domain.utils.DateUtils;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionRollupCheckpointEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.CommissionDailyRollupRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.CommissionRollupCheckpointRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * CommissionRollupRebuild recalcula los totales diarios de comisiones a partir de la colección
+ * de comisiones. Solo recalcula los días anteriores al actual: los totales del día en curso se
+ * mantienen con los incrementos de cada movimiento y no se sustituyen. Espera a que termine
+ * MoneyFieldMigration, porque $sum ignora los importes guardados como texto.
+ * <p>
+ * Está activo por defecto y guarda un punto de control, así que el recálculo se hace una sola
+ * vez: el primer arranque recalcula todo el histórico anterior a ese día, y un arranque en un día
+ * posterior recalcula una vez más desde ese primer día, que pudo recibir comisiones de instancias
+ * sin totales diarios durante el despliegue. Para repetirlo si se sospecha que un total se ha
+ * desviado basta con borrar el punto de control y reiniciar.
+ */
+@Slf4j
+@Component
+public class CommissionRollupRebuild {
+
+    static final String CHECKPOINT_ID = "commission-daily-rollups";
+
+    private final CommissionDailyRollupRepository commissionDailyRollupRepository;
+    private final CommissionRollupCheckpointRepository checkpointRepository;
+    private final MoneyFieldMigration moneyFieldMigration;
+    private final boolean enabled;
+    private final int lookbackDays;
+
+    public CommissionRollupRebuild(CommissionDailyRollupRepository commissionDailyRollupRepository,
+                                   CommissionRollupCheckpointRepository checkpointRepository,
+                                   MoneyFieldMigration moneyFieldMigration,
+                                   @Value("${bankaccount.commissions.rollup.rebuild-on-startup:true}") boolean enabled,
+                                   @Value("${bankaccount.commissions.rollup.rebuild-lookback-days:0}") int lookbackDays) {
+        this.commissionDailyRollupRepository = commissionDailyRollupRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.moneyFieldMigration = moneyFieldMigration;
+        this.enabled = enabled;
+        this.lookbackDays = lookbackDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        moneyFieldMigration.completion()
+                .then(rebuild(LocalDate.now()))
+                .subscribe(
+                        rebuilt -> {
+                            if (rebuilt) {
+                                log.info("Totales diarios de comisiones recalculados");
+                            }
+                        },
+                        error -> log.error("Error al recalcular los totales diarios de comisiones: {}", error.getMessage()));
+    }
+
+    /**
+     * Recalcula los días pendientes según el punto de control.
+     *
+     * @param today Día actual, que no se recalcula
+     * @return Mono con true si se recalculó algún día
+     */
+    public Mono<Boolean> rebuild(LocalDate today) {
+        return checkpointRepository.findById(CHECKPOINT_ID)
+                .map(checkpoint -> {
+                    LocalDate firstDay = LocalDate.parse(checkpoint.getFirstDay());
+                    LocalDate rebuiltBefore = LocalDate.parse(checkpoint.getRebuiltBefore());
+                    return rebuiltBefore.isAfter(firstDay) || !today.isAfter(firstDay)
+                            ? Mono.just(false)
+                            : rebuildBefore(firstDay, today, firstDay);
+                })
+                .defaultIfEmpty(Mono.defer(() -> rebuildBefore(
+                        lookbackDays > 0 ? today.minusDays(lookbackDays) : null, today, today)))
+                .flatMap(rebuild -> rebuild);
+    }
+
+    private Mono<Boolean> rebuildBefore(LocalDate fromDay, LocalDate today, LocalDate firstDay) {
+        Date fromDate = fromDay != null ? DateUtils.toDate(fromDay) : null;
+        return commissionDailyRollupRepository.rebuild(fromDate, DateUtils.toDate(today))
+                .then(checkpointRepository.save(CommissionRollupCheckpointEntity.builder()
+                        .id(CHECKPOINT_ID)
+                        .firstDay(firstDay.toString())
+                        .rebuiltBefore(today.toString())
+                        .updatedAt(new Date())
+                        .build()))
+                .thenReturn(true);
+    }
+}
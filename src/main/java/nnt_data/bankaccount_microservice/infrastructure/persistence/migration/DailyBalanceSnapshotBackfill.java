@@ -0,0 +1,249 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import nnt_data.bankaccount_microservice.domain.utils.DateUtils;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.SnapshotBackfillCheckpointEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.TransactionEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.DailyBalanceSnapshotRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.SnapshotBackfillCheckpointRepository;
+import nnt_data.bankaccount_microservice.model.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * DailyBalanceSnapshotBackfill genera los saldos de cierre diarios de las cuentas que existían antes
+ * de guardarlos con cada movimiento. Para cada cuenta parte del saldo actual y retrocede día a día
+ * restando el efecto neto de sus transacciones y comisiones, hasta el inicio del horizonte.
+ * Solo crea cierres que no existen, así que nunca sustituye uno escrito por un movimiento.
+ * El saldo se lee junto con su revisión; si la revisión cambió cuando ya se leyeron las
+ * transacciones, un movimiento se coló entre ambas lecturas y la cuenta se vuelve a calcular.
+ * Recorre las cuentas por _id en lotes y guarda un punto de control tras cada lote para poder
+ * reanudarse tras un reinicio.
+ */
+@Slf4j
+@Component
+public class DailyBalanceSnapshotBackfill {
+
+    static final String CHECKPOINT_ID = "daily-balance-snapshots";
+
+    private static final int MAX_ATTEMPTS_PER_ACCOUNT = 5;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final DailyBalanceSnapshotRepository dailyBalanceSnapshotRepository;
+    private final SnapshotBackfillCheckpointRepository checkpointRepository;
+    private final boolean enabled;
+    private final int horizonDays;
+    private final int batchSize;
+    private final int concurrency;
+    private final Duration pauseBetweenBatches;
+
+    public DailyBalanceSnapshotBackfill(ReactiveMongoTemplate mongoTemplate,
+                                        DailyBalanceSnapshotRepository dailyBalanceSnapshotRepository,
+                                        SnapshotBackfillCheckpointRepository checkpointRepository,
+                                        @Value("${bankaccount.snapshots.backfill.enabled:false}") boolean enabled,
+                                        @Value("${bankaccount.snapshots.backfill.horizon-days:400}") int horizonDays,
+                                        @Value("${bankaccount.snapshots.backfill.batch-size:200}") int batchSize,
+                                        @Value("${bankaccount.snapshots.backfill.concurrency:4}") int concurrency,
+                                        @Value("${bankaccount.snapshots.backfill.pause-ms:200}") long pauseMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.dailyBalanceSnapshotRepository = dailyBalanceSnapshotRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.enabled = enabled;
+        this.horizonDays = horizonDays;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.pauseBetweenBatches = Duration.ofMillis(pauseMillis);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        backfill()
+                .subscribe(
+                        accounts -> log.info("Relleno de saldos diarios terminado: {} cuentas", accounts),
+                        error -> log.error("Error en el relleno de saldos diarios: {}", error.getMessage()));
+    }
+
+    /**
+     * Rellena los saldos diarios desde el último punto de control.
+     *
+     * @return Mono con el número de cuentas procesadas en esta ejecución
+     */
+    public Mono<Long> backfill() {
+        LocalDate today = LocalDate.now();
+        return checkpointRepository.findById(CHECKPOINT_ID)
+                .defaultIfEmpty(SnapshotBackfillCheckpointEntity.builder()
+                        .id(CHECKPOINT_ID)
+                        .completed(false)
+                        .build())
+                .flatMap(checkpoint -> Boolean.TRUE.equals(checkpoint.getCompleted())
+                        ? Mono.just(0L)
+                        : backfillFrom(checkpoint.getLastAccountId(), today));
+    }
+
+    private Mono<Long> backfillFrom(String lastAccountId, LocalDate today) {
+        return backfillBatch(lastAccountId, today)
+                .expand(batch -> batch.lastAccountId() == null
+                        ? Mono.empty()
+                        : Mono.delay(pauseBetweenBatches).then(backfillBatch(batch.lastAccountId(), today)))
+                .map(BatchResult::accounts)
+                .reduce(0L, Long::sum)
+                .flatMap(accounts -> saveCheckpoint(null, true).thenReturn(accounts));
+    }
+
+    private Mono<BatchResult> backfillBatch(String afterAccountId, LocalDate today) {
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+        if (afterAccountId != null) {
+            query.addCriteria(Criteria.where("_id").gt(afterAccountId));
+        }
+        query.fields().include("_id").include("balance").include("balanceRevision");
+
+        return mongoTemplate.find(query, AccountBaseEntity.class)
+                .collectList()
+                .flatMap(accounts -> {
+                    if (accounts.isEmpty()) {
+                        return Mono.just(new BatchResult(null, 0));
+                    }
+                    String lastId = accounts.get(accounts.size() - 1).getAccountId();
+                    return Flux.fromIterable(accounts)
+                            .flatMap(account -> backfillAccount(account, today, 1), concurrency)
+                            .then(saveCheckpoint(lastId, false))
+                            .thenReturn(new BatchResult(lastId, accounts.size()));
+                });
+    }
+
+    private Mono<Void> backfillAccount(AccountBaseEntity account, LocalDate today, int attempt) {
+        if (account.getBalance() == null) {
+            return Mono.empty();
+        }
+        LocalDate horizonStart = today.minusDays(horizonDays);
+        Date from = DateUtils.toDate(horizonStart);
+        String accountId = account.getAccountId();
+
+        Query transactionsQuery = new Query(new Criteria().andOperator(
+                new Criteria().orOperator(
+                        Criteria.where("sourceAccountId").is(accountId),
+                        Criteria.where("destinyAccountId").is(accountId)),
+                Criteria.where("date").gte(from)));
+        Query commissionsQuery = new Query(Criteria.where("accountId").is(accountId).and("dateTime").gte(from));
+
+        Mono<NavigableMap<LocalDate, BigDecimal>> netByDay = Flux.merge(
+                        mongoTemplate.find(transactionsQuery, TransactionEntity.class)
+                                .filter(transaction -> transaction.getDate() != null && transaction.getAmount() != null)
+                                .map(transaction -> Map.entry(DateUtils.toLocalDate(transaction.getDate()),
+                                        balanceEffect(transaction, accountId))),
+                        mongoTemplate.find(commissionsQuery, CommissionEntity.class)
+                                .filter(commission -> commission.getDateTime() != null && commission.getAmount() != null)
+                                .map(commission -> Map.entry(DateUtils.toLocalDate(commission.getDateTime()),
+                                        commission.getAmount().negate())))
+                .collect(TreeMap::new, (totals, entry) -> totals.merge(entry.getKey(), entry.getValue(), BigDecimal::add));
+
+        return netByDay
+                .flatMap(totals -> readBalance(accountId)
+                        .flatMap(current -> {
+                            if (Objects.equals(current.getBalanceRevision(), account.getBalanceRevision())) {
+                                return saveClosingBalances(accountId, account.getBalance(), totals, horizonStart, today);
+                            }
+                            if (attempt >= MAX_ATTEMPTS_PER_ACCOUNT) {
+                                log.warn("Saldos diarios de {} omitidos: su saldo cambió en {} intentos",
+                                        accountId, attempt);
+                                return Mono.empty();
+                            }
+                            return backfillAccount(current, today, attempt + 1);
+                        }));
+    }
+
+    private Mono<AccountBaseEntity> readBalance(String accountId) {
+        Query query = new Query(Criteria.where("_id").is(accountId));
+        query.fields().include("_id").include("balance").include("balanceRevision");
+        return mongoTemplate.findOne(query, AccountBaseEntity.class);
+    }
+
+    private Mono<Void> saveClosingBalances(String accountId, BigDecimal currentBalance,
+                                           NavigableMap<LocalDate, BigDecimal> netByDay,
+                                           LocalDate horizonStart, LocalDate today) {
+        return Flux.fromIterable(closingBalances(currentBalance, netByDay, horizonStart, today))
+                .concatMap(closing -> dailyBalanceSnapshotRepository
+                        .initializeClosingBalance(accountId, closing.day(), closing.balance()))
+                .then();
+    }
+
+    /**
+     * Cierres a guardar: el día actual, cada día con movimientos y el día anterior al horizonte,
+     * que sirve de saldo inicial. El cierre de un día es el saldo actual menos el efecto de los
+     * días posteriores.
+     */
+    private List<ClosingBalance> closingBalances(BigDecimal currentBalance, NavigableMap<LocalDate, BigDecimal> netByDay,
+                                                 LocalDate horizonStart, LocalDate today) {
+        BigDecimal balance = currentBalance;
+        for (BigDecimal futureNet : netByDay.tailMap(today, false).values()) {
+            balance = balance.subtract(futureNet);
+        }
+
+        TreeMap<LocalDate, BigDecimal> closings = new TreeMap<>();
+        closings.put(today, balance);
+        for (Map.Entry<LocalDate, BigDecimal> entry : netByDay.headMap(today, true).descendingMap().entrySet()) {
+            closings.putIfAbsent(entry.getKey(), balance);
+            balance = balance.subtract(entry.getValue());
+        }
+        closings.put(horizonStart.minusDays(1), balance);
+
+        return closings.entrySet().stream()
+                .map(entry -> new ClosingBalance(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    /**
+     * Efecto de una transacción sobre el saldo de la cuenta, igual al que aplican los movimientos:
+     * en un depósito entre cuentas se carga el origen y se abona el destino, y al revés en un retiro.
+     * Las comisiones se descuentan aparte.
+     */
+    private BigDecimal balanceEffect(TransactionEntity transaction, String accountId) {
+        BigDecimal amount = transaction.getAmount();
+        boolean deposit = transaction.getType() == Transaction.TypeEnum.DEPOSIT;
+        if (transaction.getTransactionMode() == Transaction.TransactionModeEnum.INTER_ACCOUNT) {
+            boolean isSource = accountId.equals(transaction.getSourceAccountId());
+            return deposit == isSource ? amount.negate() : amount;
+        }
+        return deposit ? amount : amount.negate();
+    }
+
+    private Mono<SnapshotBackfillCheckpointEntity> saveCheckpoint(String lastAccountId, boolean completed) {
+        return checkpointRepository.save(SnapshotBackfillCheckpointEntity.builder()
+                .id(CHECKPOINT_ID)
+                .lastAccountId(lastAccountId)
+                .completed(completed)
+                .updatedAt(new Date())
+                .build());
+    }
+
+    private record ClosingBalance(LocalDate day, BigDecimal balance) {
+    }
+
+    private record BatchResult(String lastAccountId, long accounts) {
+    }
+}
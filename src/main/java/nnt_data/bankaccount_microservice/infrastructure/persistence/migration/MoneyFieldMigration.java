@@ -0,0 +1,218 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import nnt_data.bankaccount_microservice.domain.exception.ServiceUnavailableException;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.MoneyMigrationCheckpointEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.MoneyMigrationCheckpointRepository;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * MoneyFieldMigration convierte en línea los importes guardados como texto a Decimal128.
+ * Recorre cada colección por _id en lotes, actualiza cada lote en paralelo con concurrencia
+ * acotada y espera entre lotes para no saturar la base de datos. Cada actualización está
+ * condicionada al valor leído, así que una escritura concurrente nunca se pisa.
+ * <p>
+ * Se lanza en cada arranque, pero cada campo terminado queda registrado en un punto de control y
+ * no se vuelve a recorrer. Primero migra los campos de la colección de cuentas: los $inc de saldo y
+ * el filtro de saldo mínimo solo dependen de ellos y esperan mediante
+ * {@link #requireAccountFieldsMigrated()}. Las sumas de importes de transacciones y comisiones
+ * esperan a la migración completa mediante {@link #completion()}.
+ */
+@Slf4j
+@Component
+public class MoneyFieldMigration {
+
+    private static final int BSON_STRING_TYPE = 2;
+
+    private static final List<MoneyField> ACCOUNT_FIELDS = List.of(
+            new MoneyField("account", "balance"),
+            new MoneyField("account", "maintenanceFee"),
+            new MoneyField("account", "feePerTransaction"));
+
+    private static final List<MoneyField> MOVEMENT_FIELDS = List.of(
+            new MoneyField("transaction", "amount"),
+            new MoneyField("commissions", "amount"));
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MoneyMigrationCheckpointRepository checkpointRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int concurrency;
+    private final Duration pauseBetweenBatches;
+    private final Duration maxWait;
+    private final Sinks.Empty<Void> accountFieldsMigrated = Sinks.empty();
+    private final Sinks.Empty<Void> completed = Sinks.empty();
+
+    public MoneyFieldMigration(ReactiveMongoTemplate mongoTemplate,
+                               MoneyMigrationCheckpointRepository checkpointRepository,
+                               @Value("${bankaccount.migration.money.enabled:true}") boolean enabled,
+                               @Value("${bankaccount.migration.money.batch-size:500}") int batchSize,
+                               @Value("${bankaccount.migration.money.concurrency:8}") int concurrency,
+                               @Value("${bankaccount.migration.money.pause-ms:200}") long pauseMillis,
+                               @Value("${bankaccount.migration.money.max-wait-ms:5000}") long maxWaitMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.checkpointRepository = checkpointRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.pauseBetweenBatches = Duration.ofMillis(pauseMillis);
+        this.maxWait = Duration.ofMillis(maxWaitMillis);
+        if (!enabled) {
+            accountFieldsMigrated.tryEmitEmpty();
+            completed.tryEmitEmpty();
+        }
+    }
+
+    /**
+     * Lanza la migración. Si falla se reintenta con espera creciente, saltando los campos ya
+     * terminados: mientras no terminen los de las cuentas, los movimientos de saldo se rechazan.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        migrate()
+                .doOnError(error -> log.error("Error en la migración de importes, se reintenta: {}",
+                        error.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofMinutes(1)))
+                .subscribe(migrated -> {
+                    log.info("Migración de importes a Decimal128 terminada: {} documentos", migrated);
+                    completed.tryEmitEmpty();
+                });
+    }
+
+    /**
+     * Mono que termina cuando ya no quedan importes como texto. Lo esperan los procesos en segundo
+     * plano que suman importes.
+     */
+    public Mono<Void> completion() {
+        return completed.asMono();
+    }
+
+    /**
+     * Mono que termina cuando los importes de las cuentas ya son numéricos. Si no ocurre dentro de
+     * la espera máxima falla con ServiceUnavailableException. Lo usan los movimientos de saldo,
+     * que no deben quedar bloqueados indefinidamente ni esperar a las colecciones de transacciones
+     * y comisiones.
+     */
+    public Mono<Void> requireAccountFieldsMigrated() {
+        return accountFieldsMigrated.asMono()
+                .timeout(maxWait, Mono.error(ServiceUnavailableException.MONEY_MIGRATION));
+    }
+
+    /**
+     * Migra los campos de importe que no estén terminados, empezando por los de las cuentas.
+     *
+     * @return Mono con el número total de documentos actualizados
+     */
+    public Mono<Long> migrate() {
+        return migrateFields(ACCOUNT_FIELDS)
+                .doOnNext(migrated -> accountFieldsMigrated.tryEmitEmpty())
+                .flatMap(accounts -> migrateFields(MOVEMENT_FIELDS).map(movements -> accounts + movements));
+    }
+
+    private Mono<Long> migrateFields(List<MoneyField> fields) {
+        return Flux.fromIterable(fields)
+                .concatMap(this::migrateField)
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> migrateField(MoneyField field) {
+        return checkpointRepository.findById(field.checkpointId())
+                .map(checkpoint -> Boolean.TRUE.equals(checkpoint.getCompleted()))
+                .defaultIfEmpty(false)
+                .flatMap(done -> done
+                        ? Mono.just(0L)
+                        : convertField(field)
+                                .flatMap(migrated -> saveCheckpoint(field, migrated).thenReturn(migrated)));
+    }
+
+    private Mono<Long> convertField(MoneyField field) {
+        return migrateBatch(field, null)
+                .expand(batch -> batch.lastId() == null
+                        ? Mono.empty()
+                        : Mono.delay(pauseBetweenBatches).then(migrateBatch(field, batch.lastId())))
+                .map(BatchResult::migrated)
+                .reduce(0L, Long::sum)
+                .doOnNext(migrated -> log.info("{}.{}: {} documentos migrados",
+                        field.collection(), field.name(), migrated));
+    }
+
+    private Mono<BatchResult> migrateBatch(MoneyField field, Object afterId) {
+        Criteria criteria = Criteria.where(field.name()).type(BSON_STRING_TYPE);
+        if (afterId != null) {
+            criteria = criteria.and("_id").gt(afterId);
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+        query.fields().include("_id").include(field.name());
+
+        return mongoTemplate.find(query, Document.class, field.collection())
+                .collectList()
+                .flatMap(documents -> {
+                    if (documents.isEmpty()) {
+                        return Mono.just(new BatchResult(null, 0));
+                    }
+                    Object lastId = documents.get(documents.size() - 1).get("_id");
+                    return Flux.fromIterable(documents)
+                            .flatMap(document -> convert(field, document), concurrency)
+                            .reduce(0L, Long::sum)
+                            .map(migrated -> new BatchResult(lastId, migrated));
+                });
+    }
+
+    private Mono<Long> convert(MoneyField field, Document document) {
+        String value = document.getString(field.name());
+        Decimal128 amount;
+        try {
+            amount = new Decimal128(new BigDecimal(value.trim()));
+        } catch (RuntimeException e) {
+            log.warn("Importe no numérico en {}.{} para _id {}: {}",
+                    field.collection(), field.name(), document.get("_id"), value);
+            return Mono.just(0L);
+        }
+        Query query = new Query(Criteria.where("_id").is(document.get("_id")).and(field.name()).is(value));
+        return mongoTemplate.updateFirst(query, new Update().set(field.name(), amount), field.collection())
+                .map(result -> result.getModifiedCount());
+    }
+
+    private Mono<MoneyMigrationCheckpointEntity> saveCheckpoint(MoneyField field, long migrated) {
+        return checkpointRepository.save(MoneyMigrationCheckpointEntity.builder()
+                .id(field.checkpointId())
+                .completed(true)
+                .migrated(migrated)
+                .updatedAt(new Date())
+                .build());
+    }
+
+    private record MoneyField(String collection, String name) {
+
+        String checkpointId() {
+            return collection + "." + name;
+        }
+    }
+
+    private record BatchResult(Object lastId, long migrated) {
+    }
+}
@@ -0,0 +1,29 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountMovementCounterEntity;
+import reactor.core.publisher.Mono;
+
+import java.time.YearMonth;
+
+public interface AccountMovementCounterRepositoryCustom {
+
+    /**
+     * Incrementa de forma atómica el contador del periodo, creándolo si no existe.
+     *
+     * @param accountId ID de la cuenta
+     * @param period Mes del movimiento
+     * @param movements Movimientos a sumar
+     * @return Mono con el contador actualizado
+     */
+    Mono<AccountMovementCounterEntity> increment(String accountId, YearMonth period, long movements);
+
+    /**
+     * Crea el contador del periodo con un valor inicial solo si todavía no existe.
+     *
+     * @param accountId ID de la cuenta
+     * @param period Mes del contador
+     * @param movements Valor inicial
+     * @return Mono con el contador tal como quedó almacenado
+     */
+    Mono<AccountMovementCounterEntity> initialize(String accountId, YearMonth period, long movements);
+}
@@ -0,0 +1,42 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountMovementCounterEntity;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.time.YearMonth;
+
+@RequiredArgsConstructor
+public class AccountMovementCounterRepositoryCustomImpl implements AccountMovementCounterRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<AccountMovementCounterEntity> increment(String accountId, YearMonth period, long movements) {
+        Update update = new Update()
+                .inc("movements", movements)
+                .setOnInsert("accountId", accountId)
+                .setOnInsert("period", period.toString());
+        return upsert(accountId, period, update);
+    }
+
+    @Override
+    public Mono<AccountMovementCounterEntity> initialize(String accountId, YearMonth period, long movements) {
+        Update update = new Update()
+                .setOnInsert("movements", movements)
+                .setOnInsert("accountId", accountId)
+                .setOnInsert("period", period.toString());
+        return upsert(accountId, period, update);
+    }
+
+    private Mono<AccountMovementCounterEntity> upsert(String accountId, YearMonth period, Update update) {
+        Query query = new Query(Criteria.where("_id").is(AccountMovementCounterEntity.idOf(accountId, period)));
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), AccountMovementCounterEntity.class);
+    }
+}
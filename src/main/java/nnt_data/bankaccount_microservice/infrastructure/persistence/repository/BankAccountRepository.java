@@ -2,10 +2,13 @@ package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
 
 import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
 import nnt_data.bankaccount_microservice.model.AccountType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Flux;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -13,10 +16,33 @@ import java.util.List;
  * métodos de acceso a datos para la entidad AccountBaseEntity. Define métodos adicionales
  * para verificar la existencia de cuentas y buscar cuentas por ID de cliente y tipo de cuenta.
  */
-public interface BankAccountRepository extends ReactiveMongoRepository<AccountBaseEntity, String> {
+public interface BankAccountRepository extends ReactiveMongoRepository<AccountBaseEntity, String>,
+        BankAccountRepositoryCustom {
     Mono<Boolean> existsByCustomerId(String customerId);
     Mono<Boolean> existsByAccountId(String accountId);
     Flux<AccountBaseEntity> findByCustomerIdAndAccountType(String customerId, AccountType accountType);
     Mono<Boolean> existsByCustomerIdAndAccountType(String customerId, AccountType accountType);
     Flux<AccountBaseEntity> findByCustomerId(String customerId);
+
+    /**
+     * Lee solo el saldo y la revisión de saldo de la cuenta.
+     */
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'balance': 1, 'balanceRevision': 1 }")
+    Mono<AccountBaseEntity> findBalanceById(String accountId);
+
+    /**
+     * Lee solo el ID de las cuentas indicadas que existen, con una sola consulta $in.
+     */
+    @Query(value = "{ '_id': { $in: ?0 } }", fields = "{ '_id': 1 }")
+    Flux<AccountBaseEntity> findIdsByIdIn(Collection<String> accountIds);
+
+    /**
+     * Primera página de cuentas ordenadas por ID.
+     */
+    Flux<AccountBaseEntity> findAllByOrderByAccountIdAsc(Limit limit);
+
+    /**
+     * Página de cuentas con ID posterior al cursor, ordenadas por ID (paginación por clave).
+     */
+    Flux<AccountBaseEntity> findByAccountIdGreaterThanOrderByAccountIdAsc(String accountId, Limit limit);
 }
@@ -0,0 +1,48 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import com.mongodb.bulk.BulkWriteResult;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * BankAccountRepositoryCustom define operaciones atómicas sobre el saldo de una cuenta que no
+ * pueden expresarse como consultas derivadas. Cada operación es un único findAndModify o una única
+ * escritura masiva en MongoDB.
+ */
+public interface BankAccountRepositoryCustom {
+
+    /**
+     * Aplica un incremento ($inc) sobre el saldo y el contador de movimientos de una cuenta. Cada
+     * cambio de saldo incrementa también la revisión de saldo y la versión de la cuenta.
+     *
+     * @param accountId ID de la cuenta
+     * @param delta Variación del saldo (negativa para cargos)
+     * @param minimumBalance Saldo mínimo que debe tener la cuenta para aplicar el cambio, o null
+     * @param expectedVersion Versión esperada de la cuenta, o null para no validarla
+     * @param movementIncrement Cantidad a sumar al contador de movimientos
+     * @return Mono con la cuenta actualizada, o vacío si la cuenta no existe o no cumple las condiciones
+     */
+    Mono<AccountBaseEntity> applyBalanceDelta(String accountId, BigDecimal delta, BigDecimal minimumBalance,
+                                              Long expectedVersion, int movementIncrement);
+
+    /**
+     * Aplica variaciones de saldo a varias cuentas con una sola escritura masiva ordenada. Cada
+     * variación incrementa también la revisión de saldo y la versión de su cuenta; las cuentas que
+     * no existen no se modifican.
+     *
+     * @param deltas Variación de saldo por ID de cuenta, en el orden en que se aplican
+     * @return Mono con el resultado de la escritura masiva
+     */
+    Mono<BulkWriteResult> applyBalanceDeltas(Map<String, BigDecimal> deltas);
+
+    /**
+     * Asigna la versión inicial a una cuenta guardada antes de que existiera el campo de versión.
+     *
+     * @param accountId ID de la cuenta
+     * @return Mono con la cuenta ya versionada, o vacío si no existe
+     */
+    Mono<AccountBaseEntity> initializeVersion(String accountId);
+}
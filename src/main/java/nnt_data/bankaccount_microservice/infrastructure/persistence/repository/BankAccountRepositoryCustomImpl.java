@@ -0,0 +1,71 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Implementación de BankAccountRepositoryCustom basada en ReactiveMongoTemplate. Las condiciones
+ * de saldo y de versión se evalúan en el servidor dentro del mismo findAndModify que aplica el $inc,
+ * por lo que dos transacciones concurrentes sobre la misma cuenta no pueden pisarse.
+ */
+@RequiredArgsConstructor
+public class BankAccountRepositoryCustomImpl implements BankAccountRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<AccountBaseEntity> applyBalanceDelta(String accountId, BigDecimal delta, BigDecimal minimumBalance,
+                                                     Long expectedVersion, int movementIncrement) {
+        Query query = new Query(Criteria.where("_id").is(accountId));
+        if (minimumBalance != null && minimumBalance.signum() > 0) {
+            query.addCriteria(Criteria.where("balance").gte(new Decimal128(minimumBalance)));
+        }
+        if (expectedVersion != null) {
+            query.addCriteria(Criteria.where("version").is(expectedVersion));
+        }
+
+        Update update = new Update()
+                .inc("balance", new Decimal128(delta))
+                .inc("balanceRevision", 1)
+                .inc("version", 1);
+        if (movementIncrement != 0) {
+            update.inc("transactionMovements", movementIncrement);
+        }
+
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), AccountBaseEntity.class);
+    }
+
+    @Override
+    public Mono<BulkWriteResult> applyBalanceDeltas(Map<String, BigDecimal> deltas) {
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, AccountBaseEntity.class);
+        deltas.forEach((accountId, delta) -> bulk.updateOne(
+                new Query(Criteria.where("_id").is(accountId)),
+                new Update()
+                        .inc("balance", new Decimal128(delta))
+                        .inc("balanceRevision", 1)
+                        .inc("version", 1)));
+        return bulk.execute();
+    }
+
+    @Override
+    public Mono<AccountBaseEntity> initializeVersion(String accountId) {
+        Query query = new Query(Criteria.where("_id").is(accountId).and("version").exists(false));
+        return mongoTemplate.findAndModify(query, new Update().set("version", 0L),
+                        FindAndModifyOptions.options().returnNew(true), AccountBaseEntity.class)
+                .switchIfEmpty(Mono.defer(() -> mongoTemplate.findById(accountId, AccountBaseEntity.class)));
+    }
+}
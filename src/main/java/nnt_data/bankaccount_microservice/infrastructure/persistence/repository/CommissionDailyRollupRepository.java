@@ -0,0 +1,17 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionDailyRollupEntity;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+public interface CommissionDailyRollupRepository
+        extends ReactiveMongoRepository<CommissionDailyRollupEntity, String>, CommissionDailyRollupRepositoryCustom {
+
+    /**
+     * Totales diarios de la cuenta entre ambos días (yyyy-MM-dd), inclusive.
+     */
+    @Query(value = "{ 'accountId': ?0, 'day': { $gte: ?1, $lte: ?2 } }",
+            fields = "{ 'totalCommission': 1, 'transactionCount': 1 }")
+    Flux<CommissionDailyRollupEntity> findByAccountIdInPeriod(String accountId, String startDay, String endDay);
+}
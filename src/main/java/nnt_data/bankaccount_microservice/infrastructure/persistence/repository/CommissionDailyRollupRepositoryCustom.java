@@ -0,0 +1,52 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionDailyRollupEntity;
+import nnt_data.bankaccount_microservice.model.CommissionGranularity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Date;
+
+public interface CommissionDailyRollupRepositoryCustom {
+
+    /**
+     * Suma comisiones al total diario de la cuenta, creando el documento si no existe. Con valores
+     * negativos deshace un incremento anterior.
+     *
+     * @param accountId ID de la cuenta
+     * @param day Día de las comisiones
+     * @param amount Importe total de las comisiones
+     * @param commissions Número de comisiones
+     * @return Mono con el total diario actualizado
+     */
+    Mono<CommissionDailyRollupEntity> increment(String accountId, LocalDate day, BigDecimal amount, long commissions);
+
+    /**
+     * Recalcula los totales diarios desde la colección de comisiones con $group y $merge, sin
+     * traer las comisiones al servicio. Sustituye los totales de los días recalculados, así que
+     * beforeDate no debe pasar del inicio del día actual: los totales de ese día siguen recibiendo
+     * incrementos y la sustitución los perdería.
+     *
+     * @param fromDate Fecha desde la que recalcular, o null para todo el histórico
+     * @param beforeDate Fecha hasta la que recalcular, exclusive
+     * @return Mono vacío al terminar
+     */
+    Mono<Void> rebuild(Date fromDate, Date beforeDate);
+
+    /**
+     * Suma los totales diarios de varias cuentas entre dos días con una sola agregación
+     * ($match/$group) apoyada en el índice accountId_day. Los meses se obtienen del prefijo
+     * yyyy-MM del día, así que no hace falta calcular fechas en el servidor.
+     *
+     * @param accountIds IDs de las cuentas
+     * @param startDay Primer día (yyyy-MM-dd), inclusive
+     * @param endDay Último día (yyyy-MM-dd), inclusive
+     * @param granularity Agrupación por rango completo, día o mes
+     * @return Flux de totales ordenados por cuenta y periodo; sin elementos si no hay comisiones
+     */
+    Flux<CommissionSummary> summarize(Collection<String> accountIds, String startDay, String endDay,
+                                      CommissionGranularity granularity);
+}
@@ -0,0 +1,137 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionDailyRollupEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionEntity;
+import nnt_data.bankaccount_microservice.model.CommissionGranularity;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Implementación de CommissionDailyRollupRepositoryCustom. Los días se calculan en la zona horaria
+ * del servicio, la misma que usa DateUtils, para que el total incremental y el recalculado coincidan.
+ */
+@RequiredArgsConstructor
+public class CommissionDailyRollupRepositoryCustomImpl implements CommissionDailyRollupRepositoryCustom {
+
+    private static final String DAY_FORMAT = "%Y-%m-%d";
+    private static final int DAY_LENGTH = 10;
+    private static final int MONTH_LENGTH = 7;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<CommissionDailyRollupEntity> increment(String accountId, LocalDate day, BigDecimal amount,
+                                                       long commissions) {
+        Query query = new Query(Criteria.where("_id").is(CommissionDailyRollupEntity.idOf(accountId, day)));
+        Update update = new Update()
+                .inc("totalCommission", new Decimal128(amount))
+                .inc("transactionCount", commissions)
+                .setOnInsert("accountId", accountId)
+                .setOnInsert("day", day.toString());
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), CommissionDailyRollupEntity.class);
+    }
+
+    @Override
+    public Mono<Void> rebuild(Date fromDate, Date beforeDate) {
+        Criteria period = Criteria.where("dateTime").lt(beforeDate);
+        if (fromDate != null) {
+            period = period.gte(fromDate);
+        }
+        List<AggregationOperation> operations = new ArrayList<>();
+        operations.add(Aggregation.match(period));
+        operations.add(Aggregation.project("accountId", "amount")
+                .and(DateOperators.DateToString.dateOf("dateTime")
+                        .toString(DAY_FORMAT)
+                        .withTimezone(DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId())))
+                .as("day"));
+        operations.add(Aggregation.group("accountId", "day")
+                .sum("amount").as("totalCommission")
+                .count().as("transactionCount"));
+        operations.add(Aggregation.project("totalCommission", "transactionCount", "accountId", "day")
+                .and(StringOperators.Concat.valueOf("_id.accountId").concat(":").concatValueOf("_id.day"))
+                .as("_id"));
+        operations.add(Aggregation.merge()
+                .intoCollection(mongoTemplate.getCollectionName(CommissionDailyRollupEntity.class))
+                .on("_id")
+                .whenMatched(MergeOperation.WhenDocumentsMatch.replaceDocument())
+                .whenNotMatched(MergeOperation.WhenDocumentsDontMatch.insertNewDocument())
+                .build());
+
+        return mongoTemplate.aggregate(Aggregation.newAggregation(operations),
+                        mongoTemplate.getCollectionName(CommissionEntity.class), Document.class)
+                .then();
+    }
+
+    @Override
+    public Flux<CommissionSummary> summarize(Collection<String> accountIds, String startDay, String endDay,
+                                             CommissionGranularity granularity) {
+        List<AggregationOperation> operations = new ArrayList<>();
+        operations.add(Aggregation.match(Criteria.where("accountId").in(accountIds)
+                .and("day").gte(startDay).lte(endDay)));
+
+        if (granularity == CommissionGranularity.TOTAL) {
+            operations.add(Aggregation.group("accountId")
+                    .sum("totalCommission").as("totalCommission")
+                    .sum("transactionCount").as("transactionCount"));
+            operations.add(Aggregation.project("totalCommission", "transactionCount")
+                    .and("accountId").previousOperation());
+            operations.add(Aggregation.sort(Sort.by("accountId")));
+        } else {
+            int periodLength = granularity == CommissionGranularity.MONTH ? MONTH_LENGTH : DAY_LENGTH;
+            operations.add(Aggregation.project("accountId", "totalCommission", "transactionCount")
+                    .and(StringOperators.valueOf("day").substring(0, periodLength))
+                    .as("period"));
+            operations.add(Aggregation.group("accountId", "period")
+                    .sum("totalCommission").as("totalCommission")
+                    .sum("transactionCount").as("transactionCount"));
+            operations.add(Aggregation.project("totalCommission", "transactionCount", "accountId", "period")
+                    .andExclude("_id"));
+            operations.add(Aggregation.sort(Sort.by("accountId", "period")));
+        }
+
+        return mongoTemplate.aggregate(Aggregation.newAggregation(operations),
+                        mongoTemplate.getCollectionName(CommissionDailyRollupEntity.class), Document.class)
+                .map(this::toSummary);
+    }
+
+    private CommissionSummary toSummary(Document document) {
+        return new CommissionSummary(
+                document.getString("accountId"),
+                document.getString("period"),
+                toBigDecimal(document.get("totalCommission")),
+                ((Number) document.get("transactionCount")).longValue());
+    }
+
+    private BigDecimal toBigDecimal(Object value) {
+        if (value instanceof Decimal128 decimal) {
+            return decimal.bigDecimalValue();
+        }
+        if (value instanceof Number number) {
+            return new BigDecimal(number.toString());
+        }
+        return BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,8 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionRollupCheckpointEntity;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface CommissionRollupCheckpointRepository
+        extends ReactiveMongoRepository<CommissionRollupCheckpointEntity, String> {
+}
@@ -0,0 +1,15 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Total de comisiones de una cuenta en un periodo, calculado en MongoDB a partir de los totales
+ * diarios.
+ *
+ * @param accountId ID de la cuenta
+ * @param period Día o mes agrupado, o null cuando el resumen cubre todo el rango
+ * @param totalCommission Suma de las comisiones
+ * @param transactionCount Número de comisiones
+ */
+public record CommissionSummary(String accountId, String period, BigDecimal totalCommission, long transactionCount) {
+}
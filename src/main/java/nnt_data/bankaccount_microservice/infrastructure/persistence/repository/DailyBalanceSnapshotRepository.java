@@ -0,0 +1,24 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DailyBalanceSnapshotEntity;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+public interface DailyBalanceSnapshotRepository
+        extends ReactiveMongoRepository<DailyBalanceSnapshotEntity, String>, DailyBalanceSnapshotRepositoryCustom {
+
+    /**
+     * Saldos de cierre de la cuenta entre ambas fechas, inclusive, ordenados por día.
+     */
+    @Query(value = "{ 'accountId': ?0, 'day': { $gte: ?1, $lte: ?2 } }", sort = "{ 'day': 1 }")
+    Flux<DailyBalanceSnapshotEntity> findByAccountIdInPeriod(String accountId, Date startDay, Date endDay);
+
+    /**
+     * Último saldo de cierre de la cuenta anterior a la fecha indicada.
+     */
+    Mono<DailyBalanceSnapshotEntity> findFirstByAccountIdAndDayLessThanOrderByDayDesc(String accountId, Date day);
+}
@@ -0,0 +1,32 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DailyBalanceSnapshotEntity;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public interface DailyBalanceSnapshotRepositoryCustom {
+
+    /**
+     * Guarda el saldo de cierre del día si la revisión es posterior a la ya guardada.
+     *
+     * @param accountId ID de la cuenta
+     * @param day Día del saldo
+     * @param closingBalance Saldo de la cuenta tras el movimiento
+     * @param revision Revisión de la cuenta tras el movimiento
+     * @return Mono vacío; si ya existe un saldo más reciente no se modifica
+     */
+    Mono<Void> recordClosingBalance(String accountId, LocalDate day, BigDecimal closingBalance, long revision);
+
+    /**
+     * Crea el saldo de cierre del día solo si todavía no existe. Lo usa el relleno histórico,
+     * que nunca debe sustituir un saldo escrito por un movimiento.
+     *
+     * @param accountId ID de la cuenta
+     * @param day Día del saldo
+     * @param closingBalance Saldo de cierre calculado
+     * @return Mono con el saldo guardado
+     */
+    Mono<DailyBalanceSnapshotEntity> initializeClosingBalance(String accountId, LocalDate day, BigDecimal closingBalance);
+}
@@ -0,0 +1,56 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import nnt_data.bankaccount_microservice.domain.utils.DateUtils;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DailyBalanceSnapshotEntity;
+import org.bson.types.Decimal128;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Implementación de DailyBalanceSnapshotRepositoryCustom. La escritura condicionada por revisión
+ * es un upsert sobre el _id: si el documento ya tiene una revisión igual o posterior, el upsert
+ * intenta insertar un _id repetido y el error de clave duplicada indica que no hay nada que hacer.
+ */
+@RequiredArgsConstructor
+public class DailyBalanceSnapshotRepositoryCustomImpl implements DailyBalanceSnapshotRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<Void> recordClosingBalance(String accountId, LocalDate day, BigDecimal closingBalance, long revision) {
+        Query query = new Query(new Criteria().andOperator(
+                Criteria.where("_id").is(DailyBalanceSnapshotEntity.idOf(accountId, day)),
+                new Criteria().orOperator(
+                        Criteria.where("revision").lt(revision),
+                        Criteria.where("revision").exists(false))));
+        Update update = new Update()
+                .set("closingBalance", new Decimal128(closingBalance))
+                .set("revision", revision)
+                .setOnInsert("accountId", accountId)
+                .setOnInsert("day", DateUtils.toDate(day));
+        return mongoTemplate.upsert(query, update, DailyBalanceSnapshotEntity.class)
+                .then()
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.empty());
+    }
+
+    @Override
+    public Mono<DailyBalanceSnapshotEntity> initializeClosingBalance(String accountId, LocalDate day,
+                                                                     BigDecimal closingBalance) {
+        Query query = new Query(Criteria.where("_id").is(DailyBalanceSnapshotEntity.idOf(accountId, day)));
+        Update update = new Update()
+                .setOnInsert("closingBalance", new Decimal128(closingBalance))
+                .setOnInsert("accountId", accountId)
+                .setOnInsert("day", DateUtils.toDate(day));
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), DailyBalanceSnapshotEntity.class);
+    }
+}
@@ -0,0 +1,7 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DailyMovementMarkerEntity;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface DailyMovementMarkerRepository extends ReactiveMongoRepository<DailyMovementMarkerEntity, String> {
+}
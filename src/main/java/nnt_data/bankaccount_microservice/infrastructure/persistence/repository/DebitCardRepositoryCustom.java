@@ -0,0 +1,55 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DebitCardEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * DebitCardRepositoryCustom define los cambios de cuentas asociadas de una tarjeta como un único
+ * findAndModify condicional ($addToSet / $pull), sin leer y guardar la tarjeta completa, de modo
+ * que dos asociaciones concurrentes no se pisan.
+ */
+public interface DebitCardRepositoryCustom {
+
+    /**
+     * Asocia una cuenta a la tarjeta si no es su cuenta principal ni está ya asociada.
+     *
+     * @param cardId ID de la tarjeta
+     * @param accountId ID de la cuenta
+     * @return Mono con la tarjeta actualizada, o vacío si la tarjeta no existe o no se cumple la condición
+     */
+    Mono<DebitCardEntity> addAssociatedAccount(String cardId, String accountId);
+
+    /**
+     * Asocia varias cuentas a la tarjeta en una sola actualización. Las cuentas ya asociadas se
+     * ignoran; si alguna es la cuenta principal no se asocia ninguna.
+     *
+     * @param cardId ID de la tarjeta
+     * @param accountIds IDs de las cuentas
+     * @return Mono con la tarjeta actualizada, o vacío si la tarjeta no existe o alguna cuenta es la principal
+     */
+    Mono<DebitCardEntity> addAssociatedAccounts(String cardId, Collection<String> accountIds);
+
+    /**
+     * Desasocia una cuenta de la tarjeta si está asociada y no es su cuenta principal.
+     *
+     * @param cardId ID de la tarjeta
+     * @param accountId ID de la cuenta
+     * @return Mono con la tarjeta actualizada, o vacío si la tarjeta no existe o no se cumple la condición
+     */
+    Mono<DebitCardEntity> removeAssociatedAccount(String cardId, String accountId);
+
+    /**
+     * Lee en una sola agregación las cuentas que hoy pertenecen a la tarjeta (principal y asociadas)
+     * con los campos que deciden si pueden pagar un cargo: saldo, contador y límite de movimientos y
+     * comisión por transacción. La pertenencia se resuelve en el servidor con la tarjeta guardada,
+     * no con la copia en caché.
+     *
+     * @param cardId ID de la tarjeta
+     * @return Flux con las cuentas de la tarjeta, vacío si la tarjeta no existe
+     */
+    Flux<AccountBaseEntity> findFundingAccounts(String cardId);
+}
@@ -0,0 +1,93 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DebitCardEntity;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Implementación de DebitCardRepositoryCustom basada en ReactiveMongoTemplate. Las condiciones
+ * sobre la cuenta principal y la pertenencia a la lista se evalúan en el servidor dentro del mismo
+ * findAndModify que modifica la lista.
+ * <p>
+ * Los ID de cuenta se guardan en la tarjeta como texto, mientras que el _id de una cuenta es un
+ * ObjectId cuando el texto es un ObjectId válido. Por eso la agregación de cuentas de pago
+ * convierte cada ID con $convert antes del $lookup, que así sigue usando el índice de _id.
+ */
+@RequiredArgsConstructor
+public class DebitCardRepositoryCustomImpl implements DebitCardRepositoryCustom {
+
+    private static final String ASSOCIATED_ACCOUNT_IDS = "associatedAccountIds";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<DebitCardEntity> addAssociatedAccount(String cardId, String accountId) {
+        Query query = new Query(Criteria.where("_id").is(cardId)
+                .and("primaryAccountId").ne(accountId)
+                .and(ASSOCIATED_ACCOUNT_IDS).ne(accountId));
+        return modify(query, new Update().addToSet(ASSOCIATED_ACCOUNT_IDS, accountId));
+    }
+
+    @Override
+    public Mono<DebitCardEntity> addAssociatedAccounts(String cardId, Collection<String> accountIds) {
+        Query query = new Query(Criteria.where("_id").is(cardId)
+                .and("primaryAccountId").nin(accountIds));
+        return modify(query, new Update().addToSet(ASSOCIATED_ACCOUNT_IDS).each(accountIds.toArray()));
+    }
+
+    @Override
+    public Mono<DebitCardEntity> removeAssociatedAccount(String cardId, String accountId) {
+        Query query = new Query(Criteria.where("_id").is(cardId)
+                .and("primaryAccountId").ne(accountId)
+                .and(ASSOCIATED_ACCOUNT_IDS).is(accountId));
+        return modify(query, new Update().pull(ASSOCIATED_ACCOUNT_IDS, accountId));
+    }
+
+    @Override
+    public Flux<AccountBaseEntity> findFundingAccounts(String cardId) {
+        Object id = ObjectId.isValid(cardId) ? new ObjectId(cardId) : cardId;
+        Document accountIds = new Document("$concatArrays", List.of(
+                List.of("$primaryAccountId"),
+                new Document("$ifNull", List.of("$" + ASSOCIATED_ACCOUNT_IDS, List.of()))));
+        Document toAccountId = new Document("$convert", new Document("input", "$$this")
+                .append("to", "objectId")
+                .append("onError", "$$this"));
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                context -> new Document("$match", new Document("_id", id)),
+                context -> new Document("$project", new Document("accountIds",
+                        new Document("$map", new Document("input", accountIds).append("in", toAccountId)))),
+                context -> new Document("$lookup", new Document("from",
+                        mongoTemplate.getCollectionName(AccountBaseEntity.class))
+                        .append("localField", "accountIds")
+                        .append("foreignField", "_id")
+                        .append("as", "accounts")),
+                context -> new Document("$unwind", "$accounts"),
+                context -> new Document("$replaceRoot", new Document("newRoot", "$accounts")),
+                context -> new Document("$project", new Document("balance", 1)
+                        .append("transactionMovements", 1)
+                        .append("movementLimit", 1)
+                        .append("feePerTransaction", 1)));
+
+        return mongoTemplate.aggregate(aggregation,
+                mongoTemplate.getCollectionName(DebitCardEntity.class), AccountBaseEntity.class);
+    }
+
+    private Mono<DebitCardEntity> modify(Query query, Update update) {
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), DebitCardEntity.class);
+    }
+}
@@ -0,0 +1,18 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.IdempotencyRecordEntity;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+public interface IdempotencyRecordRepository extends ReactiveMongoRepository<IdempotencyRecordEntity, String> {
+
+    /**
+     * Elimina la marca solo si sigue siendo la misma toma, identificada por su leaseUntil, para no
+     * borrar la de otra instancia que ya la tomó.
+     *
+     * @return Mono con el número de registros eliminados, 0 o 1
+     */
+    Mono<Long> deleteByIdAndLeaseUntil(String id, Date leaseUntil);
+}
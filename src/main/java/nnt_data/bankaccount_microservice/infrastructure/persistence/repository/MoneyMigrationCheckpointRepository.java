@@ -0,0 +1,8 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.MoneyMigrationCheckpointEntity;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface MoneyMigrationCheckpointRepository
+        extends ReactiveMongoRepository<MoneyMigrationCheckpointEntity, String> {
+}
@@ -1,8 +1,11 @@
 package nnt_data.bankaccount_microservice.infrastructure.persistence.repository;
 
 import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.TransactionEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.Date;
 import java.util.List;
@@ -23,10 +26,46 @@ public interface TransactionRepository extends ReactiveMongoRepository<Transacti
 
     Flux<TransactionEntity> findBySourceAccountId(String sourceAccountId);
 
-    Flux<TransactionEntity> findBySourceAccountIdOrDestinyAccountIdAndDateBetween(
-            String sourceAccountId,
-            String destinyAccountId,
-            Date startDate,
-            Date endDate
-    );
+    /**
+     * Primera página de transacciones ordenadas por ID.
+     */
+    Flux<TransactionEntity> findAllByOrderByTransactionIdAsc(Limit limit);
+
+    /**
+     * Página de transacciones con ID posterior al cursor, ordenadas por ID (paginación por clave).
+     */
+    Flux<TransactionEntity> findByTransactionIdGreaterThanOrderByTransactionIdAsc(String transactionId, Limit limit);
+
+    /**
+     * Transacciones más recientes de la cuenta origen, filtradas por el indicador de tarjeta, hasta
+     * el límite indicado. Se resuelve con el índice (sourceAccountId, isByCreditCard, date) sin
+     * ordenar en memoria.
+     */
+    Flux<TransactionEntity> findBySourceAccountIdAndIsByCreditCardOrderByDateDesc(
+            String sourceAccountId, Boolean isByCreditCard, Limit limit);
+
+    /**
+     * Elimina las transacciones de una transferencia múltiple. Usa el índice sobre batchId.
+     *
+     * @return Mono con el número de transacciones eliminadas
+     */
+    Mono<Long> deleteByBatchId(String batchId);
+
+    /**
+     * Cuenta las transacciones originadas por la cuenta en el intervalo [startDate, endDate).
+     */
+    @Query(value = "{ 'sourceAccountId': ?0, 'date': { $gte: ?1, $lt: ?2 } }", count = true)
+    Mono<Long> countBySourceAccountIdInPeriod(String sourceAccountId, Date startDate, Date endDate);
+
+    /**
+     * Transacciones en las que la cuenta es origen o destino dentro del intervalo [startDate, endDate).
+     * El rango de fechas se aplica a ambas ramas del $or, de modo que cada una usa su índice
+     * (sourceAccountId, date) o (destinyAccountId, date), y solo se devuelven los campos que
+     * necesita el cálculo de saldos.
+     */
+    @Query(value = "{ $or: [ { 'sourceAccountId': ?0, 'date': { $gte: ?1, $lt: ?2 } }, "
+            + "{ 'destinyAccountId': ?0, 'date': { $gte: ?1, $lt: ?2 } } ] }",
+            fields = "{ 'date': 1, 'type': 1, 'amount': 1, 'sourceAccountId': 1, "
+                    + "'destinyAccountId': 1, 'transactionMode': 1 }")
+    Flux<TransactionEntity> findByAccountIdInPeriod(String accountId, Date startDate, Date endDate);
 }
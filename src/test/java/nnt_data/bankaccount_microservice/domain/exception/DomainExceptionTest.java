@@ -0,0 +1,25 @@
+package nnt_data.bankaccount_microservice.domain.exception;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DomainExceptionTest {
+
+    @Test
+    void domainException_HasNoStackTraceNorSuppressed() {
+        InsufficientFundsException error = InsufficientFundsException.BALANCE;
+        error.addSuppressed(new IllegalStateException("otro error"));
+
+        assertEquals(0, error.getStackTrace().length);
+        assertEquals(0, error.getSuppressed().length);
+    }
+
+    @Test
+    void errorCodeOf_MapsDomainValidationAndUnexpectedErrors() {
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, ErrorCode.of(new AccountNotFoundException("No existe la cuenta")));
+        assertEquals(ErrorCode.LIMIT_EXCEEDED, ErrorCode.of(LimitExceededException.MONTHLY_MOVEMENTS));
+        assertEquals(ErrorCode.INVALID_REQUEST, ErrorCode.of(new IllegalArgumentException("Datos inválidos")));
+        assertEquals(ErrorCode.INTERNAL_ERROR, ErrorCode.of(new IllegalStateException("Fallo")));
+    }
+}
@@ -0,0 +1,77 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AccountBalanceCacheTest {
+
+    private static final String ACCOUNT_ID = "acc123";
+
+    private AccountBalanceCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new AccountBalanceCache(60_000, 100);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void balanceOf_Miss_LoadsOnceAndCaches() {
+        StepVerifier.create(cache.balanceOf(ACCOUNT_ID, id -> load("100", 1L)))
+                .expectNext(new BigDecimal("100"))
+                .verifyComplete();
+        StepVerifier.create(cache.balanceOf(ACCOUNT_ID, id -> load("999", 1L)))
+                .expectNext(new BigDecimal("100"))
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void update_OlderRevision_DoesNotReplaceNewerBalance() {
+        cache.update(account("150", 5L));
+        cache.update(account("100", 4L));
+
+        StepVerifier.create(cache.balanceOf(ACCOUNT_ID, id -> load("0", 0L)))
+                .expectNext(new BigDecimal("150"))
+                .verifyComplete();
+    }
+
+    @Test
+    void invalidate_ForcesReload() {
+        cache.update(account("150", 5L));
+        cache.invalidate(ACCOUNT_ID);
+
+        StepVerifier.create(cache.balanceOf(ACCOUNT_ID, id -> load("80", 6L)))
+                .expectNext(new BigDecimal("80"))
+                .verifyComplete();
+    }
+
+    @Test
+    void balanceOf_UnknownAccount_ReturnsEmpty() {
+        StepVerifier.create(cache.balanceOf(ACCOUNT_ID, id -> Mono.empty()))
+                .verifyComplete();
+    }
+
+    private Mono<AccountBaseEntity> load(String balance, long revision) {
+        loads.incrementAndGet();
+        return Mono.just(account(balance, revision));
+    }
+
+    private AccountBaseEntity account(String balance, long revision) {
+        AccountBaseEntity account = new AccountBaseEntity();
+        account.setAccountId(ACCOUNT_ID);
+        account.setBalance(new BigDecimal(balance));
+        account.setBalanceRevision(revision);
+        return account;
+    }
+}
@@ -0,0 +1,69 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nnt_data.bankaccount_microservice.model.AccountType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AccountConflictPolicyTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AccountConflictPolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        policy = new AccountConflictPolicy(meterRegistry, 3, 1, 5, 0.5);
+    }
+
+    @Test
+    void retrySpec_ConflictThenSuccess_RetriesAndCompletes() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> write = Mono.defer(() -> attempts.incrementAndGet() < 3
+                        ? Mono.<String>error(policy.conflict(AccountType.SAVINGS, "acc123"))
+                        : Mono.just("ok"))
+                .retryWhen(policy.retrySpec(AccountType.SAVINGS, "acc123"));
+
+        StepVerifier.create(write)
+                .expectNext("ok")
+                .verifyComplete();
+
+        assertEquals(2.0, meterRegistry.counter("account.version.conflicts", "accountType", "savings").count());
+        assertEquals(2.0, meterRegistry.counter("account.version.retries", "accountType", "savings").count());
+    }
+
+    @Test
+    void retrySpec_PersistentConflict_FailsWithIllegalState() {
+        Mono<String> write = Mono.<String>error(() -> new OptimisticLockingFailureException("conflicto"))
+                .retryWhen(policy.retrySpec(AccountType.SAVINGS, "acc123"));
+
+        StepVerifier.create(write)
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertEquals(1.0, meterRegistry.counter("account.version.retries.exhausted", "accountType", "savings").count());
+    }
+
+    @Test
+    void retrySpec_OtherError_IsNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> write = Mono.<String>defer(() -> {
+                    attempts.incrementAndGet();
+                    return Mono.error(new IllegalArgumentException("Saldo insuficiente"));
+                })
+                .retryWhen(policy.retrySpec(AccountType.SAVINGS, "acc123"));
+
+        StepVerifier.create(write)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        assertEquals(1, attempts.get());
+    }
+}
@@ -0,0 +1,83 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AccountMutationSequencerTest {
+
+    private AccountMutationSequencer sequencer;
+
+    @BeforeEach
+    void setUp() {
+        sequencer = new AccountMutationSequencer(new SimpleMeterRegistry(), 4);
+    }
+
+    @Test
+    void submit_SameAccount_RunsInOrderWithoutOverlap() {
+        List<Integer> executionOrder = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        Flux<Integer> work = Flux.range(0, 20)
+                .flatMap(i -> sequencer.submit("acc123", () -> Mono.fromCallable(() -> {
+                            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                            executionOrder.add(i);
+                            return i;
+                        })
+                        .delayElement(Duration.ofMillis(2))
+                        .doOnNext(value -> running.decrementAndGet())));
+
+        StepVerifier.create(work)
+                .expectNextCount(20)
+                .verifyComplete();
+
+        assertEquals(1, maxRunning.get());
+        assertEquals(Flux.range(0, 20).collectList().block(), executionOrder);
+        assertEquals(0, sequencer.pendingFor("acc123"));
+    }
+
+    @Test
+    void submit_DifferentAccounts_RunInParallel() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        Flux<String> work = Flux.just("acc1", "acc2", "acc3")
+                .flatMap(accountId -> sequencer.submit(accountId, () -> Mono.fromCallable(() -> {
+                            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                            return accountId;
+                        })
+                        .delayElement(Duration.ofMillis(50))
+                        .doOnNext(value -> running.decrementAndGet())));
+
+        StepVerifier.create(work)
+                .expectNextCount(3)
+                .verifyComplete();
+
+        assertEquals(3, maxRunning.get());
+    }
+
+    @Test
+    void submit_FailedWork_DoesNotBlockNextWork() {
+        Mono<String> failing = sequencer.submit("acc123",
+                () -> Mono.error(new IllegalArgumentException("Saldo insuficiente")));
+        Mono<String> next = sequencer.submit("acc123", () -> Mono.just("ok"));
+
+        StepVerifier.create(failing)
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        StepVerifier.create(next)
+                .expectNext("ok")
+                .verifyComplete();
+    }
+}
@@ -1,7 +1,9 @@
 package nnt_data.bankaccount_microservice.domain.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import nnt_data.bankaccount_microservice.application.usecase.AccountCreationStrategy;
 import nnt_data.bankaccount_microservice.application.usecase.AccountUpdateStrategy;
+import nnt_data.bankaccount_microservice.domain.exception.AccountConflictException;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.mapper.AccountMapper;
 import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.BankAccountRepository;
@@ -16,6 +18,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -27,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
@@ -77,7 +81,9 @@ public class AccountOperationsServiceTest {
                 creationStrategies,
                 accountRepository,
                 updateStrategies,
-                accountMapper
+                accountMapper,
+                new AccountBalanceCache(2_000, 1_000),
+                new AccountConflictPolicy(new SimpleMeterRegistry(), 3, 1, 5, 0.5)
         );
 
 
@@ -130,6 +136,31 @@ public class AccountOperationsServiceTest {
         verify(accountMapper, times(1)).toDomain(any(AccountBaseEntity.class));
     }
 
+    @Test
+    void findAccountsPageWithoutCursorShouldReadFirstPage() {
+        when(accountRepository.findAllByOrderByAccountIdAsc(Limit.of(50))).thenReturn(Flux.just(testAccountEntity));
+        when(accountMapper.toDomain(any(AccountBaseEntity.class))).thenReturn(Mono.just(testAccount));
+
+        StepVerifier.create(accountOperationsService.findAccountsPage(null, 50))
+                .expectNext(testAccount)
+                .verifyComplete();
+
+        verify(accountRepository, times(1)).findAllByOrderByAccountIdAsc(Limit.of(50));
+    }
+
+    @Test
+    void findAccountsPageWithCursorShouldReadAfterCursor() {
+        when(accountRepository.findByAccountIdGreaterThanOrderByAccountIdAsc("acc100", Limit.of(50)))
+                .thenReturn(Flux.just(testAccountEntity));
+        when(accountMapper.toDomain(any(AccountBaseEntity.class))).thenReturn(Mono.just(testAccount));
+
+        StepVerifier.create(accountOperationsService.findAccountsPage("acc100", 50))
+                .expectNext(testAccount)
+                .verifyComplete();
+
+        verify(accountRepository, times(1)).findByAccountIdGreaterThanOrderByAccountIdAsc("acc100", Limit.of(50));
+    }
+
 
     @Test
     void createAccountShouldUseCorrectStrategy() {
@@ -161,4 +192,23 @@ public class AccountOperationsServiceTest {
                         throwable.getMessage().contains("El tipo de cliente no puede ser null"))
                 .verify();
     }
+
+    @Test
+    void updateAccountEditedConcurrentlyShouldFailWithoutOverwriting() {
+        AccountBaseEntity read = new AccountBaseEntity();
+        read.setAccountId(ACCOUNT_ID);
+        read.setVersion(1L);
+        AccountBaseEntity editedMeanwhile = new AccountBaseEntity();
+        editedMeanwhile.setAccountId(ACCOUNT_ID);
+        editedMeanwhile.setVersion(2L);
+        editedMeanwhile.setProfileRevision(1L);
+        when(accountRepository.findById(ACCOUNT_ID)).thenReturn(Mono.just(read), Mono.just(editedMeanwhile));
+        when(personalUpdateStrategy.updateAccount(ACCOUNT_ID, testAccount)).thenReturn(Mono.just(testAccount));
+
+        StepVerifier.create(accountOperationsService.updateAccount(ACCOUNT_ID, testAccount))
+                .expectError(AccountConflictException.class)
+                .verify();
+
+        verify(accountRepository, never()).save(any());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import nnt_data.bankaccount_microservice.domain.utils.DateUtils;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DailyBalanceSnapshotEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.DailyBalanceSnapshotRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DailyBalanceSnapshotServiceTest {
+
+    private static final String ACCOUNT_ID = "acc123";
+    private static final LocalDate START = LocalDate.of(2025, 4, 1);
+    private static final LocalDate END = LocalDate.of(2025, 4, 4);
+
+    @Mock
+    private DailyBalanceSnapshotRepository dailyBalanceSnapshotRepository;
+
+    @InjectMocks
+    private DailyBalanceSnapshotService dailyBalanceSnapshotService;
+
+    @Test
+    void averageDailyBalance_CarriesClosingBalanceForward() {
+        when(dailyBalanceSnapshotRepository.findFirstByAccountIdAndDayLessThanOrderByDayDesc(
+                ACCOUNT_ID, DateUtils.toDate(START)))
+                .thenReturn(Mono.just(snapshot(START.minusDays(5), "100")));
+        when(dailyBalanceSnapshotRepository.findByAccountIdInPeriod(
+                ACCOUNT_ID, DateUtils.toDate(START), DateUtils.toDate(END)))
+                .thenReturn(Flux.just(snapshot(LocalDate.of(2025, 4, 3), "300")));
+
+        // Saldos diarios: 100, 100, 300, 300 -> promedio 200
+        StepVerifier.create(dailyBalanceSnapshotService.averageDailyBalance(ACCOUNT_ID, START, END))
+                .expectNext(new BigDecimal("200"))
+                .verifyComplete();
+    }
+
+    @Test
+    void averageDailyBalance_SnapshotOnFirstDay_DoesNotNeedOpeningBalance() {
+        when(dailyBalanceSnapshotRepository.findFirstByAccountIdAndDayLessThanOrderByDayDesc(
+                ACCOUNT_ID, DateUtils.toDate(START)))
+                .thenReturn(Mono.empty());
+        when(dailyBalanceSnapshotRepository.findByAccountIdInPeriod(
+                ACCOUNT_ID, DateUtils.toDate(START), DateUtils.toDate(END)))
+                .thenReturn(Flux.just(snapshot(START, "40"), snapshot(END, "80")));
+
+        StepVerifier.create(dailyBalanceSnapshotService.averageDailyBalance(ACCOUNT_ID, START, END))
+                .expectNext(new BigDecimal("50"))
+                .verifyComplete();
+    }
+
+    @Test
+    void averageDailyBalance_UnknownOpeningBalance_ReturnsEmpty() {
+        when(dailyBalanceSnapshotRepository.findFirstByAccountIdAndDayLessThanOrderByDayDesc(
+                ACCOUNT_ID, DateUtils.toDate(START)))
+                .thenReturn(Mono.empty());
+        when(dailyBalanceSnapshotRepository.findByAccountIdInPeriod(
+                ACCOUNT_ID, DateUtils.toDate(START), DateUtils.toDate(END)))
+                .thenReturn(Flux.just(snapshot(LocalDate.of(2025, 4, 2), "300")));
+
+        StepVerifier.create(dailyBalanceSnapshotService.averageDailyBalance(ACCOUNT_ID, START, END))
+                .verifyComplete();
+    }
+
+    @Test
+    void recordClosingBalance_WriteFails_CompletesEmpty() {
+        AccountBaseEntity account = new AccountBaseEntity();
+        account.setAccountId(ACCOUNT_ID);
+        account.setBalance(new BigDecimal("150"));
+        account.setBalanceRevision(7L);
+        when(dailyBalanceSnapshotRepository.recordClosingBalance(
+                eq(ACCOUNT_ID), any(LocalDate.class), eq(new BigDecimal("150")), eq(7L)))
+                .thenReturn(Mono.error(new IllegalStateException("Mongo no disponible")));
+
+        StepVerifier.create(dailyBalanceSnapshotService.recordClosingBalance(account))
+                .verifyComplete();
+    }
+
+    @Test
+    void recordClosingBalance_AccountWithoutRevision_SkipsWrite() {
+        AccountBaseEntity account = new AccountBaseEntity();
+        account.setAccountId(ACCOUNT_ID);
+        account.setBalance(new BigDecimal("150"));
+
+        StepVerifier.create(dailyBalanceSnapshotService.recordClosingBalance(account))
+                .verifyComplete();
+
+        verify(dailyBalanceSnapshotRepository, never())
+                .recordClosingBalance(any(), any(), any(), anyLong());
+    }
+
+    private DailyBalanceSnapshotEntity snapshot(LocalDate day, String closingBalance) {
+        return DailyBalanceSnapshotEntity.builder()
+                .id(DailyBalanceSnapshotEntity.idOf(ACCOUNT_ID, day))
+                .accountId(ACCOUNT_ID)
+                .day(DateUtils.toDate(day))
+                .closingBalance(new BigDecimal(closingBalance))
+                .build();
+    }
+}
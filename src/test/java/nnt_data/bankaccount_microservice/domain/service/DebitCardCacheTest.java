@@ -0,0 +1,77 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DebitCardEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DebitCardCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DebitCardCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new DebitCardCache(meterRegistry, 60, 100);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void byCardNumber_Miss_LoadsOnceAndServesBothKeys() {
+        StepVerifier.create(cache.byCardNumber("4111", number -> load("acc1")))
+                .expectNextMatches(card -> "acc1".equals(card.getPrimaryAccountId()))
+                .verifyComplete();
+        StepVerifier.create(cache.byId("card1", id -> load("other")))
+                .expectNextMatches(card -> "acc1".equals(card.getPrimaryAccountId()))
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "debitCardsById").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void invalidate_ReloadsChangedCard() {
+        StepVerifier.create(cache.byId("card1", id -> load("acc1")))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        cache.invalidate(DebitCardEntity.builder().id("card1").cardNumber("4111").build());
+
+        StepVerifier.create(cache.byCardNumber("4111", number -> load("acc2")))
+                .expectNextMatches(card -> "acc2".equals(card.getPrimaryAccountId()))
+                .verifyComplete();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void byId_ReturnsCopiesThatDoNotAlterTheCache() {
+        StepVerifier.create(cache.byId("card1", id -> load("acc1")))
+                .assertNext(card -> card.getAssociatedAccountIds().add("acc9"))
+                .verifyComplete();
+
+        StepVerifier.create(cache.byId("card1", id -> load("acc1")))
+                .expectNextMatches(card -> card.getAssociatedAccountIds().equals(List.of("acc2")))
+                .verifyComplete();
+    }
+
+    private Mono<DebitCardEntity> load(String primaryAccountId) {
+        loads.incrementAndGet();
+        return Mono.just(DebitCardEntity.builder()
+                .id("card1")
+                .cardNumber("4111")
+                .primaryAccountId(primaryAccountId)
+                .associatedAccountIds(new ArrayList<>(List.of("acc2")))
+                .build());
+    }
+}
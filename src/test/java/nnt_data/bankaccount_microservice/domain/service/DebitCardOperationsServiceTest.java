@@ -0,0 +1,196 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nnt_data.bankaccount_microservice.domain.exception.AccountNotFoundException;
+import nnt_data.bankaccount_microservice.domain.exception.InsufficientFundsException;
+import nnt_data.bankaccount_microservice.domain.exception.OperationNotAllowedException;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DebitCardEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.mapper.DebitCardMapperImpl;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.BankAccountRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.DebitCardRepository;
+import nnt_data.bankaccount_microservice.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DebitCardOperationsServiceTest {
+
+    @Mock
+    private DebitCardRepository debitCardRepository;
+    @Mock
+    private BankAccountRepository bankAccountRepository;
+    @Mock
+    private TransactionOperationsService transactionOperationsService;
+
+    private DebitCardOperationsService debitCardOperationsService;
+
+    @BeforeEach
+    void setUp() {
+        debitCardOperationsService = new DebitCardOperationsService(debitCardRepository, new DebitCardMapperImpl(),
+                bankAccountRepository, transactionOperationsService,
+                new AccountBalanceCache(2000, 1000),
+                new DebitCardCache(new SimpleMeterRegistry(), 60, 1000));
+    }
+
+    @Test
+    void processDebitCardTransaction_PrimaryWithoutFunds_PostsOnceOnFirstFundedAccount() {
+        stubCard();
+        when(debitCardRepository.findFundingAccounts("card1")).thenReturn(Flux.just(
+                funding("assoc2", "500", 0), funding("primary", "50", 0), funding("assoc1", "100", 10)));
+        when(transactionOperationsService.createTransaction(any()))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(debitCardOperationsService.processDebitCardTransaction("4111", withdrawal("100")))
+                .assertNext(transaction -> assertEquals("assoc2", transaction.getSourceAccountId()))
+                .verifyComplete();
+
+        ArgumentCaptor<Transaction> posted = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionOperationsService, times(1)).createTransaction(posted.capture());
+        assertEquals("assoc2", posted.getValue().getSourceAccountId());
+        verify(debitCardRepository, times(1)).findFundingAccounts("card1");
+    }
+
+    @Test
+    void processDebitCardTransaction_FirstAccountDrainedMeanwhile_PostsOnNextFundedAccount() {
+        stubCard();
+        when(debitCardRepository.findFundingAccounts("card1")).thenReturn(Flux.just(
+                funding("primary", "500", 0), funding("assoc1", "10", 0), funding("assoc2", "500", 0)));
+        when(transactionOperationsService.createTransaction(any())).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            return "primary".equals(transaction.getSourceAccountId())
+                    ? Mono.error(InsufficientFundsException.BALANCE)
+                    : Mono.just(transaction);
+        });
+
+        StepVerifier.create(debitCardOperationsService.processDebitCardTransaction("4111", withdrawal("100")))
+                .assertNext(transaction -> assertEquals("assoc2", transaction.getSourceAccountId()))
+                .verifyComplete();
+
+        verify(transactionOperationsService, times(2)).createTransaction(any());
+    }
+
+    @Test
+    void processDebitCardTransaction_AccountDissociatedElsewhere_IsNotCharged() {
+        stubCard();
+        when(debitCardRepository.findFundingAccounts("card1")).thenReturn(Flux.just(
+                funding("primary", "50", 0), funding("assoc1", "10", 0)));
+
+        StepVerifier.create(debitCardOperationsService.processDebitCardTransaction("4111", withdrawal("100")))
+                .expectError(InsufficientFundsException.class)
+                .verify();
+
+        verify(transactionOperationsService, never()).createTransaction(any());
+    }
+
+    @Test
+    void processDebitCardTransaction_NoAccountWithFunds_PostsNothing() {
+        stubCard();
+        when(debitCardRepository.findFundingAccounts("card1")).thenReturn(Flux.just(
+                funding("primary", "50", 0), funding("assoc1", "10", 0)));
+
+        StepVerifier.create(debitCardOperationsService.processDebitCardTransaction("4111", withdrawal("100")))
+                .expectErrorMatches(error -> error instanceof InsufficientFundsException
+                        && error.getMessage().equals("No hay fondos suficientes en la cuenta principal ni en las asociadas"))
+                .verify();
+
+        verify(transactionOperationsService, never()).createTransaction(any());
+    }
+
+    @Test
+    void associateAccountsToCard_AddsAllAccountsInOneUpdate() {
+        when(bankAccountRepository.findIdsByIdIn(anyCollection())).thenReturn(Flux.just(
+                accountId("acc1"), accountId("acc2")));
+        when(debitCardRepository.addAssociatedAccounts(eq("card1"), anyCollection())).thenReturn(Mono.just(
+                DebitCardEntity.builder()
+                        .id("card1")
+                        .cardNumber("4111")
+                        .primaryAccountId("primary")
+                        .associatedAccountIds(List.of("acc1", "acc2"))
+                        .build()));
+
+        StepVerifier.create(debitCardOperationsService.associateAccountsToCard("card1", List.of("acc1", "acc2", "acc1")))
+                .assertNext(card -> assertEquals(List.of("acc1", "acc2"), card.getAssociatedAccountIds()))
+                .verifyComplete();
+
+        verify(debitCardRepository, times(1)).addAssociatedAccounts("card1", Set.of("acc1", "acc2"));
+        verify(debitCardRepository, never()).save(any());
+    }
+
+    @Test
+    void associateAccountsToCard_MissingAccount_AssociatesNothing() {
+        when(bankAccountRepository.findIdsByIdIn(anyCollection())).thenReturn(Flux.just(accountId("acc1")));
+
+        StepVerifier.create(debitCardOperationsService.associateAccountsToCard("card1", List.of("acc1", "acc2")))
+                .expectErrorMatches(error -> error instanceof AccountNotFoundException
+                        && error.getMessage().contains("acc2"))
+                .verify();
+
+        verify(debitCardRepository, never()).addAssociatedAccounts(any(), anyCollection());
+    }
+
+    @Test
+    void associateAccountToCard_AlreadyAssociated_ReturnsValidationError() {
+        when(bankAccountRepository.existsById("acc1")).thenReturn(Mono.just(true));
+        when(debitCardRepository.addAssociatedAccount("card1", "acc1")).thenReturn(Mono.empty());
+        when(debitCardRepository.existsById("card1")).thenReturn(Mono.just(true));
+
+        StepVerifier.create(debitCardOperationsService.associateAccountToCard("card1", "acc1"))
+                .expectErrorMatches(error -> error instanceof OperationNotAllowedException
+                        && error.getMessage().equals("La cuenta ya está asociada a esta tarjeta"))
+                .verify();
+    }
+
+    private void stubCard() {
+        when(debitCardRepository.findByCardNumber("4111")).thenReturn(Mono.just(DebitCardEntity.builder()
+                .id("card1")
+                .cardNumber("4111")
+                .primaryAccountId("primary")
+                .associatedAccountIds(List.of("assoc1", "assoc2"))
+                .build()));
+    }
+
+    private static AccountBaseEntity accountId(String accountId) {
+        AccountBaseEntity account = new AccountBaseEntity();
+        account.setAccountId(accountId);
+        return account;
+    }
+
+    private static AccountBaseEntity funding(String accountId, String balance, int movements) {
+        AccountBaseEntity account = new AccountBaseEntity();
+        account.setAccountId(accountId);
+        account.setBalance(new BigDecimal(balance));
+        account.setTransactionMovements(movements);
+        account.setMovementLimit(10);
+        account.setFeePerTransaction(BigDecimal.ONE);
+        return account;
+    }
+
+    private static Transaction withdrawal(String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setType(Transaction.TypeEnum.WITHDRAWAL);
+        transaction.setTransactionMode(Transaction.TransactionModeEnum.SINGLE_ACCOUNT);
+        transaction.setAmount(new BigDecimal(amount));
+        return transaction;
+    }
+}
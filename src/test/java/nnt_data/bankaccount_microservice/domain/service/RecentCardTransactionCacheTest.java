@@ -0,0 +1,92 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import nnt_data.bankaccount_microservice.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RecentCardTransactionCacheTest {
+
+    private static final String ACCOUNT_ID = "acc123";
+
+    private RecentCardTransactionCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RecentCardTransactionCache(3, 1_000, 30);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void recentTransactions_Miss_LoadsOnceAndServesFromCache() {
+        StepVerifier.create(cache.recentTransactions(ACCOUNT_ID, () -> loader(30, 20, 10)))
+                .expectNextMatches(transaction -> transaction.getDate().getTime() == 30)
+                .expectNextCount(2)
+                .verifyComplete();
+        StepVerifier.create(cache.recentTransactions(ACCOUNT_ID, () -> loader(30, 20, 10)))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void record_CachedAccount_KeepsNewestWithinCapacity() {
+        StepVerifier.create(cache.recentTransactions(ACCOUNT_ID, () -> loader(30, 20, 10)))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        cache.record(transaction("t40", 40));
+
+        StepVerifier.create(cache.recentTransactions(ACCOUNT_ID, () -> loader()))
+                .expectNextMatches(transaction -> transaction.getDate().getTime() == 40)
+                .expectNextMatches(transaction -> transaction.getDate().getTime() == 30)
+                .expectNextMatches(transaction -> transaction.getDate().getTime() == 20)
+                .verifyComplete();
+    }
+
+    @Test
+    void record_UncachedAccount_IsMergedWithNextLoad() {
+        cache.record(transaction("t40", 40));
+
+        StepVerifier.create(cache.recentTransactions(ACCOUNT_ID, () -> loader(40, 30, 20)))
+                .expectNextMatches(transaction -> transaction.getDate().getTime() == 40)
+                .expectNextMatches(transaction -> transaction.getDate().getTime() == 30)
+                .expectNextMatches(transaction -> transaction.getDate().getTime() == 20)
+                .verifyComplete();
+    }
+
+    @Test
+    void record_NotByCard_IsIgnored() {
+        Transaction transaction = transaction("t40", 40);
+        transaction.setIsByCreditCard(false);
+        cache.record(transaction);
+
+        StepVerifier.create(cache.recentTransactions(ACCOUNT_ID, () -> loader(10)))
+                .expectNextMatches(loaded -> loaded.getDate().getTime() == 10)
+                .verifyComplete();
+    }
+
+    private Flux<Transaction> loader(long... times) {
+        loads.incrementAndGet();
+        return Flux.fromStream(Arrays.stream(times).boxed())
+                .map(time -> transaction("t" + time, time));
+    }
+
+    private Transaction transaction(String id, long time) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(id);
+        transaction.setSourceAccountId(ACCOUNT_ID);
+        transaction.setIsByCreditCard(true);
+        transaction.setDate(new Date(time));
+        return transaction;
+    }
+}
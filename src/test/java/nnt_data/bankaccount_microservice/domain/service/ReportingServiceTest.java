@@ -0,0 +1,115 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nnt_data.bankaccount_microservice.domain.exception.CardNotFoundException;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.DebitCardEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.TransactionEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.mapper.TransactionMapper;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.mapper.TransactionMapperImpl;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.BankAccountRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.CommissionDailyRollupRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.DebitCardRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.TransactionRepository;
+import nnt_data.bankaccount_microservice.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReportingServiceTest {
+
+    private static final String CARD_NUMBER = "4111111111111111";
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private BankAccountRepository bankAccountRepository;
+    @Mock
+    private CommissionDailyRollupRepository commissionDailyRollupRepository;
+    @Mock
+    private DebitCardRepository debitCardRepository;
+    @Mock
+    private DailyBalanceSnapshotService dailyBalanceSnapshotService;
+
+    private ReportingService reportingService;
+
+    @BeforeEach
+    void setUp() {
+        TransactionMapper transactionMapper = new TransactionMapperImpl();
+        reportingService = new ReportingService(transactionRepository, bankAccountRepository,
+                commissionDailyRollupRepository, transactionMapper, debitCardRepository, dailyBalanceSnapshotService,
+                new RecentCardTransactionCache(10, 1_000, 30), new DebitCardCache(new SimpleMeterRegistry(), 60, 1_000));
+    }
+
+    @Test
+    void getLastTenTransactions_MergesAccountsByDateAndKeepsTen() {
+        DebitCardEntity card = DebitCardEntity.builder()
+                .cardNumber(CARD_NUMBER)
+                .primaryAccountId("acc1")
+                .associatedAccountIds(new ArrayList<>(List.of("acc2", "acc1")))
+                .build();
+        when(debitCardRepository.findByCardNumber(CARD_NUMBER)).thenReturn(Mono.just(card));
+        // Cada cuenta devuelve sus transacciones ya ordenadas por fecha descendente
+        when(transactionRepository.findBySourceAccountIdAndIsByCreditCardOrderByDateDesc("acc1", true, Limit.of(10)))
+                .thenReturn(Flux.range(0, 10).map(i -> transaction("acc1", 100 - i * 2)));
+        when(transactionRepository.findBySourceAccountIdAndIsByCreditCardOrderByDateDesc("acc2", true, Limit.of(10)))
+                .thenReturn(Flux.range(0, 10).map(i -> transaction("acc2", 99 - i * 2)));
+
+        StepVerifier.create(reportingService.getLastTenTransactions(CARD_NUMBER))
+                .assertNext(report -> {
+                    assertEquals(10, report.getTransactionCount());
+                    List<Long> dates = report.getTransactions().stream()
+                            .map(Transaction::getDate)
+                            .map(Date::getTime)
+                            .toList();
+                    assertEquals(List.of(100L, 99L, 98L, 97L, 96L, 95L, 94L, 93L, 92L, 91L), dates);
+                    assertEquals(new Date(100), report.getNewestTransactionDate());
+                    assertEquals(new Date(91), report.getOldestTransactionDate());
+                })
+                .verifyComplete();
+
+        verify(transactionRepository, times(1))
+                .findBySourceAccountIdAndIsByCreditCardOrderByDateDesc("acc1", true, Limit.of(10));
+
+        // La segunda lectura se sirve desde la caché de transacciones recientes
+        StepVerifier.create(reportingService.getLastTenTransactions(CARD_NUMBER))
+                .assertNext(report -> assertEquals(10, report.getTransactionCount()))
+                .verifyComplete();
+        verify(transactionRepository, times(1))
+                .findBySourceAccountIdAndIsByCreditCardOrderByDateDesc("acc1", true, Limit.of(10));
+        verify(debitCardRepository, times(1)).findByCardNumber(CARD_NUMBER);
+    }
+
+    @Test
+    void getLastTenTransactions_UnknownCard_ReturnsError() {
+        when(debitCardRepository.findByCardNumber(CARD_NUMBER)).thenReturn(Mono.empty());
+
+        StepVerifier.create(reportingService.getLastTenTransactions(CARD_NUMBER))
+                .expectError(CardNotFoundException.class)
+                .verify();
+    }
+
+    private TransactionEntity transaction(String accountId, long time) {
+        TransactionEntity entity = new TransactionEntity();
+        entity.setTransactionId(accountId + "-" + time);
+        entity.setSourceAccountId(accountId);
+        entity.setIsByCreditCard(true);
+        entity.setDate(new Date(time));
+        return entity;
+    }
+}
@@ -0,0 +1,352 @@
+package nnt_data.bankaccount_microservice.domain.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nnt_data.bankaccount_microservice.domain.exception.InsufficientFundsException;
+import nnt_data.bankaccount_microservice.domain.service.BalancePostingService.BalanceMovement;
+import nnt_data.bankaccount_microservice.domain.service.BalancePostingService.PostedMovement;
+import nnt_data.bankaccount_microservice.domain.validator.TransactionValidator;
+import nnt_data.bankaccount_microservice.domain.validator.factory.ValidatorFactory;
+import nnt_data.bankaccount_microservice.domain.validator.transaction.CheckingTransactionValidator;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.AccountBaseEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.TransactionEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.mapper.TransactionMapperImpl;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.AccountMovementCounterRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.BankAccountRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.CommissionDailyRollupRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.CommissionRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.TransactionRepository;
+import nnt_data.bankaccount_microservice.model.AccountType;
+import nnt_data.bankaccount_microservice.model.PayrollPayment;
+import nnt_data.bankaccount_microservice.model.PayrollTransferRequest;
+import nnt_data.bankaccount_microservice.model.Transaction;
+import nnt_data.bankaccount_microservice.model.TransactionBatchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionOperationsServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private BankAccountRepository bankAccountRepository;
+    @Mock
+    private ValidatorFactory validatorFactory;
+    @Mock
+    private CommissionRepository commissionRepository;
+    @Mock
+    private BalancePostingService balancePostingService;
+    @Mock
+    private AccountMovementCounterRepository accountMovementCounterRepository;
+    @Mock
+    private CommissionDailyRollupRepository commissionDailyRollupRepository;
+    @Mock
+    private TransactionValidator transactionValidator;
+
+    private RecentCardTransactionCache recentCardTransactionCache;
+    private TransactionOperationsService transactionOperationsService;
+
+    @BeforeEach
+    void setUp() {
+        recentCardTransactionCache = new RecentCardTransactionCache(10, 1000, 30);
+        transactionOperationsService = new TransactionOperationsService(transactionRepository,
+                new TransactionMapperImpl(), bankAccountRepository, validatorFactory, commissionRepository,
+                balancePostingService, new AccountMutationSequencer(new SimpleMeterRegistry(), 4),
+                accountMovementCounterRepository, commissionDailyRollupRepository, recentCardTransactionCache);
+    }
+
+    @Test
+    void createTransaction_ByCard_IsRecordedInRecentCardTransactions() {
+        AccountBaseEntity account = checkingAccount("acc1", "100");
+        when(bankAccountRepository.findById("acc1")).thenReturn(Mono.just(account));
+        when(validatorFactory.getTransactionValidator(account)).thenReturn(transactionValidator);
+        when(transactionValidator.validate(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(balancePostingService.post(any(), any())).thenAnswer(invocation -> {
+            Function<AccountBaseEntity, Mono<BalanceMovement>> planner = invocation.getArgument(1);
+            return planner.apply(account).map(movement -> new PostedMovement(account, movement));
+        });
+        when(transactionRepository.insert(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        StepVerifier.create(recentCardTransactionCache.recentTransactions("acc1", Flux::empty))
+                .verifyComplete();
+
+        Transaction transaction = transaction("acc1", Transaction.TypeEnum.WITHDRAWAL, "60");
+        transaction.setIsByCreditCard(true);
+        StepVerifier.create(transactionOperationsService.createTransaction(transaction))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        StepVerifier.create(recentCardTransactionCache.recentTransactions("acc1",
+                        () -> Flux.error(new IllegalStateException("no debe consultar"))))
+                .assertNext(recent -> assertEquals(0, new BigDecimal("60").compareTo(recent.getAmount())))
+                .verifyComplete();
+    }
+
+    @Test
+    void createTransaction_SaveFails_RevertsBalanceAndReleasesValidation() {
+        AccountBaseEntity account = stubFailingSave();
+        when(balancePostingService.revert(any())).thenReturn(Mono.just(account));
+
+        StepVerifier.create(transactionOperationsService.createTransaction(
+                        transaction("acc1", Transaction.TypeEnum.WITHDRAWAL, "60")))
+                .expectErrorMessage("insert failed")
+                .verify();
+
+        verify(balancePostingService, times(1)).revert(any());
+        verify(transactionValidator, times(1)).release(any());
+    }
+
+    @Test
+    void createTransaction_SaveAndRevertFail_KeepsValidationReservation() {
+        stubFailingSave();
+        when(balancePostingService.revert(any())).thenReturn(Mono.error(new RuntimeException("revert failed")));
+
+        StepVerifier.create(transactionOperationsService.createTransaction(
+                        transaction("acc1", Transaction.TypeEnum.WITHDRAWAL, "60")))
+                .expectErrorMessage("insert failed")
+                .verify();
+
+        verify(transactionValidator, never()).release(any());
+    }
+
+    @Test
+    void createTransactionBatch_GroupsByAccountAndPostsOnce() {
+        AccountBaseEntity account = checkingAccount("acc1", "100");
+        when(bankAccountRepository.findById("acc1")).thenReturn(Mono.just(account));
+        when(validatorFactory.getTransactionValidator(account)).thenReturn(new CheckingTransactionValidator());
+        when(balancePostingService.post(any(), any())).thenAnswer(invocation -> {
+            Function<AccountBaseEntity, Mono<BalanceMovement>> planner = invocation.getArgument(1);
+            return planner.apply(account).map(movement -> new PostedMovement(account, movement));
+        });
+        when(transactionRepository.insert(anyList())).thenAnswer(invocation -> {
+            List<TransactionEntity> entities = invocation.getArgument(0);
+            for (int i = 0; i < entities.size(); i++) {
+                entities.get(i).setTransactionId("tx" + i);
+            }
+            return Flux.fromIterable(entities);
+        });
+
+        Flux<Transaction> batch = Flux.just(
+                transaction("acc1", Transaction.TypeEnum.WITHDRAWAL, "60"),
+                transaction("acc1", Transaction.TypeEnum.WITHDRAWAL, "60"),
+                transaction("acc1", Transaction.TypeEnum.DEPOSIT, "10"),
+                transaction(null, Transaction.TypeEnum.DEPOSIT, "10"));
+
+        StepVerifier.create(transactionOperationsService.createTransactionBatch(batch)
+                        .sort(Comparator.comparing(TransactionBatchResult::getIndex)))
+                .assertNext(result -> assertEquals(TransactionBatchResult.StatusEnum.ACCEPTED, result.getStatus()))
+                .assertNext(result -> {
+                    assertEquals(TransactionBatchResult.StatusEnum.REJECTED, result.getStatus());
+                    assertEquals("Saldo insuficiente", result.getMessage());
+                })
+                .assertNext(result -> assertEquals(TransactionBatchResult.StatusEnum.ACCEPTED, result.getStatus()))
+                .assertNext(result -> assertEquals(TransactionBatchResult.StatusEnum.REJECTED, result.getStatus()))
+                .verifyComplete();
+
+        ArgumentCaptor<Function<AccountBaseEntity, Mono<BalanceMovement>>> planner = ArgumentCaptor.forClass(Function.class);
+        verify(balancePostingService, times(1)).post(any(), planner.capture());
+        verify(bankAccountRepository, times(1)).findById("acc1");
+        StepVerifier.create(planner.getValue().apply(account))
+                .assertNext(movement -> {
+                    assertEquals(0, new BigDecimal("-50").compareTo(movement.delta()));
+                    assertEquals(2, movement.movements());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void createTransactionBatch_SaveFails_DeletesWritesRevertsAndRejects() {
+        AccountBaseEntity account = stubFailingBatchSave();
+        when(balancePostingService.revert(any())).thenReturn(Mono.just(account));
+
+        StepVerifier.create(transactionOperationsService.createTransactionBatch(
+                        Flux.just(transaction("acc1", Transaction.TypeEnum.WITHDRAWAL, "60"))))
+                .assertNext(result -> assertEquals(TransactionBatchResult.StatusEnum.REJECTED, result.getStatus()))
+                .verifyComplete();
+
+        ArgumentCaptor<Iterable<String>> deleted = ArgumentCaptor.forClass(Iterable.class);
+        verify(transactionRepository).deleteAllById(deleted.capture());
+        assertEquals(1, deleted.getValue().spliterator().getExactSizeIfKnown());
+        verify(balancePostingService, times(1)).revert(any());
+    }
+
+    @Test
+    void createTransactionBatch_SaveAndRevertFail_PropagatesInsteadOfRejecting() {
+        stubFailingBatchSave();
+        when(balancePostingService.revert(any())).thenReturn(Mono.error(new RuntimeException("revert failed")));
+
+        StepVerifier.create(transactionOperationsService.createTransactionBatch(
+                        Flux.just(transaction("acc1", Transaction.TypeEnum.WITHDRAWAL, "60"))))
+                .expectErrorMessage("insert failed")
+                .verify();
+    }
+
+    @Test
+    void createPayrollTransfer_DebitsSourceOnceAndCreditsDestinationsInBulk() {
+        AccountBaseEntity source = checkingAccount("src", "1000");
+        when(bankAccountRepository.findById("src")).thenReturn(Mono.just(source));
+        when(bankAccountRepository.findAllById(anyCollection())).thenReturn(Flux.just(
+                checkingAccount("dst1", "0"), checkingAccount("dst2", "0")));
+        when(validatorFactory.getTransactionValidator(source)).thenReturn(new CheckingTransactionValidator());
+        when(balancePostingService.post(any(), any())).thenAnswer(invocation -> {
+            Function<AccountBaseEntity, Mono<BalanceMovement>> planner = invocation.getArgument(1);
+            return planner.apply(source).map(movement -> new PostedMovement(source, movement));
+        });
+        when(balancePostingService.adjustAll(anyMap())).thenReturn(Mono.empty());
+        when(transactionRepository.insert(anyList())).thenAnswer(invocation -> {
+            List<TransactionEntity> entities = invocation.getArgument(0);
+            for (int i = 0; i < entities.size(); i++) {
+                entities.get(i).setTransactionId("tx" + i);
+            }
+            return Flux.fromIterable(entities);
+        });
+
+        PayrollTransferRequest request = new PayrollTransferRequest()
+                .sourceAccountId("src")
+                .payments(List.of(
+                        new PayrollPayment().destinyAccountId("dst1").amount(new BigDecimal("300")),
+                        new PayrollPayment().destinyAccountId("dst2").amount(new BigDecimal("200")),
+                        new PayrollPayment().destinyAccountId("dst1").amount(new BigDecimal("100"))));
+
+        StepVerifier.create(transactionOperationsService.createPayrollTransfer(request))
+                .assertNext(result -> {
+                    assertEquals(0, new BigDecimal("600").compareTo(result.getTotalAmount()));
+                    assertEquals(List.of("tx0", "tx1", "tx2"), result.getTransactionIds());
+                })
+                .verifyComplete();
+
+        verify(balancePostingService, times(1)).post(any(), any());
+        verify(balancePostingService).adjustAll(Map.of(
+                "dst1", new BigDecimal("400"),
+                "dst2", new BigDecimal("200")));
+    }
+
+    @Test
+    void createPayrollTransfer_SaveFails_DeletesBatchAndRevertsAllBalances() {
+        AccountBaseEntity source = checkingAccount("src", "1000");
+        when(bankAccountRepository.findById("src")).thenReturn(Mono.just(source));
+        when(bankAccountRepository.findAllById(anyCollection())).thenReturn(Flux.just(checkingAccount("dst1", "0")));
+        when(validatorFactory.getTransactionValidator(source)).thenReturn(new CheckingTransactionValidator());
+        when(balancePostingService.post(any(), any())).thenAnswer(invocation -> {
+            Function<AccountBaseEntity, Mono<BalanceMovement>> planner = invocation.getArgument(1);
+            return planner.apply(source).map(movement -> new PostedMovement(source, movement));
+        });
+        when(balancePostingService.adjustAll(anyMap())).thenReturn(Mono.empty());
+        when(transactionRepository.insert(anyList())).thenReturn(Flux.error(new RuntimeException("insert failed")));
+        when(transactionRepository.deleteByBatchId(any())).thenReturn(Mono.just(0L));
+        when(transactionRepository.deleteAllById(any())).thenReturn(Mono.empty());
+        when(commissionRepository.deleteAllById(any())).thenReturn(Mono.empty());
+        when(balancePostingService.revertAll(anyMap())).thenReturn(Mono.empty());
+        when(balancePostingService.revert(any())).thenReturn(Mono.just(source));
+
+        PayrollTransferRequest request = new PayrollTransferRequest()
+                .sourceAccountId("src")
+                .payments(List.of(new PayrollPayment().destinyAccountId("dst1").amount(new BigDecimal("300"))));
+
+        StepVerifier.create(transactionOperationsService.createPayrollTransfer(request))
+                .expectErrorMessage("insert failed")
+                .verify();
+
+        verify(transactionRepository, times(1)).deleteByBatchId(any());
+        verify(balancePostingService).revertAll(Map.of("dst1", new BigDecimal("300")));
+        verify(balancePostingService, times(1)).revert(any());
+    }
+
+    @Test
+    void createPayrollTransfer_InsufficientBalance_PostsNothing() {
+        AccountBaseEntity source = checkingAccount("src", "100");
+        when(bankAccountRepository.findById("src")).thenReturn(Mono.just(source));
+        when(bankAccountRepository.findAllById(anyCollection())).thenReturn(Flux.just(checkingAccount("dst1", "0")));
+        when(validatorFactory.getTransactionValidator(source)).thenReturn(new CheckingTransactionValidator());
+        when(balancePostingService.post(any(), any())).thenAnswer(invocation -> {
+            Function<AccountBaseEntity, Mono<BalanceMovement>> planner = invocation.getArgument(1);
+            return planner.apply(source).map(movement -> new PostedMovement(source, movement));
+        });
+
+        PayrollTransferRequest request = new PayrollTransferRequest()
+                .sourceAccountId("src")
+                .payments(List.of(new PayrollPayment().destinyAccountId("dst1").amount(new BigDecimal("300"))));
+
+        StepVerifier.create(transactionOperationsService.createPayrollTransfer(request))
+                .expectError(InsufficientFundsException.class)
+                .verify();
+
+        verify(balancePostingService, never()).adjustAll(anyMap());
+        verify(transactionRepository, never()).insert(anyList());
+    }
+
+    private AccountBaseEntity stubFailingSave() {
+        AccountBaseEntity account = checkingAccount("acc1", "100");
+        when(bankAccountRepository.findById("acc1")).thenReturn(Mono.just(account));
+        when(validatorFactory.getTransactionValidator(account)).thenReturn(transactionValidator);
+        when(transactionValidator.validate(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        lenient().when(transactionValidator.release(any())).thenReturn(Mono.empty());
+        when(balancePostingService.post(any(), any())).thenAnswer(invocation -> {
+            Function<AccountBaseEntity, Mono<BalanceMovement>> planner = invocation.getArgument(1);
+            return planner.apply(account).map(movement -> new PostedMovement(account, movement));
+        });
+        when(transactionRepository.insert(anyList())).thenReturn(Flux.error(new RuntimeException("insert failed")));
+        when(transactionRepository.deleteAllById(any())).thenReturn(Mono.empty());
+        when(commissionRepository.deleteAllById(any())).thenReturn(Mono.empty());
+        return account;
+    }
+
+    private AccountBaseEntity stubFailingBatchSave() {
+        AccountBaseEntity account = checkingAccount("acc1", "100");
+        when(bankAccountRepository.findById("acc1")).thenReturn(Mono.just(account));
+        when(validatorFactory.getTransactionValidator(account)).thenReturn(new CheckingTransactionValidator());
+        when(balancePostingService.post(any(), any())).thenAnswer(invocation -> {
+            Function<AccountBaseEntity, Mono<BalanceMovement>> planner = invocation.getArgument(1);
+            return planner.apply(account).map(movement -> new PostedMovement(account, movement));
+        });
+        when(transactionRepository.insert(anyList())).thenReturn(Flux.error(new RuntimeException("insert failed")));
+        when(transactionRepository.deleteAllById(any())).thenReturn(Mono.empty());
+        when(commissionRepository.deleteAllById(any())).thenReturn(Mono.empty());
+        return account;
+    }
+
+    private static AccountBaseEntity checkingAccount(String accountId, String balance) {
+        AccountBaseEntity account = new AccountBaseEntity();
+        account.setAccountId(accountId);
+        account.setAccountType(AccountType.CHECKING);
+        account.setBalance(new BigDecimal(balance));
+        account.setTransactionMovements(0);
+        account.setMovementLimit(10);
+        account.setFeePerTransaction(BigDecimal.ONE);
+        account.setVersion(0L);
+        return account;
+    }
+
+    private static Transaction transaction(String accountId, Transaction.TypeEnum type, String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setSourceAccountId(accountId);
+        transaction.setType(type);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setTransactionMode(Transaction.TransactionModeEnum.SINGLE_ACCOUNT);
+        return transaction;
+    }
+}
@@ -0,0 +1,114 @@
+package nnt_data.bankaccount_microservice.domain.utils;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.TransactionEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.mapper.TransactionMapper;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.mapper.TransactionMapperImpl;
+import nnt_data.bankaccount_microservice.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara AverageBalanceCalculator con el algoritmo anterior de ReportingService, que filtraba
+ * la lista completa de transacciones para cada día. Los dos reciben las mismas transacciones ya
+ * mapeadas, así que se mide solo el algoritmo y no el mapeo. Se ejecuta con el método main desde
+ * el classpath de test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AverageBalanceBenchmark {
+
+    private static final String ACCOUNT_ID = "acc123";
+
+    @Param({"100", "1000", "10000"})
+    private int transactionCount;
+
+    @Param({"31", "90"})
+    private int periodDays;
+
+    private final TransactionMapper transactionMapper = new TransactionMapperImpl();
+    private List<Transaction> transactions;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        startDate = LocalDate.of(2025, 1, 1);
+        endDate = startDate.plusDays(periodDays - 1L);
+        List<TransactionEntity> entities = new ArrayList<>(transactionCount);
+        for (int i = 0; i < transactionCount; i++) {
+            TransactionEntity entity = new TransactionEntity();
+            entity.setTransactionMode(Transaction.TransactionModeEnum.SINGLE_ACCOUNT);
+            entity.setType(random.nextBoolean() ? Transaction.TypeEnum.DEPOSIT : Transaction.TypeEnum.WITHDRAWAL);
+            entity.setAmount(BigDecimal.valueOf(random.nextInt(10_000), 2));
+            entity.setSourceAccountId(ACCOUNT_ID);
+            entity.setDate(DateUtils.toDate(startDate.plusDays(random.nextInt(periodDays))));
+            entities.add(entity);
+        }
+        transactions = entities.stream()
+                .map(entity -> transactionMapper.toDomain(entity).block())
+                .toList();
+    }
+
+    @Benchmark
+    public BigDecimal sweepLine() {
+        return AverageBalanceCalculator.averageDailyBalance(
+                BigDecimal.ZERO, transactions, startDate, endDate, ACCOUNT_ID);
+    }
+
+    @Benchmark
+    public BigDecimal legacyPerDayFilter() {
+        BigDecimal dailyBalance = BigDecimal.ZERO;
+        BigDecimal sumOfBalances = BigDecimal.ZERO;
+        LocalDate currentDate = startDate;
+
+        while (!currentDate.isAfter(endDate)) {
+            LocalDate finalCurrentDate = currentDate;
+            List<Transaction> dailyTransactions = transactions.stream()
+                    .filter(transaction -> DateUtils.toLocalDate(transaction.getDate()).equals(finalCurrentDate))
+                    .toList();
+
+            for (Transaction transaction : dailyTransactions) {
+                dailyBalance = BalanceCalculator.calculateDailyBalance(dailyBalance, transaction, ACCOUNT_ID);
+            }
+
+            sumOfBalances = sumOfBalances.add(dailyBalance);
+            currentDate = currentDate.plusDays(1);
+        }
+
+        long daysInPeriod = startDate.until(endDate, ChronoUnit.DAYS) + 1;
+        return sumOfBalances.divide(BigDecimal.valueOf(daysInPeriod), RoundingMode.HALF_UP);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AverageBalanceBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,63 @@
+package nnt_data.bankaccount_microservice.domain.utils;
+
+import nnt_data.bankaccount_microservice.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AverageBalanceCalculatorTest {
+
+    private static final String ACCOUNT_ID = "acc123";
+
+    @Test
+    void averageDailyBalance_NoTransactions_ReturnsInitialBalance() {
+        BigDecimal average = AverageBalanceCalculator.averageDailyBalance(
+                new BigDecimal("100"), List.of(),
+                LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 30), ACCOUNT_ID);
+
+        assertEquals(new BigDecimal("100"), average);
+    }
+
+    @Test
+    void averageDailyBalance_AppliesTransactionsOnTheirDayRegardlessOfInputOrder() {
+        List<Transaction> transactions = List.of(
+                singleAccount(Transaction.TypeEnum.WITHDRAWAL, "50", LocalDate.of(2025, 4, 3)),
+                singleAccount(Transaction.TypeEnum.DEPOSIT, "100", LocalDate.of(2025, 4, 2)),
+                singleAccount(Transaction.TypeEnum.DEPOSIT, "999", LocalDate.of(2025, 3, 31)));
+
+        BigDecimal average = AverageBalanceCalculator.averageDailyBalance(
+                BigDecimal.ZERO, transactions,
+                LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 4), ACCOUNT_ID);
+
+        // Saldos diarios: 0, 100, 50, 50 -> promedio 50
+        assertEquals(new BigDecimal("50"), average);
+    }
+
+    @Test
+    void averageDailyBalance_InterAccountDeposit_DebitsDestinyAccount() {
+        Transaction transfer = singleAccount(Transaction.TypeEnum.DEPOSIT, "40", LocalDate.of(2025, 4, 1));
+        transfer.setTransactionMode(Transaction.TransactionModeEnum.INTER_ACCOUNT);
+        transfer.setSourceAccountId("other");
+        transfer.setDestinyAccountId(ACCOUNT_ID);
+
+        BigDecimal average = AverageBalanceCalculator.averageDailyBalance(
+                new BigDecimal("100"), List.of(transfer),
+                LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 2), ACCOUNT_ID);
+
+        assertEquals(new BigDecimal("60"), average);
+    }
+
+    private Transaction singleAccount(Transaction.TypeEnum type, String amount, LocalDate day) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionMode(Transaction.TransactionModeEnum.SINGLE_ACCOUNT);
+        transaction.setType(type);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setSourceAccountId(ACCOUNT_ID);
+        transaction.setDate(DateUtils.toDate(day));
+        return transaction;
+    }
+}
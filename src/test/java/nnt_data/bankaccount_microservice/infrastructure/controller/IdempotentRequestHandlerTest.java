@@ -0,0 +1,189 @@
+package nnt_data.bankaccount_microservice.infrastructure.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.IdempotencyRecordEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.DigestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotentRequestHandlerTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private IdempotentRequestHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        handler = new IdempotentRequestHandler(idempotencyRecordRepository, new ObjectMapper(), 24, 60_000, 200, 10);
+    }
+
+    @Test
+    void execute_WithoutKey_RunsActionWithoutStore() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/accounts/transactions"));
+
+        StepVerifier.create(handler.execute("transactions", exchange, "tx", () -> created("tx1")))
+                .expectNextMatches(response -> response.getStatusCode() == HttpStatus.CREATED)
+                .verifyComplete();
+
+        verify(idempotencyRecordRepository, never()).insert(any(IdempotencyRecordEntity.class));
+    }
+
+    @Test
+    void execute_ConcurrentDuplicates_RunActionOnce() {
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecordEntity.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(idempotencyRecordRepository.save(any(IdempotencyRecordEntity.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        AtomicInteger executions = new AtomicInteger();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/accounts/transactions")
+                .header(IdempotentRequestHandler.IDEMPOTENCY_KEY_HEADER, "key-1"));
+
+        Mono<ResponseEntity<Map<String, Object>>> first = handler.execute("transactions", exchange, "tx",
+                () -> Mono.defer(() -> {
+                    executions.incrementAndGet();
+                    return created("tx1");
+                }).delayElement(Duration.ofMillis(50)));
+        Mono<ResponseEntity<Map<String, Object>>> second = handler.execute("transactions", exchange, "tx",
+                () -> Mono.defer(() -> {
+                    executions.incrementAndGet();
+                    return created("tx2");
+                }));
+
+        StepVerifier.create(Mono.zip(first, second))
+                .expectNextMatches(pair -> pair.getT1().getBody().equals(pair.getT2().getBody()))
+                .verifyComplete();
+
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_CompletedKey_ReplaysStoredResponse() {
+        String id = IdempotencyRecordEntity.idOf("transactions", "key-1");
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecordEntity.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+        when(idempotencyRecordRepository.findById(id)).thenReturn(Mono.just(
+                IdempotencyRecordEntity.builder()
+                        .id(id)
+                        .status(IdempotencyRecordEntity.Status.COMPLETED)
+                        .requestHash(DigestUtils.md5DigestAsHex("\"tx\"".getBytes(StandardCharsets.UTF_8)))
+                        .httpStatus(201)
+                        .responseBody("{\"transaction_id\":\"tx1\"}")
+                        .build()));
+        AtomicInteger executions = new AtomicInteger();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/accounts/transactions")
+                .header(IdempotentRequestHandler.IDEMPOTENCY_KEY_HEADER, "key-1"));
+
+        StepVerifier.create(handler.execute("transactions", exchange, "tx", () -> {
+                    executions.incrementAndGet();
+                    return created("tx2");
+                }))
+                .expectNextMatches(response -> response.getStatusCode().value() == 201
+                        && "tx1".equals(response.getBody().get("transaction_id"))
+                        && "true".equals(response.getHeaders().getFirst(IdempotentRequestHandler.REPLAYED_HEADER)))
+                .verifyComplete();
+
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_SameBodyInAnotherFieldOrder_ReplaysStoredResponse() {
+        String id = IdempotencyRecordEntity.idOf("transactions", "key-1");
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecordEntity.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+        when(idempotencyRecordRepository.findById(id)).thenReturn(Mono.just(
+                IdempotencyRecordEntity.builder()
+                        .id(id)
+                        .status(IdempotencyRecordEntity.Status.COMPLETED)
+                        .requestHash(DigestUtils.md5DigestAsHex(
+                                "{\"amount\":100,\"type\":\"DEPOSIT\"}".getBytes(StandardCharsets.UTF_8)))
+                        .httpStatus(201)
+                        .responseBody("{\"transaction_id\":\"tx1\"}")
+                        .build()));
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("type", "DEPOSIT");
+        request.put("amount", 100);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/accounts/transactions")
+                .header(IdempotentRequestHandler.IDEMPOTENCY_KEY_HEADER, "key-1"));
+
+        StepVerifier.create(handler.execute("transactions", exchange, request, () -> created("tx2")))
+                .expectNextMatches(response -> "tx1".equals(response.getBody().get("transaction_id")))
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_FailedAction_ReleasesKey() {
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecordEntity.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(idempotencyRecordRepository.deleteByIdAndLeaseUntil(anyString(), any(Date.class))).thenReturn(Mono.just(1L));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/accounts/transactions")
+                .header(IdempotentRequestHandler.IDEMPOTENCY_KEY_HEADER, "key-1"));
+
+        StepVerifier.create(handler.execute("transactions", exchange, "tx",
+                        () -> Mono.error(new IllegalArgumentException("Saldo insuficiente"))))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verify(idempotencyRecordRepository).deleteByIdAndLeaseUntil(
+                eq(IdempotencyRecordEntity.idOf("transactions", "key-1")), any(Date.class));
+    }
+
+    @Test
+    void execute_InFlightKeyWithExpiredLease_TakesOverAndRunsAction() {
+        String id = IdempotencyRecordEntity.idOf("transactions", "key-1");
+        Date expiredLease = new Date(System.currentTimeMillis() - 1_000);
+        when(idempotencyRecordRepository.insert(any(IdempotencyRecordEntity.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("duplicate")))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(idempotencyRecordRepository.findById(id)).thenReturn(Mono.just(
+                IdempotencyRecordEntity.builder()
+                        .id(id)
+                        .status(IdempotencyRecordEntity.Status.IN_FLIGHT)
+                        .requestHash(DigestUtils.md5DigestAsHex("\"tx\"".getBytes(StandardCharsets.UTF_8)))
+                        .leaseUntil(expiredLease)
+                        .build()));
+        when(idempotencyRecordRepository.deleteByIdAndLeaseUntil(id, expiredLease)).thenReturn(Mono.just(1L));
+        when(idempotencyRecordRepository.save(any(IdempotencyRecordEntity.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/accounts/transactions")
+                .header(IdempotentRequestHandler.IDEMPOTENCY_KEY_HEADER, "key-1"));
+
+        StepVerifier.create(handler.execute("transactions", exchange, "tx", () -> created("tx1")))
+                .expectNextMatches(response -> response.getStatusCode() == HttpStatus.CREATED)
+                .verifyComplete();
+
+        verify(idempotencyRecordRepository).deleteByIdAndLeaseUntil(id, expiredLease);
+    }
+
+    private static Mono<ResponseEntity<Map<String, Object>>> created(String transactionId) {
+        return Mono.just(ResponseEntity.status(HttpStatus.CREATED)
+                .body(Map.of("transaction_id", transactionId)));
+    }
+}
@@ -0,0 +1,116 @@
+package nnt_data.bankaccount_microservice.infrastructure.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KafkaRequestConsumerTest {
+
+    private static final TopicPartition PARTITION_0 = new TopicPartition("requests", 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition("requests", 1);
+
+    private KafkaRequestConsumer consumer;
+    private List<String> acknowledged;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new KafkaRequestConsumer(ReceiverOptions.create(), 8, 16, 10, 2);
+        acknowledged = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Test
+    void process_HandlesPartitionInOrderAndAcknowledgesAfterReply() {
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlightPerPartition = new AtomicInteger();
+
+        Flux<ReceiverRecord<String, String>> records = Flux.just(
+                record(PARTITION_0, 0, "a"), record(PARTITION_0, 1, "b"), record(PARTITION_0, 2, "c"));
+
+        StepVerifier.create(consumer.process(records, value -> Mono.delay(Duration.ofMillis("a".equals(value) ? 30 : 5))
+                        .doOnSubscribe(s -> maxInFlightPerPartition.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                        .doOnNext(tick -> {
+                            assertEquals(handled.size(), acknowledged.size());
+                            handled.add(value);
+                        })
+                        .doFinally(signal -> inFlight.decrementAndGet())
+                        .then()))
+                .verifyComplete();
+
+        assertEquals(List.of("a", "b", "c"), handled);
+        assertEquals(List.of("requests-0@0", "requests-0@1", "requests-0@2"), acknowledged);
+        assertEquals(1, maxInFlightPerPartition.get());
+    }
+
+    @Test
+    void process_FailedReply_RetriesInPartitionWhileOthersContinue() {
+        AtomicInteger attempts = new AtomicInteger();
+        Flux<ReceiverRecord<String, String>> records = Flux.just(
+                record(PARTITION_0, 0, "flaky"), record(PARTITION_1, 0, "b"), record(PARTITION_0, 1, "c"));
+
+        StepVerifier.create(consumer.process(records, value -> "flaky".equals(value) && attempts.incrementAndGet() == 1
+                        ? Mono.error(new IllegalStateException("Kafka no disponible"))
+                        : Mono.empty()))
+                .verifyComplete();
+
+        assertEquals(2, attempts.get());
+        assertEquals(List.of("requests-1@0", "requests-0@0", "requests-0@1"), acknowledged);
+    }
+
+    @Test
+    void process_FailedReply_DoesNotAcknowledge() {
+        Flux<ReceiverRecord<String, String>> records = Flux.just(
+                record(PARTITION_0, 0, "a"), record(PARTITION_1, 0, "fail"));
+
+        StepVerifier.create(consumer.process(records, value -> "fail".equals(value)
+                        ? Mono.error(new IllegalStateException("Kafka no disponible"))
+                        : Mono.empty()))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertEquals(List.of("requests-0@0"), acknowledged);
+    }
+
+    private ReceiverRecord<String, String> record(TopicPartition partition, long offset, String value) {
+        ConsumerRecord<String, String> consumerRecord =
+                new ConsumerRecord<>(partition.topic(), partition.partition(), offset, null, value);
+        ReceiverOffset receiverOffset = new ReceiverOffset() {
+            @Override
+            public TopicPartition topicPartition() {
+                return partition;
+            }
+
+            @Override
+            public long offset() {
+                return offset;
+            }
+
+            @Override
+            public void acknowledge() {
+                acknowledged.add(partition + "@" + offset);
+            }
+
+            @Override
+            public Mono<Void> commit() {
+                acknowledge();
+                return Mono.empty();
+            }
+        };
+        return new ReceiverRecord<>(consumerRecord, receiverOffset);
+    }
+}
@@ -0,0 +1,142 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.index;
+
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.TransactionEntity;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prueba MongoIndexManager contra un almacén de índices en memoria que sustituye a MongoDB.
+ */
+@ExtendWith(MockitoExtension.class)
+class MongoIndexManagerTest {
+
+    @Mock
+    private ReactiveMongoOperations mongoOperations;
+
+    @Mock
+    private ReactiveIndexOperations indexOperations;
+
+    private final Map<String, IndexInfo> inMemoryIndexes = new LinkedHashMap<>();
+    private final Map<String, Long> inMemoryAccesses = new LinkedHashMap<>();
+
+    private MongoIndexManager indexManager;
+
+    @BeforeEach
+    void setUp() {
+        MongoIndexCatalog catalog = new MongoIndexCatalog()
+                .declare(new IndexDeclaration(TransactionEntity.class, new Index()
+                        .on("sourceAccountId", Sort.Direction.ASC)
+                        .on("date", Sort.Direction.DESC)
+                        .named("sourceAccountId_date")))
+                .declare(new IndexDeclaration(TransactionEntity.class, new Index()
+                        .on("destinyAccountId", Sort.Direction.ASC)
+                        .on("date", Sort.Direction.DESC)
+                        .named("destinyAccountId_date")));
+
+        storeIndex("_id_", 10L);
+        storeIndex("destinyAccountId_date", 0L);
+        storeIndex("legacy_index", 3L);
+
+        when(mongoOperations.getCollectionName(TransactionEntity.class)).thenReturn("transaction");
+        when(mongoOperations.indexOps(TransactionEntity.class)).thenReturn(indexOperations);
+        when(indexOperations.getIndexInfo())
+                .thenAnswer(invocation -> Flux.fromIterable(List.copyOf(inMemoryIndexes.values())));
+        lenient().when(indexOperations.ensureIndex(any(IndexDefinition.class))).thenAnswer(invocation -> {
+            IndexDefinition definition = invocation.getArgument(0);
+            String name = definition.getIndexOptions().getString("name");
+            storeIndex(name, 0L);
+            return Mono.just(name);
+        });
+        when(mongoOperations.aggregate(any(Aggregation.class), eq("transaction"), eq(Document.class)))
+                .thenAnswer(invocation -> Flux.fromIterable(inMemoryAccesses.entrySet())
+                        .map(entry -> new Document("name", entry.getKey())
+                                .append("accesses", new Document("ops", entry.getValue()))));
+
+        indexManager = new MongoIndexManager(mongoOperations, catalog, false);
+    }
+
+    @Test
+    void reconcile_CreatesMissingAndReportsUndeclaredAndUnused() {
+        StepVerifier.create(indexManager.reconcile(true))
+                .assertNext(report -> {
+                    assertEquals("transaction", report.collection());
+                    assertEquals(List.of("sourceAccountId_date"), report.missing());
+                    assertEquals(List.of("sourceAccountId_date"), report.created());
+                    assertEquals(List.of("legacy_index"), report.undeclared());
+                    assertEquals(List.of("destinyAccountId_date", "sourceAccountId_date"), report.unused());
+                    assertTrue(report.failed().isEmpty());
+                })
+                .verifyComplete();
+
+        assertTrue(inMemoryIndexes.containsKey("sourceAccountId_date"));
+    }
+
+    @Test
+    void reconcile_WithoutCreation_OnlyReportsMissing() {
+        StepVerifier.create(indexManager.reconcile(false))
+                .assertNext(report -> {
+                    assertEquals(List.of("sourceAccountId_date"), report.missing());
+                    assertTrue(report.created().isEmpty());
+                })
+                .verifyComplete();
+
+        assertTrue(!inMemoryIndexes.containsKey("sourceAccountId_date"));
+    }
+
+    @Test
+    void reconcile_WhenOneIndexFails_CreatesTheRestAndReportsTheFailure() {
+        inMemoryIndexes.remove("destinyAccountId_date");
+        inMemoryAccesses.remove("destinyAccountId_date");
+        when(indexOperations.ensureIndex(any(IndexDefinition.class))).thenAnswer(invocation -> {
+            IndexDefinition definition = invocation.getArgument(0);
+            String name = definition.getIndexOptions().getString("name");
+            if ("sourceAccountId_date".equals(name)) {
+                return Mono.error(new IllegalStateException("Index build aborted"));
+            }
+            storeIndex(name, 0L);
+            return Mono.just(name);
+        });
+
+        StepVerifier.create(indexManager.reconcile(true))
+                .assertNext(report -> {
+                    assertEquals(List.of("sourceAccountId_date", "destinyAccountId_date"), report.missing());
+                    assertEquals(List.of("destinyAccountId_date"), report.created());
+                    assertEquals(List.of("sourceAccountId_date"), report.failed());
+                })
+                .verifyComplete();
+
+        assertTrue(inMemoryIndexes.containsKey("destinyAccountId_date"));
+    }
+
+    private void storeIndex(String name, Long accesses) {
+        inMemoryIndexes.put(name, new IndexInfo(
+                List.of(IndexField.create("field", Sort.Direction.ASC)), name, false, false, null));
+        inMemoryAccesses.put(name, accesses);
+    }
+}
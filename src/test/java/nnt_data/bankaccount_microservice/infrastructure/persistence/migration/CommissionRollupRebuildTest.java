@@ -0,0 +1,88 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.migration;
+
+import nnt_data.bankaccount_microservice.domain.utils.DateUtils;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.CommissionRollupCheckpointEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.CommissionDailyRollupRepository;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.CommissionRollupCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CommissionRollupRebuildTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+
+    @Mock
+    private CommissionDailyRollupRepository commissionDailyRollupRepository;
+    @Mock
+    private CommissionRollupCheckpointRepository checkpointRepository;
+
+    private CommissionRollupRebuild rebuild;
+
+    @BeforeEach
+    void setUp() {
+        rebuild = new CommissionRollupRebuild(commissionDailyRollupRepository, checkpointRepository, null, true, 0);
+    }
+
+    @Test
+    void rebuild_FirstRun_RebuildsHistoryBeforeToday() {
+        when(checkpointRepository.findById(CommissionRollupRebuild.CHECKPOINT_ID)).thenReturn(Mono.empty());
+        when(commissionDailyRollupRepository.rebuild(isNull(), any())).thenReturn(Mono.empty());
+        when(checkpointRepository.save(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(rebuild.rebuild(TODAY))
+                .expectNext(true)
+                .verifyComplete();
+
+        verify(commissionDailyRollupRepository).rebuild(null, DateUtils.toDate(TODAY));
+    }
+
+    @Test
+    void rebuild_LaterDay_RebuildsOnceMoreFromFirstDay() {
+        LocalDate firstDay = TODAY.minusDays(2);
+        when(checkpointRepository.findById(CommissionRollupRebuild.CHECKPOINT_ID))
+                .thenReturn(Mono.just(checkpoint(firstDay, firstDay)));
+        when(commissionDailyRollupRepository.rebuild(any(), any())).thenReturn(Mono.empty());
+        when(checkpointRepository.save(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(rebuild.rebuild(TODAY))
+                .expectNext(true)
+                .verifyComplete();
+
+        verify(commissionDailyRollupRepository).rebuild(DateUtils.toDate(firstDay), DateUtils.toDate(TODAY));
+    }
+
+    @Test
+    void rebuild_AlreadyCompleted_SkipsRebuild() {
+        LocalDate firstDay = TODAY.minusDays(5);
+        when(checkpointRepository.findById(CommissionRollupRebuild.CHECKPOINT_ID))
+                .thenReturn(Mono.just(checkpoint(firstDay, firstDay.plusDays(1))));
+
+        StepVerifier.create(rebuild.rebuild(TODAY))
+                .expectNext(false)
+                .verifyComplete();
+
+        verify(commissionDailyRollupRepository, never()).rebuild(any(), any());
+    }
+
+    private CommissionRollupCheckpointEntity checkpoint(LocalDate firstDay, LocalDate rebuiltBefore) {
+        return CommissionRollupCheckpointEntity.builder()
+                .id(CommissionRollupRebuild.CHECKPOINT_ID)
+                .firstDay(firstDay.toString())
+                .rebuiltBefore(rebuiltBefore.toString())
+                .build();
+    }
+}
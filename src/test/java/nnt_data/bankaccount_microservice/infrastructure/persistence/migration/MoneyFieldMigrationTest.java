@@ -0,0 +1,52 @@
+package nnt_data.bankaccount_microservice.infrastructure.persistence.migration;
+
+import nnt_data.bankaccount_microservice.domain.exception.ServiceUnavailableException;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.entity.MoneyMigrationCheckpointEntity;
+import nnt_data.bankaccount_microservice.infrastructure.persistence.repository.MoneyMigrationCheckpointRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class MoneyFieldMigrationTest {
+
+    @Test
+    void requireAccountFieldsMigrated_Disabled_CompletesImmediately() {
+        MoneyFieldMigration migration = new MoneyFieldMigration(null, null, false, 500, 8, 200, 10);
+
+        StepVerifier.create(migration.requireAccountFieldsMigrated())
+                .verifyComplete();
+    }
+
+    @Test
+    void requireAccountFieldsMigrated_MigrationPending_RejectsAfterMaxWait() {
+        MoneyFieldMigration migration = new MoneyFieldMigration(null, null, true, 500, 8, 200, 10);
+
+        StepVerifier.create(migration.requireAccountFieldsMigrated())
+                .expectErrorMatches(error -> error == ServiceUnavailableException.MONEY_MIGRATION)
+                .verify();
+    }
+
+    @Test
+    void migrate_AllFieldsCheckpointed_SkipsScansAndAllowsPostings() {
+        ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+        MoneyMigrationCheckpointRepository checkpointRepository = mock(MoneyMigrationCheckpointRepository.class);
+        when(checkpointRepository.findById(anyString()))
+                .thenReturn(Mono.just(MoneyMigrationCheckpointEntity.builder().completed(true).build()));
+        MoneyFieldMigration migration = new MoneyFieldMigration(
+                mongoTemplate, checkpointRepository, true, 500, 8, 200, 10);
+
+        StepVerifier.create(migration.migrate())
+                .expectNext(0L)
+                .verifyComplete();
+        StepVerifier.create(migration.requireAccountFieldsMigrated())
+                .verifyComplete();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+}